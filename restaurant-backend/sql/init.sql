@@ -56,6 +56,7 @@ CREATE TABLE IF NOT EXISTS `restaurant_table` (
   `qrcode` VARCHAR(255) DEFAULT NULL COMMENT '点餐二维码(固定座位才有)',
   `status` TINYINT DEFAULT 0 COMMENT '状态: 0空闲 1使用中 2待清台',
   `sort_order` INT DEFAULT 0 COMMENT '排序',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
   `is_deleted` TINYINT DEFAULT 0 COMMENT '是否删除: 0否 1是',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -95,6 +96,7 @@ CREATE TABLE IF NOT EXISTS `dish` (
   `status` TINYINT DEFAULT 1 COMMENT '状态: 0下架 1上架',
   `sort_order` INT DEFAULT 0 COMMENT '排序',
   `has_specs` TINYINT DEFAULT 0 COMMENT '是否有规格: 0无 1有',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
   `is_deleted` TINYINT DEFAULT 0 COMMENT '是否删除: 0否 1是',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -114,6 +116,7 @@ CREATE TABLE IF NOT EXISTS `dish_spec` (
   `price` DECIMAL(10,2) NOT NULL COMMENT '规格价格',
   `sort_order` INT DEFAULT 0 COMMENT '排序',
   `status` TINYINT DEFAULT 1 COMMENT '状态: 0禁用 1启用',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
   `is_deleted` TINYINT DEFAULT 0 COMMENT '是否删除: 0否 1是',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -138,6 +141,7 @@ CREATE TABLE IF NOT EXISTS `orders` (
   `pay_time` DATETIME DEFAULT NULL COMMENT '支付时间',
   `status` TINYINT DEFAULT 0 COMMENT '状态: 0待上菜 1上菜中 2待结账 3已完成 4已取消',
   `remark` VARCHAR(500) DEFAULT NULL COMMENT '订单备注',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
   `is_deleted` TINYINT DEFAULT 0 COMMENT '是否删除: 0否 1是',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -162,6 +166,7 @@ CREATE TABLE IF NOT EXISTS `order_item` (
   `price` DECIMAL(10,2) NOT NULL COMMENT '单价(快照)',
   `quantity` INT NOT NULL COMMENT '数量',
   `subtotal` DECIMAL(10,2) NOT NULL COMMENT '小计金额',
+  `discount_amount` DECIMAL(10,2) DEFAULT 0.00 COMMENT '分摊的促销优惠',
   `remark` VARCHAR(200) DEFAULT NULL COMMENT '备注',
   `status` TINYINT DEFAULT 0 COMMENT '状态: 0待制作 1制作中 2已完成',
   `is_paid` TINYINT DEFAULT 0 COMMENT '是否已结账: 0否 1是',
@@ -261,4 +266,31 @@ CREATE TABLE IF NOT EXISTS `inventory_transaction` (
   KEY `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='库存事务记录表';
 
+-- ============================================
+-- 12. 促销活动表 (promotion)
+-- ============================================
+CREATE TABLE IF NOT EXISTS `promotion` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '活动ID',
+  `name` VARCHAR(100) NOT NULL COMMENT '活动名称',
+  `type` TINYINT NOT NULL COMMENT '类型：1折扣 2买N送1 3满减',
+  `dish_id` BIGINT DEFAULT NULL COMMENT '适用菜品ID',
+  `category_id` BIGINT DEFAULT NULL COMMENT '适用分类ID（菜品和分类都为空表示全场）',
+  `percent_off` INT DEFAULT NULL COMMENT '折扣：减免百分比，如20表示八折',
+  `buy_quantity` INT DEFAULT NULL COMMENT '买N送1：N',
+  `threshold_amount` DECIMAL(10,2) DEFAULT NULL COMMENT '满减：门槛金额',
+  `reduce_amount` DECIMAL(10,2) DEFAULT NULL COMMENT '满减：减免金额',
+  `start_time` TIME DEFAULT NULL COMMENT '每日开始时间（欢乐时光）',
+  `end_time` TIME DEFAULT NULL COMMENT '每日结束时间，早于开始时间表示跨零点',
+  `valid_from` DATETIME DEFAULT NULL COMMENT '活动开始时间',
+  `valid_to` DATETIME DEFAULT NULL COMMENT '活动结束时间',
+  `status` TINYINT DEFAULT 1 COMMENT '状态: 0停用 1启用',
+  `is_deleted` TINYINT DEFAULT 0 COMMENT '是否删除: 0否 1是',
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_status` (`status`),
+  KEY `idx_dish_id` (`dish_id`),
+  KEY `idx_category_id` (`category_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='促销活动表';
+
 
@@ -4,19 +4,26 @@ import com.restaurant.auth.dto.LoginRequest;
 import com.restaurant.auth.dto.LoginResponse;
 import com.restaurant.auth.service.AuthService;
 import com.restaurant.common.Result;
+import com.restaurant.utils.IpUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final AuthService authService;
+    private final IpUtil ipUtil;
 
     @PostMapping("/login")
-    public Result<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        return Result.success(authService.login(request));
+    public CompletableFuture<Result<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                          HttpServletRequest httpRequest) {
+        return authService.login(request, ipUtil.getClientIp(httpRequest))
+                .thenApply(Result::success);
     }
 }
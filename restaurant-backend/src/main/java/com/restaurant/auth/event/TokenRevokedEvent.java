@@ -0,0 +1,30 @@
+package com.restaurant.auth.event;
+
+import lombok.Getter;
+
+/**
+ * 用户token撤销事件（禁用或删除用户时发布）
+ * 撤销时间之前签发的token一律失效，收到事件的组件各自清理本节点的缓存和连接。
+ * 开启集群模式时本节点发布的事件由集群中继转发给其他节点，转发到达的事件标记为 remote，不再转发。
+ */
+@Getter
+public class TokenRevokedEvent {
+
+    private final Long userId;
+    private final long revokedAt;   // 撤销时间（秒）
+    private final boolean remote;   // 由其他节点经集群中继转发而来
+
+    private TokenRevokedEvent(Long userId, long revokedAt, boolean remote) {
+        this.userId = userId;
+        this.revokedAt = revokedAt;
+        this.remote = remote;
+    }
+
+    public static TokenRevokedEvent local(Long userId, long revokedAt) {
+        return new TokenRevokedEvent(userId, revokedAt, false);
+    }
+
+    public static TokenRevokedEvent remote(Long userId, long revokedAt) {
+        return new TokenRevokedEvent(userId, revokedAt, true);
+    }
+}
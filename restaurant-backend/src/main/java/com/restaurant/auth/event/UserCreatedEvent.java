@@ -0,0 +1,28 @@
+package com.restaurant.auth.event;
+
+import lombok.Getter;
+
+/**
+ * 新建用户事件
+ * 登录限流在各节点内存中缓存了不存在的用户名，新建用户后各节点据此清除该用户名，新账号立即可以登录。
+ * 开启集群模式时本节点发布的事件由集群中继转发给其他节点，转发到达的事件标记为 remote，不再转发。
+ */
+@Getter
+public class UserCreatedEvent {
+
+    private final String username;
+    private final boolean remote;   // 由其他节点经集群中继转发而来
+
+    private UserCreatedEvent(String username, boolean remote) {
+        this.username = username;
+        this.remote = remote;
+    }
+
+    public static UserCreatedEvent local(String username) {
+        return new UserCreatedEvent(username, false);
+    }
+
+    public static UserCreatedEvent remote(String username) {
+        return new UserCreatedEvent(username, true);
+    }
+}
@@ -7,21 +7,36 @@ import com.restaurant.user.entity.User;
 import com.restaurant.user.mapper.UserMapper;
 import com.restaurant.utils.JwtUtil;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserMapper userMapper;
     private final JwtUtil jwtUtil;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * 登录，密码校验在独立线程池中完成，请求线程不等待 BCrypt
+     */
+    public CompletableFuture<LoginResponse> login(LoginRequest request, String ip) {
+        String username = request.getUsername();
+        loginThrottle.checkAllowed(username, ip);
+
+        if (loginThrottle.isUnknownUser(username)) {
+            loginThrottle.recordFailure(username, ip);
+            throw new BusinessException("用户名或密码错误");
+        }
 
-    public LoginResponse login(LoginRequest request) {
-        User user = userMapper.selectByUsername(request.getUsername());
+        User user = userMapper.selectByUsername(username);
         
         if (user == null) {
+            loginThrottle.rememberUnknownUser(username);
+            loginThrottle.recordFailure(username, ip);
             throw new BusinessException("用户名或密码错误");
         }
         
@@ -29,10 +44,18 @@ public class AuthService {
             throw new BusinessException("账号已被禁用");
         }
         
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            throw new BusinessException("用户名或密码错误");
-        }
-        
+        return passwordVerifier.matches(request.getPassword(), user.getPassword())
+                .thenApply(matched -> {
+                    if (!matched) {
+                        loginThrottle.recordFailure(username, ip);
+                        throw new BusinessException("用户名或密码错误");
+                    }
+                    loginThrottle.recordSuccess(username, ip);
+                    return buildResponse(user);
+                });
+    }
+
+    private LoginResponse buildResponse(User user) {
         String token = jwtUtil.generateToken(user.getId(), user.getUsername());
         
         LoginResponse response = new LoginResponse();
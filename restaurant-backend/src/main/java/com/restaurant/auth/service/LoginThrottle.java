@@ -0,0 +1,200 @@
+package com.restaurant.auth.service;
+
+import com.restaurant.auth.event.UserCreatedEvent;
+import com.restaurant.common.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录限流
+ * - 按IP、按"用户名+IP"统计失败次数，窗口内超过上限后拒绝登录，直到窗口结束
+ * - 按用户名统计时不硬性锁定（否则任何人都能把 admin 锁住），超过上限后改为逐次加倍的短暂等待，
+ *   分散在多个IP上的猜测仍被限速，账号本人最多等待 username-max-delay-seconds
+ * - 缓存不存在的用户名，撞库时重复的用户名不再查库
+ * 失败计数和不存在的用户名都只在本节点内存中：多节点部署时每个节点各自限流，
+ * 攻击者分散到 n 个节点最多得到 n 倍的尝试次数（仍受每次 BCrypt 校验和逐次加倍的等待限制）；
+ * 不存在的用户名缓存只是省去一次查库，未命中时照常查库。它与撤销记录不同，漏掉不会放行任何登录，
+ * 唯一需要跨节点同步的是新建用户：{@link UserCreatedEvent} 经集群中继转发，各节点清除该用户名。
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxFailuresPerUsername;
+    private final int maxFailuresPerUserIp;
+    private final int maxFailuresPerIp;
+    private final long usernameBaseDelayMs;
+    private final long usernameMaxDelayMs;
+    private final long windowMs;
+    private final long unknownUserTtlMs;
+    private final int cacheSize;
+
+    // "u:用户名" / "ui:用户名@地址" / "ip:地址" -> 窗口内失败次数
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    // 不存在的用户名 -> 过期时间
+    private final Map<String, Long> unknownUsers = new ConcurrentHashMap<>();
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder unknownUserHits = new LongAdder();
+
+    public LoginThrottle(@Value("${app.auth.throttle.max-failures-per-username:5}") int maxFailuresPerUsername,
+                         @Value("${app.auth.throttle.max-failures-per-user-ip:5}") int maxFailuresPerUserIp,
+                         @Value("${app.auth.throttle.max-failures-per-ip:20}") int maxFailuresPerIp,
+                         @Value("${app.auth.throttle.username-base-delay-ms:1000}") long usernameBaseDelayMs,
+                         @Value("${app.auth.throttle.username-max-delay-seconds:30}") long usernameMaxDelaySeconds,
+                         @Value("${app.auth.throttle.window-seconds:600}") long windowSeconds,
+                         @Value("${app.auth.throttle.unknown-user-ttl-seconds:300}") long unknownUserTtlSeconds,
+                         @Value("${app.auth.throttle.cache-size:10000}") int cacheSize) {
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxFailuresPerUserIp = maxFailuresPerUserIp;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.usernameBaseDelayMs = usernameBaseDelayMs;
+        this.usernameMaxDelayMs = usernameMaxDelaySeconds * 1000;
+        this.windowMs = windowSeconds * 1000;
+        this.unknownUserTtlMs = unknownUserTtlSeconds * 1000;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * 检查是否允许登录
+     *
+     * @throws BusinessException IP或"用户名+IP"失败次数过多，或该用户名仍在等待时间内
+     */
+    public void checkAllowed(String username, String ip) {
+        long now = System.currentTimeMillis();
+        if (exceeded(ipKey(ip), maxFailuresPerIp, now)
+                || exceeded(userIpKey(username, ip), maxFailuresPerUserIp, now)) {
+            throttled.increment();
+            throw new BusinessException("登录失败次数过多，请稍后再试");
+        }
+        long waitMs = usernameDelayRemaining(username, now);
+        if (waitMs > 0) {
+            throttled.increment();
+            throw new BusinessException("登录失败次数过多，请" + ((waitMs + 999) / 1000) + "秒后再试");
+        }
+    }
+
+    public void recordFailure(String username, String ip) {
+        long now = System.currentTimeMillis();
+        increment(usernameKey(username), now);
+        increment(userIpKey(username, ip), now);
+        increment(ipKey(ip), now);
+    }
+
+    /**
+     * 登录成功后清除该用户名的失败记录，IP的记录保留到窗口结束
+     */
+    public void recordSuccess(String username, String ip) {
+        failures.remove(usernameKey(username));
+        failures.remove(userIpKey(username, ip));
+    }
+
+    public boolean isUnknownUser(String username) {
+        Long expiresAt = unknownUsers.get(username);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            unknownUsers.remove(username, expiresAt);
+            return false;
+        }
+        unknownUserHits.increment();
+        return true;
+    }
+
+    public void rememberUnknownUser(String username) {
+        long now = System.currentTimeMillis();
+        if (unknownUsers.size() >= cacheSize) {
+            unknownUsers.values().removeIf(expiresAt -> expiresAt <= now);
+            if (unknownUsers.size() >= cacheSize) {
+                return;
+            }
+        }
+        unknownUsers.put(username, now + unknownUserTtlMs);
+    }
+
+    /**
+     * 新建用户（本节点或其他节点）时清除缓存，避免刚创建的账号在缓存过期前无法登录
+     */
+    @EventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        unknownUsers.remove(event.getUsername());
+    }
+
+    private boolean exceeded(String key, int max, long now) {
+        Failures f = failures.get(key);
+        return f != null && f.expiresAt > now && f.count >= max;
+    }
+
+    /**
+     * 用户名失败次数超过上限后，距上次失败需等待 base * 2^(超出次数)，最长 usernameMaxDelayMs
+     */
+    private long usernameDelayRemaining(String username, long now) {
+        Failures f = failures.get(usernameKey(username));
+        if (f == null || f.expiresAt <= now || f.count < maxFailuresPerUsername) {
+            return 0;
+        }
+        int shift = Math.min(f.count - maxFailuresPerUsername, 20);
+        long delay = Math.min(usernameMaxDelayMs, usernameBaseDelayMs << shift);
+        return f.lastFailureAt + delay - now;
+    }
+
+    private void increment(String key, long now) {
+        if (failures.size() >= cacheSize && !failures.containsKey(key)) {
+            evict(now);
+        }
+        failures.compute(key, (k, f) -> f == null || f.expiresAt <= now
+                ? new Failures(1, now + windowMs, now)
+                : new Failures(f.count + 1, f.expiresAt, now));
+    }
+
+    /**
+     * 先清理过期记录，仍然满时淘汰最早到期的一批，新的失败始终会被记录
+     */
+    private synchronized void evict(long now) {
+        if (failures.size() < cacheSize) {
+            return;
+        }
+        failures.values().removeIf(f -> f.expiresAt <= now);
+        int excess = failures.size() - cacheSize + Math.max(1, cacheSize / 16);
+        if (excess > 0) {
+            failures.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(failures::remove);
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String userIpKey(String username, String ip) {
+        return "ui:" + username + "@" + ip;
+    }
+
+    private static String ipKey(String ip) {
+        return "ip:" + ip;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedKeys", failures.size());
+        stats.put("throttled", throttled.sum());
+        stats.put("unknownUsers", unknownUsers.size());
+        stats.put("unknownUserHits", unknownUserHits.sum());
+        return stats;
+    }
+
+    private record Failures(int count, long expiresAt, long lastFailureAt) {
+    }
+}
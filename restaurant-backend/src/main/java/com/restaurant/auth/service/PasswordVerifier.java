@@ -0,0 +1,77 @@
+package com.restaurant.auth.service;
+
+import com.restaurant.common.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码校验
+ * BCrypt 校验一次要几十毫秒，放在独立的有界线程池中执行，
+ * 交接班或撞库时登录请求再多也不会占满 Tomcat 线程，队列满时直接拒绝
+ */
+@Slf4j
+@Component
+public class PasswordVerifier {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordVerifier(BCryptPasswordEncoder passwordEncoder,
+                            @Value("${app.auth.bcrypt.threads:2}") int threads,
+                            @Value("${app.auth.bcrypt.queue-capacity:50}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "bcrypt-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 异步校验密码
+     *
+     * @throws BusinessException 校验队列已满
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                verified.increment();
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("密码校验队列已满，拒绝登录请求");
+            throw new BusinessException("登录请求过多，请稍后重试");
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("verified", verified.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+package com.restaurant.common;
+
+import com.restaurant.common.exception.BusinessException;
+
+import java.math.BigDecimal;
+
+/**
+ * 金额，以分为单位保存在 long 中
+ * 数据库中金额均为 DECIMAL(10,2)，计价、汇总和结账在分上做整数运算，
+ * 只在读写实体（BigDecimal）时转换，计算过程不再为每次乘法和累加创建 BigDecimal。
+ * 运算溢出时抛出 ArithmeticException，不会静默回绕。
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    /** 抹零单位：角、元、十元 */
+    public static final long JIAO = 10;
+    public static final long YUAN = 100;
+    public static final long TEN_YUAN = 1000;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * 从 BigDecimal 转换，超过两位小数时拒绝而不是四舍五入，避免金额被悄悄改动
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        try {
+            return ofCents(amount.movePointRight(2).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new BusinessException("金额格式错误: " + amount.toPlainString());
+        }
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(int quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    /**
+     * 抹零：向下取整到 unit 分的整数倍（如 unit 为 {@link #TEN_YUAN} 时 164.50 → 160.00）
+     * 只舍不入，抹零后的金额不会超过原金额；负数金额朝零方向舍去
+     */
+    public Money floorTo(long unit) {
+        if (unit <= 0) {
+            throw new IllegalArgumentException("抹零单位必须大于0");
+        }
+        return ofCents(cents - cents % unit);
+    }
+
+    /**
+     * 结账优惠：应付 - 实付，要求 0 ≤ 实付 ≤ 应付
+     * 按角、元、十元抹零（{@link #floorTo}）和收银员手工让利都记入优惠金额
+     *
+     * @return 优惠金额（应付 - 实付）
+     */
+    public Money discountTo(Money paid) {
+        if (paid.cents < 0 || paid.greaterThan(this)) {
+            throw new BusinessException("实付金额必须在 ¥0 到应付金额 ¥" + this + " 之间");
+        }
+        return minus(paid);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean greaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,33 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.datasource.WorkloadRoutingDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/datasource")
+@RequiredArgsConstructor
+public class DataSourceController {
+
+    private final WorkloadRoutingDataSource routingDataSource;
+
+    /**
+     * 各业务连接池状态和等待时间；开启读写分离时附带主从路由统计
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pools", routingDataSource.getPoolStats());
+        Map<String, Object> routing = routingDataSource.getRoutingStats();
+        if (routing != null) {
+            stats.put("routing", routing);
+        }
+        return Result.success(stats);
+    }
+}
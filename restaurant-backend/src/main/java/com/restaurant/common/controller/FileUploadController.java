@@ -1,26 +1,29 @@
 package com.restaurant.common.controller;
 
 import com.restaurant.common.Result;
+import com.restaurant.common.image.HotFileCache;
+import com.restaurant.common.image.ImageRenditionService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/upload")
+@RequiredArgsConstructor
 public class FileUploadController {
 
-    @Value("${app.upload.path:uploads/}")
-    private String uploadPath;
+    private final ImageRenditionService imageRenditionService;
+    private final HotFileCache hotFileCache;
 
+    /**
+     * 上传图片，返回原图地址；缩略图等规格在后台生成
+     */
     @PostMapping("/image")
     public Result<String> uploadImage(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
@@ -28,29 +31,21 @@ public class FileUploadController {
         }
 
         try {
-            // 创建上传目录
-            Path uploadDir = Paths.get(uploadPath);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            // 生成文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null ? 
-                originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-            String filename = UUID.randomUUID() + extension;
-
-            // 保存文件
-            Path filePath = uploadDir.resolve(filename);
-            file.transferTo(filePath.toFile());
-
-            // 返回访问路径
-            String url = "/uploads/" + filename;
-            return Result.success(url);
-
+            return Result.success(imageRenditionService.store(file));
         } catch (IOException e) {
             log.error("文件上传失败", e);
             return Result.error("文件上传失败");
         }
     }
+
+    /**
+     * 图片处理和访问缓存统计
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("renditions", imageRenditionService.getStats());
+        stats.put("cache", hotFileCache.getStats());
+        return Result.success(stats);
+    }
 }
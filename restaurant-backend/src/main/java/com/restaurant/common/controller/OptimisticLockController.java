@@ -0,0 +1,32 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.optimistic.RetryOnConflictInterceptor;
+import com.restaurant.common.optimistic.VersionConflictDetector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/optimistic-lock")
+@RequiredArgsConstructor
+public class OptimisticLockController {
+
+    private final VersionConflictDetector versionConflictDetector;
+    private final RetryOnConflictInterceptor retryOnConflictInterceptor;
+
+    /**
+     * 乐观锁统计：各实体的带版本更新次数和冲突率，以及冲突重试的结果
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entities", versionConflictDetector.getStats());
+        stats.put("retry", retryOnConflictInterceptor.getStats());
+        return Result.success(stats);
+    }
+}
@@ -0,0 +1,36 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.ratelimit.AdaptiveConcurrencyLimiter;
+import com.restaurant.common.ratelimit.RateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rate-limit")
+@RequiredArgsConstructor
+public class RateLimitController {
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * 公开接口限流统计
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(rateLimiter.getStats());
+    }
+
+    /**
+     * 自适应并发限制状态：当前上限、并发数、响应时间和各优先级的拒绝次数
+     */
+    @GetMapping("/concurrency")
+    public Result<Map<String, Object>> concurrency() {
+        return Result.success(concurrencyLimiter.getStats());
+    }
+}
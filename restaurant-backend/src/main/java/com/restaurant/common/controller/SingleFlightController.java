@@ -0,0 +1,26 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.singleflight.SingleFlightInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/single-flight")
+@RequiredArgsConstructor
+public class SingleFlightController {
+
+    private final SingleFlightInterceptor singleFlightInterceptor;
+
+    /**
+     * 调用合并统计：实际执行次数、合并等待次数、结果复用次数
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(singleFlightInterceptor.getStats());
+    }
+}
@@ -0,0 +1,26 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.mailbox.TableMailbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/table-mailbox")
+@RequiredArgsConstructor
+public class TableMailboxController {
+
+    private final TableMailbox tableMailbox;
+
+    /**
+     * 桌台信箱统计：投递到分片执行次数、直接执行次数、排队数、拒绝次数
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(tableMailbox.getStats());
+    }
+}
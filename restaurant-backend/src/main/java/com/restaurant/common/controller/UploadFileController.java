@@ -0,0 +1,223 @@
+package com.restaurant.common.controller;
+
+import com.restaurant.common.image.HotFileCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 上传文件访问 /uploads/**
+ * - 内容哈希命名的文件内容永不变化，返回一年的 immutable 缓存，客户端不再回源
+ * - 强 ETag 与 If-None-Match，支持单段 Range 请求
+ * - Tomcat 支持时通过 sendfile 零拷贝发送，热点小图直接从内存返回
+ */
+@Slf4j
+@RestController
+public class UploadFileController {
+
+    private static final Pattern SAFE_FILENAME = Pattern.compile("^[A-Za-z0-9_-][A-Za-z0-9._-]*$");
+    private static final Pattern HASHED_FILENAME = Pattern.compile(
+            "^([0-9a-f]{32}(?:-(?:thumb|list|detail))?)\\.[a-z]+$");
+
+    private static final String IMMUTABLE_CACHE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE = "public, max-age=3600";
+
+    // Tomcat sendfile 相关的请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Range 超出文件范围
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final Path uploadDir;
+    private final HotFileCache hotFileCache;
+
+    public UploadFileController(@Value("${app.upload.path:uploads/}") String uploadPath,
+                                HotFileCache hotFileCache) {
+        this.uploadDir = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.hotFileCache = hotFileCache;
+    }
+
+    @RequestMapping(value = "/uploads/{filename:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String filename,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        // 错误状态直接返回，不用 sendError：转发到 /error 会被安全配置拦截成 403
+        Path file = uploadDir.resolve(filename).normalize();
+        if (!SAFE_FILENAME.matcher(filename).matches() || !file.startsWith(uploadDir)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Matcher hashed = HASHED_FILENAME.matcher(filename);
+        boolean immutable = hashed.matches();
+        // 哈希命名时内容由文件名决定；其余文件用修改时间和大小区分版本
+        String etag = "\"" + (immutable ? hashed.group(1) : Long.toHexString(lastModified))
+                + "-" + Long.toHexString(length) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE_CACHE : REVALIDATE_CACHE);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        byte[] cached = immutable && hotFileCache.accepts(length) ? loadCached(filename, file) : null;
+        if (cached != null) {
+            response.getOutputStream().write(cached, (int) start, (int) count);
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交给 Tomcat 在响应提交后直接由内核发送文件
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+        } else {
+            transfer(file, start, count, response.getOutputStream());
+        }
+    }
+
+    private byte[] loadCached(String filename, Path file) throws IOException {
+        byte[] content = hotFileCache.get(filename);
+        if (content == null) {
+            content = Files.readAllBytes(file);
+            hotFileCache.put(filename, content);
+        }
+        return content;
+    }
+
+    private void transfer(Path file, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * 解析单段 Range 请求头
+     *
+     * @return {起始, 结束(含)}；无法解析或多段请求返回 null（按完整文件返回）；范围无效返回 UNSATISFIABLE
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                String tail = spec.substring(dash + 1);
+                end = tail.isEmpty() ? length - 1 : Math.min(Long.parseLong(tail), length - 1);
+            }
+            if (start >= length || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
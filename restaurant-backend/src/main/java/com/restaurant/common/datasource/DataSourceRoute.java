@@ -0,0 +1,71 @@
+package com.restaurant.common.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程的数据源路由偏好
+ * - 业务类型：由 {@link Workload} 拦截器或 {@link #call} 设置，决定使用哪个主库连接池
+ * - 从库偏好：由 {@link ReplicaRead} 拦截器设置
+ */
+public final class DataSourceRoute {
+
+    public static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> PREFER_REPLICA = new ThreadLocal<>();
+    private static final ThreadLocal<WorkloadType> WORKLOAD = new ThreadLocal<>();
+
+    private DataSourceRoute() {
+    }
+
+    /**
+     * 以指定业务类型执行，用于线程池任务等无法通过注解拦截的场景
+     */
+    public static <T> T call(WorkloadType workload, Supplier<T> action) {
+        WorkloadType previous = useWorkload(workload);
+        try {
+            return action.get();
+        } finally {
+            restoreWorkload(previous);
+        }
+    }
+
+    /**
+     * @return 之前的偏好，调用结束后用 {@link #restore} 恢复
+     */
+    static Boolean preferReplica() {
+        Boolean previous = PREFER_REPLICA.get();
+        PREFER_REPLICA.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restore(Boolean previous) {
+        if (previous == null) {
+            PREFER_REPLICA.remove();
+        } else {
+            PREFER_REPLICA.set(previous);
+        }
+    }
+
+    static boolean isReplicaPreferred() {
+        return Boolean.TRUE.equals(PREFER_REPLICA.get());
+    }
+
+    static WorkloadType useWorkload(WorkloadType workload) {
+        WorkloadType previous = WORKLOAD.get();
+        WORKLOAD.set(workload);
+        return previous;
+    }
+
+    static void restoreWorkload(WorkloadType previous) {
+        if (previous == null) {
+            WORKLOAD.remove();
+        } else {
+            WORKLOAD.set(previous);
+        }
+    }
+
+    public static WorkloadType currentWorkload() {
+        WorkloadType workload = WORKLOAD.get();
+        return workload != null ? workload : WorkloadType.OLTP;
+    }
+}
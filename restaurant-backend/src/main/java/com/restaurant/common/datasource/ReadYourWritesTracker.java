@@ -0,0 +1,66 @@
+package com.restaurant.common.datasource;
+
+import com.restaurant.utils.IpUtil;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读己之写：记录每个会话最后一次写库的时间，窗口期内该会话的只读查询仍走主库
+ * 会话按登录用户区分，未登录的顾客端按IP区分；后台线程没有会话，不做记录。
+ */
+public class ReadYourWritesTracker {
+
+    private static final int MAX_SESSIONS = 10000;
+
+    private final long stickyMs;
+    private final IpUtil ipUtil;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long stickyMs, IpUtil ipUtil) {
+        this.stickyMs = stickyMs;
+        this.ipUtil = ipUtil;
+    }
+
+    public void markWrite() {
+        String session = currentSession();
+        if (session == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (lastWrites.size() >= MAX_SESSIONS) {
+            lastWrites.values().removeIf(at -> now - at > stickyMs);
+        }
+        lastWrites.put(session, now);
+    }
+
+    public boolean recentlyWrote() {
+        String session = currentSession();
+        if (session == null) {
+            return false;
+        }
+        Long at = lastWrites.get(session);
+        return at != null && System.currentTimeMillis() - at <= stickyMs;
+    }
+
+    public int size() {
+        return lastWrites.size();
+    }
+
+    private String currentSession() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Long userId) {
+            return "u:" + userId;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return "ip:" + ipUtil.getClientIp(servletAttributes.getRequest());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.restaurant.common.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时检查从库复制延迟，超过上限、复制中断或检查失败时判定从库不可用
+ * 查询没有返回行时（不是复制从库，如本地测试库）视为没有延迟。
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final long maxLagSeconds;
+
+    private volatile boolean healthy = true;
+    private volatile long lagSeconds = 0;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replica-lag-monitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, String lagColumn,
+                             long maxLagSeconds, long checkIntervalMs) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLagSeconds = maxLagSeconds;
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    void check() {
+        boolean wasHealthy = healthy;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                lagSeconds = 0;
+                healthy = true;
+            } else {
+                long lag = rs.getLong(lagColumn);
+                if (rs.wasNull()) {
+                    // 复制线程已停止
+                    lagSeconds = -1;
+                    healthy = false;
+                } else {
+                    lagSeconds = lag;
+                    healthy = lag <= maxLagSeconds;
+                }
+            }
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            healthy = false;
+            if (wasHealthy) {
+                log.warn("从库延迟检查失败: {}", e.getMessage());
+            }
+        }
+        if (wasHealthy != healthy) {
+            log.warn("从库{}，延迟: {} 秒", healthy ? "恢复，只读查询重新走从库" : "不可用，只读查询改走主库", lagSeconds);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package com.restaurant.common.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记只读查询，开启读写分离时走从库
+ * 与 {@code @Transactional(readOnly = true)} 效果相同，用于不需要事务的列表查询。
+ * 已在读写事务中调用时沿用事务的主库连接；当前会话刚写过数据或从库延迟过大时也回到主库。
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+}
@@ -0,0 +1,20 @@
+package com.restaurant.common.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * {@link ReplicaRead} 方法执行期间偏好从库，支持嵌套调用
+ */
+public class ReplicaReadInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Boolean previous = DataSourceRoute.preferReplica();
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceRoute.restore(previous);
+        }
+    }
+}
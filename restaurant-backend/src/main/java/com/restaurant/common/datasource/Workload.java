@@ -0,0 +1,19 @@
+package com.restaurant.common.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指定方法（或类中所有方法）使用哪个业务连接池，未标注的默认为 {@link WorkloadType#OLTP}
+ * 已在事务中调用时沿用事务已有的连接。
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Workload {
+
+    WorkloadType value();
+}
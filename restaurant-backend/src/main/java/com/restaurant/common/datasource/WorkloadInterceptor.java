@@ -0,0 +1,33 @@
+package com.restaurant.common.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link Workload} 方法执行期间切换到对应的连接池，方法上的标注优先于类上的
+ */
+public class WorkloadInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+        Workload workload = AnnotatedElementUtils.findMergedAnnotation(method, Workload.class);
+        if (workload == null && targetClass != null) {
+            workload = AnnotatedElementUtils.findMergedAnnotation(targetClass, Workload.class);
+        }
+        if (workload == null) {
+            return invocation.proceed();
+        }
+        WorkloadType previous = DataSourceRoute.useWorkload(workload.value());
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceRoute.restoreWorkload(previous);
+        }
+    }
+}
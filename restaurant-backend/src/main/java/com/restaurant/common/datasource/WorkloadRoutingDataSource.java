@@ -0,0 +1,185 @@
+package com.restaurant.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按业务类型和读写路由的数据源
+ * - 业务隔离：点餐、后厨、报表各用一个主库连接池，池大小即该业务的并发上限，
+ *   池满时等待超过该池的 connection-timeout 立即失败，慢报表不会占满点餐的连接
+ * - 读写分离（配置了从库时）：只读事务（@Transactional(readOnly = true)）和 {@link ReplicaRead} 方法走从库；
+ *   当前会话在粘滞窗口内写过数据、或从库延迟过大时，只读查询回到该业务的主库连接池
+ * 外层需要包一层 LazyConnectionDataSourceProxy，使路由在第一条语句执行时才决定，
+ * 此时事务的只读标记和业务类型已经设置好。
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<String, HikariDataSource> pools;
+    private final Map<String, PoolMetrics> metrics = new LinkedHashMap<>();
+    private final HikariDataSource replica;
+    private final ReadYourWritesTracker tracker;
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder stickyFallbacks = new LongAdder();
+    private final LongAdder lagFallbacks = new LongAdder();
+
+    /**
+     * @param replica 未配置从库时为 null，tracker 和 lagMonitor 同样为 null
+     */
+    public WorkloadRoutingDataSource(Map<WorkloadType, HikariDataSource> primaryPools, HikariDataSource replica,
+                                     ReadYourWritesTracker tracker, ReplicaLagMonitor lagMonitor) {
+        Map<String, HikariDataSource> byName = new LinkedHashMap<>();
+        for (WorkloadType workload : WorkloadType.values()) {
+            byName.put(workload.getPoolName(), primaryPools.get(workload));
+        }
+        if (replica != null) {
+            byName.put(DataSourceRoute.REPLICA, replica);
+        }
+        byName.keySet().forEach(name -> metrics.put(name, new PoolMetrics()));
+        this.pools = Map.copyOf(byName);
+        this.replica = replica;
+        this.tracker = tracker;
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(new HashMap<>(byName));
+        setDefaultTargetDataSource(byName.get(WorkloadType.OLTP.getPoolName()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String key = (String) determineCurrentLookupKey();
+        PoolMetrics poolMetrics = metrics.get(key);
+        long start = System.nanoTime();
+        try {
+            Connection connection = pools.get(key).getConnection();
+            poolMetrics.acquired(System.nanoTime() - start);
+            return connection;
+        } catch (SQLTransientConnectionException e) {
+            // 等待超过 connection-timeout 仍拿不到连接
+            poolMetrics.timedOut(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return pools.get((String) determineCurrentLookupKey()).getConnection(username, password);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String primary = DataSourceRoute.currentWorkload().getPoolName();
+        if (replica == null) {
+            return primary;
+        }
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || (!TransactionSynchronizationManager.isActualTransactionActive() && DataSourceRoute.isReplicaPreferred());
+        if (!readOnly) {
+            primaryRoutes.increment();
+            return primary;
+        }
+        if (tracker.recentlyWrote()) {
+            stickyFallbacks.increment();
+            primaryRoutes.increment();
+            return primary;
+        }
+        if (!lagMonitor.isHealthy()) {
+            lagFallbacks.increment();
+            primaryRoutes.increment();
+            return primary;
+        }
+        replicaRoutes.increment();
+        return DataSourceRoute.REPLICA;
+    }
+
+    /**
+     * 读写分离统计，未配置从库时返回 null
+     */
+    public Map<String, Object> getRoutingStats() {
+        if (replica == null) {
+            return null;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("primaryRoutes", primaryRoutes.sum());
+        stats.put("replicaRoutes", replicaRoutes.sum());
+        stats.put("stickyFallbacks", stickyFallbacks.sum());
+        stats.put("lagFallbacks", lagFallbacks.sum());
+        stats.put("replicaHealthy", lagMonitor.isHealthy());
+        stats.put("replicaLagSeconds", lagMonitor.getLagSeconds());
+        stats.put("stickySessions", tracker.size());
+        return stats;
+    }
+
+    /**
+     * 各连接池状态和取连接的等待时间
+     */
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        metrics.forEach((name, poolMetrics) -> {
+            HikariDataSource pool = pools.get(name);
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            Map<String, Object> poolStats = new LinkedHashMap<>();
+            poolStats.put("maxSize", pool.getMaximumPoolSize());
+            poolStats.put("connectionTimeoutMs", pool.getConnectionTimeout());
+            poolStats.put("active", bean != null ? bean.getActiveConnections() : 0);
+            poolStats.put("idle", bean != null ? bean.getIdleConnections() : 0);
+            poolStats.put("waiting", bean != null ? bean.getThreadsAwaitingConnection() : 0);
+            poolMetrics.fill(poolStats);
+            stats.put(name, poolStats);
+        });
+        return stats;
+    }
+
+    public void close() {
+        if (lagMonitor != null) {
+            lagMonitor.shutdown();
+        }
+        pools.values().forEach(HikariDataSource::close);
+    }
+
+    /**
+     * 取连接的次数、超时次数和等待时间
+     */
+    private static class PoolMetrics {
+        final LongAdder acquired = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        void acquired(long nanos) {
+            acquired.increment();
+            record(nanos);
+        }
+
+        void timedOut(long nanos) {
+            timeouts.increment();
+            record(nanos);
+        }
+
+        private void record(long nanos) {
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void fill(Map<String, Object> stats) {
+            long count = acquired.sum() + timeouts.sum();
+            stats.put("acquired", acquired.sum());
+            stats.put("timeouts", timeouts.sum());
+            stats.put("avgWaitMs", count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / count / 1000);
+            stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.restaurant.common.datasource;
+
+/**
+ * 数据库访问的业务类型，每种类型使用独立的主库连接池
+ */
+public enum WorkloadType {
+
+    OLTP("oltp"),       // 点餐、加菜、结账等前台业务（默认）
+    KITCHEN("kitchen"), // 后厨出菜状态更新
+    REPORT("report");   // 报表与导出
+
+    private final String poolName;
+
+    WorkloadType(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+}
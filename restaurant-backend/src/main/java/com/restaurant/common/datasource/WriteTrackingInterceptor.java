@@ -0,0 +1,27 @@
+package com.restaurant.common.datasource;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * 拦截 MyBatis 的 INSERT/UPDATE/DELETE，记录当前会话的写入时间
+ */
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class WriteTrackingInterceptor implements Interceptor {
+
+    private final ReadYourWritesTracker tracker;
+
+    public WriteTrackingInterceptor(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        tracker.markWrite();
+        return invocation.proceed();
+    }
+}
@@ -2,6 +2,11 @@ package com.restaurant.common.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import com.restaurant.common.Result;
+import com.restaurant.common.mailbox.TableMailboxFullException;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -23,6 +28,33 @@ public class GlobalExceptionHandler {
         return Result.error(message);
     }
 
+    /**
+     * 乐观锁冲突重试后仍未成功：数据正被其他操作频繁修改
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public Result<Void> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        log.warn("乐观锁冲突: {}", e.getMessage());
+        return Result.error("数据已被其他操作修改，请刷新后重试");
+    }
+
+    /**
+     * 桌台信箱分片队列已满或等待超时：暂时过载，提示稍后重试
+     */
+    @ExceptionHandler(TableMailboxFullException.class)
+    public Result<Void> handleTableMailboxFullException(TableMailboxFullException e) {
+        log.warn("桌台操作排队已满或超时: {}", e.getMessage());
+        return Result.error("系统繁忙，请稍后重试");
+    }
+
+    /**
+     * 连接池已满、等待超时等暂时性数据库异常：快速失败，不打印堆栈，避免高峰期日志刷屏
+     */
+    @ExceptionHandler({TransientDataAccessException.class, CannotGetJdbcConnectionException.class})
+    public Result<Void> handleTransientDataAccessException(NestedRuntimeException e) {
+        log.warn("数据库暂时不可用: {}", e.getMostSpecificCause().getMessage());
+        return Result.error("系统繁忙，请稍后重试");
+    }
+
     @ExceptionHandler(Exception.class)
     public Result<Void> handleException(Exception e) {
         log.error("系统异常: ", e);
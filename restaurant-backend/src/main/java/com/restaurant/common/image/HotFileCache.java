@@ -0,0 +1,74 @@
+package com.restaurant.common.image;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点小图片的内存缓存（LRU，按总字节数限制）
+ * 只缓存内容哈希命名的文件，内容不会变化，不需要失效处理
+ */
+@Component
+public class HotFileCache {
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final LinkedHashMap<String, byte[]> files = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public HotFileCache(@Value("${app.upload.cache.max-bytes:33554432}") long maxBytes,
+                        @Value("${app.upload.cache.max-file-bytes:131072}") long maxFileBytes) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * 文件大小是否适合放入缓存，max-bytes 为 0 时关闭缓存
+     */
+    public boolean accepts(long length) {
+        return maxBytes > 0 && length <= maxFileBytes && length <= maxBytes;
+    }
+
+    public synchronized byte[] get(String filename) {
+        byte[] content = files.get(filename);
+        if (content != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return content;
+    }
+
+    public synchronized void put(String filename, byte[] content) {
+        if (!accepts(content.length)) {
+            return;
+        }
+        byte[] previous = files.put(filename, content);
+        totalBytes += content.length - (previous != null ? previous.length : 0);
+
+        // 超出总大小时按最久未访问的顺序淘汰
+        Iterator<Map.Entry<String, byte[]>> iterator = files.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("files", files.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+}
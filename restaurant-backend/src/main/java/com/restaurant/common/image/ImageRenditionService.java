@@ -0,0 +1,380 @@
+package com.restaurant.common.image;
+
+import com.restaurant.common.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 菜品图片处理
+ * - 上传时按内容哈希命名保存原图，相同图片只存一份，接口立即返回
+ * - 在有界线程池中生成缩略图、列表图、详情图三种规格（{哈希}-{规格}.jpg）
+ * - 查询时按客户端需要的规格返回地址，规格图未生成时返回原图并补做处理
+ * - 原图路径和处理失败（格式无法解码、尺寸过大、原图缺失）的图片记在内存中，
+ *   之后的查询直接返回原图，不再扫描目录或重复提交处理；重新上传同一图片时清除失败记录
+ */
+@Slf4j
+@Service
+public class ImageRenditionService {
+
+    private static final String URL_PREFIX = "/uploads/";
+    private static final Pattern HASHED_URL = Pattern.compile(
+            "^/uploads/([0-9a-f]{32})(?:-(?:thumb|list|detail))?\\.[a-z]+$");
+
+    // 超过该像素数的图片不做处理，防止解码超大图片耗尽内存
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private final Path uploadDir;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+
+    // 正在处理的图片哈希，避免重复提交
+    private final Set<String> processing = ConcurrentHashMap.newKeySet();
+    // 已确认存在的规格图 "哈希-规格"
+    private final Set<String> readyRenditions = ConcurrentHashMap.newKeySet();
+    // 哈希 -> 原图路径
+    private final Map<String, Path> originals = new ConcurrentHashMap<>();
+    // 无法生成规格图的图片哈希
+    private final Set<String> unrenderable = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder uploaded = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ImageRenditionService(@Value("${app.upload.path:uploads/}") String uploadPath,
+                                 @Value("${app.upload.image.jpeg-quality:0.82}") float jpegQuality,
+                                 @Value("${app.upload.image.threads:2}") int threads,
+                                 @Value("${app.upload.image.queue-capacity:100}") int queueCapacity) {
+        this.uploadDir = Paths.get(uploadPath);
+        this.jpegQuality = jpegQuality;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 保存上传的图片，返回原图访问地址，规格图异步生成
+     */
+    public String store(MultipartFile file) throws IOException {
+        byte[] bytes = file.getBytes();
+        String extension = detectExtension(bytes);
+        if (extension == null) {
+            throw new BusinessException("不支持的图片格式");
+        }
+
+        String hash = hash(bytes);
+        String filename = hash + "." + extension;
+        Path target = uploadDir.resolve(filename);
+        if (Files.exists(target)) {
+            deduplicated.increment();
+        } else {
+            Files.createDirectories(uploadDir);
+            writeAtomically(target, bytes);
+            uploaded.increment();
+            unrenderable.remove(hash);
+        }
+
+        originals.put(hash, target);
+        submit(hash, target);
+        return URL_PREFIX + filename;
+    }
+
+    /**
+     * 返回指定规格的图片地址
+     * 非本系统上传的图片原样返回；规格图未生成时返回原图，并安排生成
+     */
+    public String resolve(String url, ImageSize size) {
+        if (url == null || size == null) {
+            return url;
+        }
+        Matcher matcher = HASHED_URL.matcher(url);
+        if (!matcher.matches()) {
+            return url;
+        }
+
+        String hash = matcher.group(1);
+        String key = hash + "-" + size.getCode();
+        if (readyRenditions.contains(key)) {
+            return URL_PREFIX + key + ".jpg";
+        }
+        Path original = originals.get(hash);
+        if (unrenderable.contains(hash) || processing.contains(hash)) {
+            // 无法生成或正在生成，直接返回原图，不访问磁盘
+            return original != null ? URL_PREFIX + original.getFileName() : url;
+        }
+        if (Files.exists(renditionPath(hash, size))) {
+            readyRenditions.add(key);
+            return URL_PREFIX + key + ".jpg";
+        }
+
+        if (original == null) {
+            original = findOriginal(hash);
+            if (original == null) {
+                unrenderable.add(hash);
+                return url;
+            }
+            originals.put(hash, original);
+        }
+        submit(hash, original);
+        return URL_PREFIX + original.getFileName();
+    }
+
+    private void submit(String hash, Path original) {
+        if (allRenditionsReady(hash) || !processing.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(hash, original);
+                } finally {
+                    processing.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 队列满时放弃本次处理，之后查询到该图片时会再次安排
+            processing.remove(hash);
+            rejected.increment();
+            log.warn("图片处理队列已满，暂不生成规格图: {}", hash);
+        }
+    }
+
+    private void process(String hash, Path original) {
+        try {
+            BufferedImage source = decode(original);
+            if (source == null) {
+                failed.increment();
+                unrenderable.add(hash);
+                return;
+            }
+            // 从大到小依次缩放，小规格基于上一级结果生成，减少计算量
+            BufferedImage current = source;
+            for (int i = ImageSize.values().length - 1; i >= 0; i--) {
+                ImageSize size = ImageSize.values()[i];
+                current = scale(current, size.getMaxEdge());
+                writeJpeg(current, renditionPath(hash, size));
+                readyRenditions.add(hash + "-" + size.getCode());
+            }
+            processed.increment();
+            log.debug("图片规格生成完成: {}", hash);
+        } catch (Exception e) {
+            failed.increment();
+            unrenderable.add(hash);
+            log.error("图片处理失败: {}", original, e);
+        }
+    }
+
+    private BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    log.warn("图片尺寸过大，不生成规格图: {}", original);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比缩放到长边不超过 maxEdge，不放大
+     * 同时转换为不带透明通道的 RGB（透明部分填充白色），以便保存为 JPEG
+     */
+    private BufferedImage scale(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        // 缩小超过一半时分步减半，避免双线性插值一次缩放过多产生锯齿
+        BufferedImage current = source;
+        int w = width;
+        int h = height;
+        do {
+            if (w / 2 >= targetWidth && h / 2 >= targetHeight) {
+                w /= 2;
+                h /= 2;
+            } else {
+                w = targetWidth;
+                h = targetHeight;
+            }
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = tempPath(target);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path temp = tempPath(target);
+        Files.write(temp, bytes);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 先写临时文件再改名，访问方不会读到写了一半的图片
+     * （不用 createTempFile，它创建的文件权限为 600，Nginx 等直接读目录时无法访问）
+     */
+    private Path tempPath(Path target) {
+        return target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    /**
+     * 根据文件内容识别图片格式，不信任文件名和 Content-Type
+     */
+    private String detectExtension(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                return switch (format) {
+                    case "jpeg", "jpg" -> "jpg";
+                    case "png", "gif", "bmp" -> format;
+                    default -> null;
+                };
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path findOriginal(String hash) {
+        if (!Files.isDirectory(uploadDir)) {
+            return null;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(uploadDir, hash + ".*")) {
+            Iterator<Path> iterator = stream.iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean allRenditionsReady(String hash) {
+        for (ImageSize size : ImageSize.values()) {
+            String key = hash + "-" + size.getCode();
+            if (!readyRenditions.contains(key)) {
+                if (!Files.exists(renditionPath(hash, size))) {
+                    return false;
+                }
+                readyRenditions.add(key);
+            }
+        }
+        return true;
+    }
+
+    private Path renditionPath(String hash, ImageSize size) {
+        return uploadDir.resolve(hash + "-" + size.getCode() + ".jpg");
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("uploaded", uploaded.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("processed", processed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("unrenderable", unrenderable.size());
+        stats.put("queued", executor.getQueue().size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
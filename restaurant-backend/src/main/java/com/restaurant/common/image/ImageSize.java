@@ -0,0 +1,42 @@
+package com.restaurant.common.image;
+
+/**
+ * 图片规格，长边不超过 maxEdge 像素
+ */
+public enum ImageSize {
+
+    THUMB("thumb", 160),     // 购物车、订单列表
+    LIST("list", 480),       // 菜单列表
+    DETAIL("detail", 1080);  // 菜品详情
+
+    private final String code;
+    private final int maxEdge;
+
+    ImageSize(String code, int maxEdge) {
+        this.code = code;
+        this.maxEdge = maxEdge;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    /**
+     * 按编码查找规格，无法识别时返回 null（即使用原图）
+     */
+    public static ImageSize of(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (ImageSize size : values()) {
+            if (size.code.equalsIgnoreCase(code)) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.restaurant.common.mailbox;
+
+/**
+ * 由订单、订单明细查找所属桌台，查不到时返回 null
+ */
+public interface TableKeyResolver {
+
+    Long tableOfOrder(Long orderId);
+
+    Long tableOfOrderItem(Long itemId);
+}
@@ -0,0 +1,209 @@
+package com.restaurant.common.mailbox;
+
+import com.restaurant.common.datasource.DataSourceRoute;
+import com.restaurant.common.datasource.WorkloadType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 桌台信箱：按桌台ID分片，每个分片一个线程依次处理投递给它的操作。
+ * 同一桌台的操作总落在同一分片上，读-改-写（加菜累计金额、结账核对未付金额、清台）不会互相交错，
+ * 也不会在行锁上排队占着连接等待；不同桌台分散在各分片上并行执行。
+ * 只保证本节点内串行，多节点部署时仍需依靠数据库层面的并发控制。
+ * 只有当前分片线程本身负责目标桌台时才直接执行；在其他分片上或已开启的事务中调用会绕过串行，直接拒绝。
+ * 操作在分片队列中最多排队 wait-timeout-ms，超时撤销并按分片过载处理；已开始执行的操作一定等到结果，
+ * 不会出现调用方收到"系统繁忙"而操作仍在后台提交的情况。
+ */
+@Slf4j
+@Component
+public class TableMailbox {
+
+    /** 当前线程所属的分片，非分片线程为 null */
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final TableKeyResolver resolver;
+    private final ThreadPoolExecutor[] shards;
+    private final long waitTimeoutMs;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder misrouted = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public TableMailbox(TableKeyResolver resolver,
+                        @Value("${app.table-mailbox.shards:16}") int shardCount,
+                        @Value("${app.table-mailbox.queue-capacity:1000}") int queueCapacity,
+                        @Value("${app.table-mailbox.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.resolver = resolver;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.shards = new ThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> new Thread(() -> {
+                        CURRENT_SHARD.set(shard);
+                        r.run();
+                    }, "table-mailbox-" + shard),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * 在桌台所在分片上执行并等待结果，异常原样抛给调用方
+     *
+     * @throws TableMailboxFullException 分片队列已满，或排队超过 wait-timeout-ms 仍未开始执行
+     */
+    public Object execute(TableSerial.Source source, Object key, MethodInvocation invocation) throws Throwable {
+        Long tableId = resolveTable(source, key);
+        if (tableId == null) {
+            // 订单不存在等情况交给业务方法自己报错
+            unresolved.increment();
+            return invocation.proceed();
+        }
+        int shard = Math.floorMod(Long.hashCode(tableId), shards.length);
+        Integer current = CURRENT_SHARD.get();
+        if (current != null && current == shard) {
+            // 本分片负责的桌台（如清台时完成该桌订单）：当前线程已经在串行执行，直接执行
+            inline.increment();
+            return invocation.proceed();
+        }
+        if (current != null) {
+            // 投递到其他分片再等待结果可能与对方互相等待，直接执行又不再串行
+            misrouted.increment();
+            log.error("分片 {} 上调用了桌台 {} 的串行操作，该桌台属于分片 {}", current, tableId, shard);
+            throw new IllegalStateException("桌台 " + tableId + " 的操作不能在分片 " + current + " 上执行");
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 事务已在调用方线程上开启，投递后在分片线程上开启的是另一个事务；在当前线程执行又不再串行
+            misrouted.increment();
+            log.error("在已开启的事务中调用了桌台 {} 的串行操作", tableId);
+            throw new IllegalStateException("桌台 " + tableId + " 的操作不能在已开启的事务中调用");
+        }
+
+        WorkloadType workload = DataSourceRoute.currentWorkload();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        // 分片线程开始执行与调用方排队超时撤销之间只有一方能成功
+        AtomicBoolean claimed = new AtomicBoolean();
+        Runnable task = () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            SecurityContextHolder.setContext(securityContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                DataSourceRoute.call(workload, () -> {
+                    try {
+                        future.complete(invocation.proceed());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                    return null;
+                });
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                SecurityContextHolder.clearContext();
+            }
+        };
+        try {
+            shards[shard].execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("桌台 {} 所在分片 {} 队列已满，拒绝操作", tableId, shard);
+            throw new TableMailboxFullException("桌台 " + tableId + " 所在分片 " + shard + " 队列已满");
+        }
+        dispatched.increment();
+        try {
+            try {
+                return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    shards[shard].remove(task);
+                    timedOut.increment();
+                    log.warn("桌台 {} 在分片 {} 排队超过 {}ms，已撤销", tableId, shard, waitTimeoutMs);
+                    throw new TableMailboxFullException("桌台 " + tableId + " 所在分片 " + shard + " 排队超时");
+                }
+                // 已开始执行，结果会提交：必须等到结果，否则客户端按"系统繁忙"重试会重复下单、加菜
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Long resolveTable(TableSerial.Source source, Object key) {
+        if (key == null) {
+            return null;
+        }
+        return switch (source) {
+            case TABLE -> key instanceof TableScoped scoped ? scoped.getTableId() : (Long) key;
+            case ORDER -> resolver.tableOfOrder((Long) key);
+            case ORDER_ITEM -> resolver.tableOfOrderItem((Long) key);
+        };
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shards", shards.length);
+        int queued = 0;
+        int maxQueued = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            int size = shard.getQueue().size();
+            queued += size;
+            maxQueued = Math.max(maxQueued, size);
+        }
+        stats.put("queued", queued);
+        stats.put("maxShardQueued", maxQueued);
+        stats.put("dispatched", dispatched.sum());
+        stats.put("inline", inline.sum());
+        stats.put("unresolved", unresolved.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("misrouted", misrouted.sum());
+        stats.put("timedOut", timedOut.sum());
+        return stats;
+    }
+
+    /**
+     * 停止接收新操作，已排队的操作执行完再退出
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        for (ThreadPoolExecutor shard : shards) {
+            try {
+                if (!shard.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("桌台信箱关闭超时，仍有 {} 个操作未执行", shard.getQueue().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
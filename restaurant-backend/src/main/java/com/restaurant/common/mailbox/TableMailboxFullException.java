@@ -0,0 +1,14 @@
+package com.restaurant.common.mailbox;
+
+import org.springframework.dao.TransientDataAccessException;
+
+/**
+ * 桌台所在分片的队列已满，或排队超时被撤销；两种情况下操作都没有执行
+ * 属于暂时性过载而不是业务错误：接口返回"系统繁忙"，异步下单等后台任务应稍后重试，不能把订单判为失败
+ */
+public class TableMailboxFullException extends TransientDataAccessException {
+
+    public TableMailboxFullException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,34 @@
+package com.restaurant.common.mailbox;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * 把 {@link TableSerial} 方法交给所属桌台的分片执行
+ */
+public class TableMailboxInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<TableMailbox> mailbox;
+
+    public TableMailboxInterceptor(ObjectProvider<TableMailbox> mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+        TableSerial serial = AnnotatedElementUtils.findMergedAnnotation(method, TableSerial.class);
+        if (serial == null) {
+            return invocation.proceed();
+        }
+        Object[] args = invocation.getArguments();
+        Object key = serial.arg() < args.length ? args[serial.arg()] : null;
+        return mailbox.getObject().execute(serial.source(), key, invocation);
+    }
+}
@@ -0,0 +1,9 @@
+package com.restaurant.common.mailbox;
+
+/**
+ * 带桌台ID的请求对象，可直接作为 {@link TableSerial} 的参数
+ */
+public interface TableScoped {
+
+    Long getTableId();
+}
@@ -0,0 +1,38 @@
+package com.restaurant.common.mailbox;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 按桌台串行执行：同一桌台的标注方法（开台、下单、加菜、结账、清台等）依次在该桌台所在分片的线程上执行，
+ * 互不交错，事务也在该线程上开启。桌台由 {@link #arg()} 指定的参数确定，参数含义见 {@link #source()}。
+ * 在同一桌台的串行执行中嵌套调用时直接在当前线程执行；在其他桌台所在分片上，或在调用方已开启的事务中调用时抛出
+ * {@link IllegalStateException}，这类调用应在事务外、由调用方各自进入所属桌台的串行执行。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface TableSerial {
+
+    /**
+     * 参数的含义
+     */
+    Source source() default Source.TABLE;
+
+    /**
+     * 参数位置
+     */
+    int arg() default 0;
+
+    enum Source {
+        /** 桌台ID，或实现了 {@link TableScoped} 的请求对象 */
+        TABLE,
+        /** 订单ID */
+        ORDER,
+        /** 订单明细ID */
+        ORDER_ITEM
+    }
+}
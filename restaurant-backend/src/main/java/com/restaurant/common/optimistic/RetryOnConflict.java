@@ -0,0 +1,34 @@
+package com.restaurant.common.optimistic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 乐观锁冲突时重试：方法中按版本号更新的实体（订单、菜品、规格、桌台）被其他操作抢先修改时，
+ * 退避后重新执行整个方法，重新读取最新数据再修改。
+ * 重试在事务外层进行，每次都是新事务；调用方已开启事务时不重试，冲突交给调用方处理。
+ * 方法必须可以安全地重复执行：多次写入要么在同一事务中，要么本身幂等。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+
+    /**
+     * 最多执行次数（含第一次）
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * 第一次重试前的等待时间，之后每次翻倍并加随机抖动
+     */
+    long backoffMs() default 10;
+
+    /**
+     * 单次等待的上限
+     */
+    long maxBackoffMs() default 100;
+}
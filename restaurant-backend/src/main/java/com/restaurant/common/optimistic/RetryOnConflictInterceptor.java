@@ -0,0 +1,112 @@
+package com.restaurant.common.optimistic;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RetryOnConflict} 方法的冲突重试
+ * 冲突异常经 MyBatis 包装后抛出，这里取出原始的 {@link OptimisticLockingFailureException}，
+ * 重试用尽或不重试时也抛出原始异常，由全局异常处理返回提示。
+ */
+@Slf4j
+public class RetryOnConflictInterceptor implements MethodInterceptor {
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder propagated = new LongAdder();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+        RetryOnConflict retry = AnnotatedElementUtils.findMergedAnnotation(method, RetryOnConflict.class);
+        if (retry == null) {
+            return invocation.proceed();
+        }
+        // 已在调用方事务中：事务已被标记回滚，重试没有意义
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !(invocation instanceof ProxyMethodInvocation proxyInvocation)) {
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                OptimisticLockingFailureException conflict = findConflict(e);
+                if (conflict != null) {
+                    propagated.increment();
+                    throw conflict;
+                }
+                throw e;
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // 每次使用调用链的副本，保证重试时重新经过事务拦截器
+                Object result = proxyInvocation.invocableClone().proceed();
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (Throwable e) {
+                OptimisticLockingFailureException conflict = findConflict(e);
+                if (conflict == null) {
+                    throw e;
+                }
+                conflicts.increment();
+                if (attempt >= retry.maxAttempts()) {
+                    exhausted.increment();
+                    log.warn("{}.{} 乐观锁冲突，重试 {} 次后放弃: {}", method.getDeclaringClass().getSimpleName(),
+                            method.getName(), attempt - 1, conflict.getMessage());
+                    throw conflict;
+                }
+                retries.increment();
+                try {
+                    Thread.sleep(backoff(retry, attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw conflict;
+                }
+            }
+        }
+    }
+
+    /**
+     * 指数退避加随机抖动，避免冲突双方同时重试再次冲突
+     */
+    private static long backoff(RetryOnConflict retry, int attempt) {
+        long base = Math.min(retry.maxBackoffMs(), retry.backoffMs() << Math.min(attempt - 1, 20));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private static OptimisticLockingFailureException findConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException conflict) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("conflicts", conflicts.sum());
+        stats.put("retries", retries.sum());
+        stats.put("recovered", recovered.sum());
+        stats.put("exhausted", exhausted.sum());
+        stats.put("propagated", propagated.sum());
+        return stats;
+    }
+}
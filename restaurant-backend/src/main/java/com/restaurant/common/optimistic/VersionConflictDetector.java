@@ -0,0 +1,71 @@
+package com.restaurant.common.optimistic;
+
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 乐观锁冲突检测
+ * 带版本号的 updateById 由 OptimisticLockerInnerInterceptor 加上 version 条件，
+ * 版本已被其他操作修改时影响 0 行；这里把这种情况转成 {@link OptimisticLockingFailureException}，
+ * 不再静默丢失更新，并按实体统计带版本更新次数和冲突次数。
+ */
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class VersionConflictDetector implements Interceptor {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        // 乐观锁插件只在实体带版本号时放入原版本号
+        if (!(invocation.getArgs()[1] instanceof Map<?, ?> parameter)
+                || !parameter.containsKey(Constants.MP_OPTLOCK_VERSION_ORIGINAL)) {
+            return result;
+        }
+        Object entity = parameter.containsKey(Constants.ENTITY) ? parameter.get(Constants.ENTITY) : null;
+        String name = entity != null ? entity.getClass().getSimpleName()
+                : ((MappedStatement) invocation.getArgs()[0]).getId();
+        Counters entityCounters = counters.computeIfAbsent(name, k -> new Counters());
+        entityCounters.updates.increment();
+        if (result instanceof Integer rows && rows == 0) {
+            entityCounters.conflicts.increment();
+            throw new OptimisticLockingFailureException(name + " 已被其他操作修改，原版本号 "
+                    + parameter.get(Constants.MP_OPTLOCK_VERSION_ORIGINAL));
+        }
+        return result;
+    }
+
+    /**
+     * 按实体统计：带版本更新次数、冲突次数、冲突率
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        new TreeMap<>(counters).forEach((name, entityCounters) -> {
+            long updates = entityCounters.updates.sum();
+            long conflicts = entityCounters.conflicts.sum();
+            Map<String, Object> entityStats = new LinkedHashMap<>();
+            entityStats.put("updates", updates);
+            entityStats.put("conflicts", conflicts);
+            entityStats.put("conflictRate", updates == 0 ? 0.0 : Math.round(conflicts * 10000.0 / updates) / 10000.0);
+            stats.put(name, entityStats);
+        });
+        return stats;
+    }
+
+    private static class Counters {
+        final LongAdder updates = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+    }
+}
@@ -0,0 +1,169 @@
+package com.restaurant.common.ratelimit;
+
+import com.restaurant.common.ratelimit.ConcurrencyLimitProperties.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制（梯度算法）
+ * 以无排队时的响应时间（各窗口最小值）为基线，每个采样窗口比较最近的平均响应时间：
+ * 请求开始在连接池上排队、或数据库变慢使响应时间上升时按比例降低并发上限，恢复后逐步放开。
+ * 超出上限的请求立即拒绝，不再排队占用 Tomcat 线程和数据库连接；
+ * 低优先级请求只能使用上限的一部分，过载时先被拒绝。
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    /** 窗口最小值高于基线时，基线每个窗口向其靠拢的比例，使持续的变化（如数据量增长）最终成为新基线 */
+    private static final double BASELINE_DRIFT = 0.05;
+    /** 梯度下限：单次调整最多把上限减半 */
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    // 采样窗口，在 this 上同步
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private long windowMinRtt = Long.MAX_VALUE;
+    private int windowSamples;
+    private int windowMaxInflight;
+    private double baselineRttNanos;
+    private volatile double recentRttNanos;
+
+    private final Map<Priority, LongAdder> accepted = new EnumMap<>(Priority.class);
+    private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+    private final LongAdder adjustments = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = clamp(properties.getInitialLimit());
+        for (Priority priority : Priority.values()) {
+            accepted.put(priority, new LongAdder());
+            rejected.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * 尝试占用一个并发名额，成功后必须调用 {@link #release(long)} 或 {@link #release()}
+     */
+    public boolean tryAcquire(Priority priority) {
+        int max = Math.max(1, (int) (limit * properties.getShares().getOrDefault(priority, 1.0)));
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                rejected.get(priority).increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                accepted.get(priority).increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放名额并记录本次请求的响应时间
+     */
+    public void release(long rttNanos) {
+        int inflightBefore = inflight.getAndDecrement();
+        sample(rttNanos, inflightBefore);
+    }
+
+    /**
+     * 释放名额，不记录响应时间（如转为异步处理的请求）
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void sample(long rttNanos, int inflightBefore) {
+        windowRttSum += rttNanos;
+        windowMinRtt = Math.min(windowMinRtt, rttNanos);
+        windowSamples++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightBefore);
+
+        long now = System.nanoTime();
+        if (now - windowStart < TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs())
+                || windowSamples < properties.getMinWindowSamples()) {
+            return;
+        }
+        double recentRtt = (double) windowRttSum / windowSamples;
+        long minRtt = windowMinRtt;
+        boolean appLimited = windowMaxInflight < limit / 2;
+        windowStart = now;
+        windowRttSum = 0;
+        windowMinRtt = Long.MAX_VALUE;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+        adjust(recentRtt, minRtt, appLimited);
+    }
+
+    private void adjust(double recentRtt, long minRtt, boolean appLimited) {
+        recentRttNanos = recentRtt;
+        if (baselineRttNanos == 0 || minRtt < baselineRttNanos) {
+            baselineRttNanos = minRtt;
+        } else {
+            baselineRttNanos += (minRtt - baselineRttNanos) * BASELINE_DRIFT;
+        }
+        // 实际并发远低于上限时响应时间不能说明上限是否合适，不调整
+        if (appLimited) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, properties.getRttTolerance() * baselineRttNanos / recentRtt));
+        double queueSize = Math.sqrt(limit);
+        double target = limit * gradient + queueSize;
+        int newLimit = clamp((int) Math.round(limit * (1 - properties.getSmoothing()) + target * properties.getSmoothing()));
+        if (newLimit != limit) {
+            if (newLimit < limit) {
+                log.debug("响应时间上升，并发上限 {} -> {}，最近 {}ms，基线 {}ms",
+                        limit, newLimit, toMillis(recentRtt), toMillis(baselineRttNanos));
+            }
+            limit = newLimit;
+            adjustments.increment();
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / 10_000) / 100.0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", limit);
+        stats.put("inflight", inflight.get());
+        synchronized (this) {
+            stats.put("baselineRttMs", toMillis(baselineRttNanos));
+        }
+        stats.put("recentRttMs", toMillis(recentRttNanos));
+        stats.put("adjustments", adjustments.sum());
+        Map<String, Object> byPriority = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("maxInflight", Math.max(1, (int) (limit * properties.getShares().getOrDefault(priority, 1.0))));
+            counts.put("accepted", accepted.get(priority).sum());
+            counts.put("rejected", rejected.get(priority).sum());
+            byPriority.put(priority.name().toLowerCase(), counts);
+        }
+        stats.put("priorities", byPriority);
+        return stats;
+    }
+}
@@ -0,0 +1,87 @@
+package com.restaurant.common.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 自适应并发限制配置（app.concurrency-limit）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 启动时的并发上限，之后根据响应时间自动调整
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 200;
+
+    /**
+     * 响应时间容忍倍数：最近平均响应时间不超过无排队时响应时间的该倍数时不降低上限
+     */
+    private double rttTolerance = 2.0;
+
+    /**
+     * 每次调整时新上限所占的权重，越小调整越平缓
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * 采样窗口：窗口结束且样本数足够时调整一次上限
+     */
+    private long windowMs = 500;
+
+    private int minWindowSamples = 10;
+
+    /**
+     * 拒绝时返回的 Retry-After 秒数
+     */
+    private int retryAfterSeconds = 1;
+
+    /**
+     * 各优先级可使用的并发上限比例，低优先级先被拒绝
+     */
+    private Map<Priority, Double> shares = new EnumMap<>(Map.of(
+            Priority.CRITICAL, 1.0, Priority.NORMAL, 0.8, Priority.LOW, 0.5));
+
+    /**
+     * 路由名 -> 规则，按顺序匹配第一条，未匹配的请求不受限制
+     */
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    public enum Priority {
+        /** 结账、后厨出菜 */
+        CRITICAL,
+        /** 下单、加菜、开台等其他写操作 */
+        NORMAL,
+        /** 顾客浏览、轮询 */
+        LOW
+    }
+
+    @Data
+    public static class Route {
+
+        /**
+         * 匹配的HTTP方法，为空表示全部
+         */
+        private String method;
+
+        /**
+         * 路径模式，如 /api/kitchen/**
+         */
+        private String path;
+
+        private Priority priority = Priority.NORMAL;
+    }
+}
@@ -0,0 +1,72 @@
+package com.restaurant.common.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 公开接口限流配置（app.rate-limit）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 本节点最多记录的限流key数量，超出后清理已回满的桶，仍不够时淘汰最久未使用的桶
+     */
+    private int maxKeys = 50000;
+
+    /**
+     * 多节点时通过 Redis 共享令牌桶
+     */
+    private boolean redisEnabled = false;
+
+    /**
+     * 路由名 -> 限流规则
+     */
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Route {
+
+        /**
+         * 匹配的HTTP方法，为空表示全部
+         */
+        private String method;
+
+        /**
+         * 路径模式，如 /api/orders/by-table/**
+         */
+        private String path;
+
+        /**
+         * 按客户端IP限流，为空表示不限
+         */
+        private Limit ip;
+
+        /**
+         * 按桌台限流，为空表示不限
+         */
+        private Limit table;
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity;
+
+        /**
+         * 每秒补充的令牌数
+         */
+        private double ratePerSecond;
+    }
+}
@@ -0,0 +1,116 @@
+package com.restaurant.common.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 令牌桶限流
+ * 默认每个节点独立计数；开启 Redis 后各节点共享，Redis 不可用时退回本地计数
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    /** 空间不足时一次淘汰上限的 1/16，避免每个新 key 都触发一次排序 */
+    private static final int EVICT_DIVISOR = 16;
+
+    private final RateLimitProperties properties;
+    private final RedisTokenBucketStore redisStore;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    public RateLimiter(RateLimitProperties properties, ObjectProvider<RedisTokenBucketStore> redisStore) {
+        this.properties = properties;
+        this.redisStore = redisStore.getIfAvailable();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @param key 限流key，如 "orders-write:ip:1.2.3.4"
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    public long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        long wait;
+        if (redisStore != null) {
+            try {
+                wait = redisStore.tryAcquire(key, limit);
+            } catch (Exception e) {
+                redisErrors.increment();
+                log.debug("Redis限流失败，使用本地计数: {}", e.getMessage());
+                wait = tryAcquireLocal(key, limit);
+            }
+        } else {
+            wait = tryAcquireLocal(key, limit);
+        }
+
+        if (wait > 0) {
+            limited.increment();
+        } else {
+            allowed.increment();
+        }
+        return wait;
+    }
+
+    private long tryAcquireLocal(String key, RateLimitProperties.Limit limit) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= properties.getMaxKeys()) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key,
+                    k -> new TokenBucket(limit.getCapacity(), limit.getRatePerSecond(), now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * key 数量达到上限时腾出空间，新的 key 始终正常限流
+     * 先清理已回满的桶（与新建的桶等价）；仍然满时淘汰最接近回满、即最久没有请求的一批桶，
+     * 被淘汰的来源下次请求时重新从满桶开始计数
+     */
+    private synchronized void evict(long now) {
+        int maxKeys = properties.getMaxKeys();
+        if (buckets.size() < maxKeys) {
+            return;
+        }
+        buckets.values().removeIf(b -> b.isFull(now));
+        int excess = buckets.size() - maxKeys + Math.max(1, maxKeys / EVICT_DIVISOR);
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, TokenBucket>> oldest = buckets.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().theoreticalArrival()))
+                .limit(excess)
+                .toList();
+        for (Map.Entry<String, TokenBucket> entry : oldest) {
+            buckets.remove(entry.getKey(), entry.getValue());
+        }
+        evicted.add(oldest.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shared", redisStore != null);
+        stats.put("trackedKeys", buckets.size());
+        stats.put("allowed", allowed.sum());
+        stats.put("limited", limited.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("redisErrors", redisErrors.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,54 @@
+package com.restaurant.common.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 基于 Redis 的共享令牌桶（app.rate-limit.redis-enabled=true 时生效）
+ * 与本地令牌桶算法相同，脚本内使用 Redis 服务器时间，各节点时钟不一致也不影响
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.redis-enabled", havingValue = "true")
+public class RedisTokenBucketStore {
+
+    private static final String KEY_PREFIX = "restaurant:rl:";
+
+    // KEYS[1]=桶key, ARGV[1]=令牌间隔(微秒), ARGV[2]=桶容量；返回需要等待的微秒数，0表示放行
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>("""
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+            local interval = tonumber(ARGV[1])
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+            if tat < now then tat = now end
+            local nextTat = tat + interval
+            local wait = nextTat - now - interval * tonumber(ARGV[2])
+            if wait > 0 then return wait end
+            redis.call('SET', KEYS[1], nextTat, 'PX', math.ceil((nextTat - now) / 1000))
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisTokenBucketStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        log.info("公开接口限流使用 Redis 共享令牌桶");
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        long intervalMicros = (long) (1_000_000L / limit.getRatePerSecond());
+        Long waitMicros = redisTemplate.execute(SCRIPT, List.of(KEY_PREFIX + key),
+                String.valueOf(intervalMicros), String.valueOf(limit.getCapacity()));
+        return waitMicros == null ? 0 : waitMicros * 1000;
+    }
+}
@@ -0,0 +1,57 @@
+package com.restaurant.common.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 按 GCRA 实现：只记录"理论到达时间"一个值，每次请求把它推后一个令牌间隔，
+ * 超出桶容量对应的时间则拒绝。效果等同于容量为 capacity、每秒补充 ratePerSecond 的令牌桶，
+ * 但只需一次 CAS，不需要加锁也不需要定时补充线程。
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    // 理论到达时间（纳秒），小于等于当前时间表示桶已满
+    private final AtomicLong tat;
+
+    TokenBucket(int capacity, double ratePerSecond, long now) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstNanos = intervalNanos * capacity;
+        this.tat = new AtomicLong(now);
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 桶已回满，与新建的桶等价，可以安全移除
+     */
+    boolean isFull(long now) {
+        return tat.get() <= now;
+    }
+
+    /**
+     * 理论到达时间越早，桶越接近回满，最近的请求也越少
+     */
+    long theoreticalArrival() {
+        return tat.get();
+    }
+}
@@ -0,0 +1,24 @@
+package com.restaurant.common.singleflight;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 合并并发的相同调用：方法和参数都相同的调用同时到达时只执行一次，其余调用等待并共享同一个结果，
+ * 结果在 {@link #ttlMs()} 内继续复用。参数需要正确实现 equals/hashCode。
+ * 返回值会被多个调用方共享，调用方不得修改；已在事务中调用时不合并（需要看到本事务的写入）。
+ * 执行失败不缓存，异常同时抛给等待中的调用方。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+
+    /**
+     * 执行完成后结果的复用时间，0 表示只合并同时进行中的调用
+     */
+    long ttlMs() default 1000;
+}
@@ -0,0 +1,148 @@
+package com.restaurant.common.singleflight;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SingleFlight} 方法的调用合并
+ * 第一个调用方执行方法，同一时刻的相同调用等待它的结果；结果在 ttl 内继续复用，过期后由下一个调用方重新执行。
+ */
+public class SingleFlightInterceptor implements MethodInterceptor {
+
+    /** 超过该数量时在每次执行完成后清理过期结果，避免参数组合过多时无限增长 */
+    private static final int PURGE_THRESHOLD = 256;
+
+    private final Map<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+        SingleFlight singleFlight = AnnotatedElementUtils.findMergedAnnotation(method, SingleFlight.class);
+        if (singleFlight == null) {
+            return invocation.proceed();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            bypassed.increment();
+            return invocation.proceed();
+        }
+
+        FlightKey key = new FlightKey(method, invocation.getArguments());
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(singleFlight.ttlMs());
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null && flight.isExpired()) {
+                flights.remove(key, flight);
+                flight = null;
+            }
+            if (flight == null) {
+                Flight mine = new Flight(ttlNanos);
+                flight = flights.putIfAbsent(key, mine);
+                if (flight == null) {
+                    return execute(invocation, key, mine);
+                }
+                // 其他线程抢先发起了同一调用，重新检查它的状态
+                continue;
+            }
+            if (flight.future.isDone()) {
+                reused.increment();
+            } else {
+                coalesced.increment();
+            }
+            return flight.await();
+        }
+    }
+
+    private Object execute(MethodInvocation invocation, FlightKey key, Flight flight) throws Throwable {
+        executions.increment();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            // 先移除再通知等待方，失败结果不会被后来的调用复用
+            failures.increment();
+            flights.remove(key, flight);
+            flight.future.completeExceptionally(e);
+            throw e;
+        }
+        flight.completedAt = System.nanoTime();
+        flight.future.complete(result);
+        if (flight.ttlNanos <= 0) {
+            flights.remove(key, flight);
+        } else if (flights.size() > PURGE_THRESHOLD) {
+            flights.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("reused", reused.sum());
+        stats.put("bypassed", bypassed.sum());
+        stats.put("failures", failures.sum());
+        stats.put("entries", flights.size());
+        return stats;
+    }
+
+    private record FlightKey(Method method, Object[] args) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FlightKey other && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + Arrays.deepHashCode(args);
+        }
+    }
+
+    private static class Flight {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final long ttlNanos;
+        volatile long completedAt;
+
+        Flight(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        /**
+         * 执行中的调用不会过期
+         */
+        boolean isExpired() {
+            if (!future.isDone()) {
+                return false;
+            }
+            return future.isCompletedExceptionally() || System.nanoTime() - completedAt >= ttlNanos;
+        }
+
+        Object await() throws Throwable {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
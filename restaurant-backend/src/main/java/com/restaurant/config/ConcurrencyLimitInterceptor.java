@@ -0,0 +1,89 @@
+package com.restaurant.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.common.Result;
+import com.restaurant.common.ratelimit.AdaptiveConcurrencyLimiter;
+import com.restaurant.common.ratelimit.ConcurrencyLimitProperties;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 点餐、桌台、后厨接口的自适应并发限制
+ * 按配置顺序匹配第一条规则得到优先级，超出该优先级可用的并发名额时立即返回 503 + Retry-After，
+ * 数据库变慢时不再让请求堆积在连接池上。
+ */
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ConcurrencyLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 异步请求完成时的再次分派不重复计数
+        if (!properties.isEnabled() || "OPTIONS".equals(request.getMethod())
+                || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        ConcurrencyLimitProperties.Priority priority = resolvePriority(request.getMethod(), request.getRequestURI());
+        if (priority == null) {
+            return true;
+        }
+        if (limiter.tryAcquire(priority)) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            return true;
+        }
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), Result.error(503, "系统繁忙，请稍后重试"));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            limiter.release(System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * SSE 等长连接转为异步后立即归还名额，其持续时间不计入响应时间
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            limiter.release();
+        }
+    }
+
+    private ConcurrencyLimitProperties.Priority resolvePriority(String method, String path) {
+        for (ConcurrencyLimitProperties.Route route : properties.getRoutes().values()) {
+            if ((route.getMethod() == null || route.getMethod().equalsIgnoreCase(method))
+                    && route.getPath() != null && pathMatcher.match(route.getPath(), path)) {
+                return route.getPriority();
+            }
+        }
+        return null;
+    }
+}
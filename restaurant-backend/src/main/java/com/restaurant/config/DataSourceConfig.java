@@ -0,0 +1,128 @@
+package com.restaurant.config;
+
+import com.restaurant.common.datasource.ReadYourWritesTracker;
+import com.restaurant.common.datasource.ReplicaLagMonitor;
+import com.restaurant.common.datasource.ReplicaRead;
+import com.restaurant.common.datasource.ReplicaReadInterceptor;
+import com.restaurant.common.datasource.Workload;
+import com.restaurant.common.datasource.WorkloadInterceptor;
+import com.restaurant.common.datasource.WorkloadRoutingDataSource;
+import com.restaurant.common.datasource.WorkloadType;
+import com.restaurant.common.datasource.WriteTrackingInterceptor;
+import com.restaurant.utils.IpUtil;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.lang.annotation.Annotation;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 数据源配置
+ * - 每种业务类型（{@link WorkloadType}）一个主库连接池：公共参数取 spring.datasource.hikari，
+ *   再用 app.datasource.pools.<oltp|kitchen|report> 覆盖池大小、超时等
+ * - app.datasource.replica.enabled=true 时增加从库连接池，连接信息取 app.datasource.replica，
+ *   连接池参数取 app.datasource.replica.hikari
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+    public ReadYourWritesTracker readYourWritesTracker(@Value("${app.datasource.replica.sticky-ms:5000}") long stickyMs,
+                                                       IpUtil ipUtil) {
+        return new ReadYourWritesTracker(stickyMs, ipUtil);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+    public WriteTrackingInterceptor writeTrackingInterceptor(ReadYourWritesTracker tracker) {
+        return new WriteTrackingInterceptor(tracker);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WorkloadRoutingDataSource workloadRoutingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            ObjectProvider<ReadYourWritesTracker> tracker,
+            @Value("${app.datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+            @Value("${app.datasource.replica.lag-column:Seconds_Behind_Source}") String lagColumn,
+            @Value("${app.datasource.replica.max-lag-seconds:3}") long maxLagSeconds,
+            @Value("${app.datasource.replica.lag-check-ms:2000}") long lagCheckMs) {
+        Binder binder = Binder.get(environment);
+
+        Map<WorkloadType, HikariDataSource> pools = new EnumMap<>(WorkloadType.class);
+        for (WorkloadType workload : WorkloadType.values()) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            binder.bind("app.datasource.pools." + workload.getPoolName(), Bindable.ofInstance(pool));
+            pool.setPoolName(workload.getPoolName());
+            pools.put(workload, pool);
+        }
+
+        ReadYourWritesTracker writesTracker = tracker.getIfAvailable();
+        if (writesTracker == null) {
+            return new WorkloadRoutingDataSource(pools, null, null, null);
+        }
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setJdbcUrl(environment.getRequiredProperty("app.datasource.replica.url"));
+        replica.setUsername(environment.getProperty("app.datasource.replica.username", properties.determineUsername()));
+        replica.setPassword(environment.getProperty("app.datasource.replica.password", properties.determinePassword()));
+        binder.bind("app.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(replica, lagQuery, lagColumn, maxLagSeconds, lagCheckMs);
+        return new WorkloadRoutingDataSource(pools, replica, writesTracker, lagMonitor);
+    }
+
+    /**
+     * 对外暴露的数据源：延迟到第一条语句执行时才取连接，保证路由时能看到事务的只读标记和业务类型
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(WorkloadRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * 路由注解的拦截器注册为基础设施角色，由事务使用的自动代理统一织入
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor replicaReadAdvisor() {
+        return new DefaultPointcutAdvisor(annotationPointcut(ReplicaRead.class), new ReplicaReadInterceptor());
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor workloadAdvisor() {
+        return new DefaultPointcutAdvisor(annotationPointcut(Workload.class), new WorkloadInterceptor());
+    }
+
+    /**
+     * 匹配类上或方法上带有该注解
+     */
+    private static ComposablePointcut annotationPointcut(Class<? extends Annotation> annotation) {
+        return new ComposablePointcut(new AnnotationMatchingPointcut(annotation, true))
+                .union(new AnnotationMatchingPointcut(null, annotation, true));
+    }
+}
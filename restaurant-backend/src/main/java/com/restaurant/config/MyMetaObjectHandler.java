@@ -17,6 +17,7 @@ public class MyMetaObjectHandler implements MetaObjectHandler {
         this.strictInsertFill(metaObject, "createdAt", LocalDateTime.class, LocalDateTime.now());
         this.strictInsertFill(metaObject, "updatedAt", LocalDateTime.class, LocalDateTime.now());
         this.strictInsertFill(metaObject, "isDeleted", Integer.class, 0);
+        this.strictInsertFill(metaObject, "version", Integer.class, 0);
     }
 
     @Override
@@ -0,0 +1,53 @@
+package com.restaurant.config;
+
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
+import com.restaurant.common.optimistic.RetryOnConflict;
+import com.restaurant.common.optimistic.RetryOnConflictInterceptor;
+import com.restaurant.common.optimistic.VersionConflictDetector;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * MyBatis-Plus 插件配置
+ * 订单、菜品、规格、桌台带 @Version 字段，updateById 时按版本号更新，冲突时抛出异常并按需重试
+ */
+@Configuration
+public class MybatisPlusConfig {
+
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
+        return interceptor;
+    }
+
+    @Bean
+    public VersionConflictDetector versionConflictDetector() {
+        return new VersionConflictDetector();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static RetryOnConflictInterceptor retryOnConflictInterceptor() {
+        return new RetryOnConflictInterceptor();
+    }
+
+    /**
+     * 排在桌台信箱内层、事务拦截器外层：重试在分片线程上进行，每次重试开启新事务
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor retryOnConflictAdvisor(RetryOnConflictInterceptor retryOnConflictInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class), retryOnConflictInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return advisor;
+    }
+}
@@ -0,0 +1,111 @@
+package com.restaurant.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.common.Result;
+import com.restaurant.common.ratelimit.RateLimitProperties;
+import com.restaurant.common.ratelimit.RateLimiter;
+import com.restaurant.utils.IpUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公开接口限流
+ * 只限制匿名的扫码顾客，已登录的员工端请求直接放行。
+ * 按配置顺序匹配第一条路由规则，分别按客户端IP和桌台取令牌，任一不足即返回 429。
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final IpUtil ipUtil;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!properties.isEnabled() || "OPTIONS".equals(request.getMethod()) || isStaff()) {
+            return true;
+        }
+
+        String path = request.getRequestURI();
+        for (Map.Entry<String, RateLimitProperties.Route> entry : properties.getRoutes().entrySet()) {
+            RateLimitProperties.Route route = entry.getValue();
+            if (matches(route, request.getMethod(), path)) {
+                return check(entry.getKey(), route, request, response);
+            }
+        }
+        return true;
+    }
+
+    private boolean check(String routeName, RateLimitProperties.Route route,
+                          HttpServletRequest request, HttpServletResponse response) throws Exception {
+        long wait = 0;
+        if (route.getIp() != null) {
+            wait = rateLimiter.tryAcquire(routeName + ":ip:" + ipUtil.getClientIp(request), route.getIp());
+        }
+        String tableId = route.getTable() != null ? resolveTableId(request) : null;
+        if (wait == 0 && tableId != null) {
+            wait = rateLimiter.tryAcquire(routeName + ":table:" + tableId, route.getTable());
+        }
+        if (wait == 0) {
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), Result.error(429, "请求过于频繁，请稍后再试"));
+        return false;
+    }
+
+    private boolean matches(RateLimitProperties.Route route, String method, String path) {
+        if (route.getMethod() != null && !route.getMethod().equalsIgnoreCase(method)) {
+            return false;
+        }
+        return route.getPath() != null && pathMatcher.match(route.getPath(), path);
+    }
+
+    /**
+     * 从路径变量或请求参数中取桌台ID：/by-table/{tableId}、/api/tables/{id}、?tableId=
+     */
+    @SuppressWarnings("unchecked")
+    private String resolveTableId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null) {
+            if (variables.containsKey("tableId")) {
+                return variables.get("tableId");
+            }
+            if (variables.containsKey("id") && request.getRequestURI().startsWith("/api/tables/")) {
+                return variables.get("id");
+            }
+        }
+        return request.getParameter("tableId");
+    }
+
+    private boolean isStaff() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+}
@@ -33,6 +33,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/dishes/**").permitAll()
                 .requestMatchers("/api/tables/**").permitAll()
                 .requestMatchers("/api/orders/**").permitAll()
+                // WebSocket 握手由 JwtHandshakeInterceptor 校验查询参数中的 token（浏览器无法设置请求头）
+                .requestMatchers("/ws/**").permitAll()
                 // 上传文件公开访问
                 .requestMatchers("/uploads/**").permitAll()
                 .requestMatchers("/api/upload/**").authenticated()
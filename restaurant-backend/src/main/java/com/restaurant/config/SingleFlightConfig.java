@@ -0,0 +1,37 @@
+package com.restaurant.config;
+
+import com.restaurant.common.singleflight.SingleFlight;
+import com.restaurant.common.singleflight.SingleFlightInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * 调用合并配置
+ */
+@Configuration
+public class SingleFlightConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static SingleFlightInterceptor singleFlightInterceptor() {
+        return new SingleFlightInterceptor();
+    }
+
+    /**
+     * 排在事务拦截器外层：等待合并结果的调用方不开启事务，也不占用数据库连接
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor singleFlightAdvisor(SingleFlightInterceptor singleFlightInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(SingleFlight.class), singleFlightInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
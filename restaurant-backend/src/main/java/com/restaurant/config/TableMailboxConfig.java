@@ -0,0 +1,34 @@
+package com.restaurant.config;
+
+import com.restaurant.common.mailbox.TableMailbox;
+import com.restaurant.common.mailbox.TableMailboxInterceptor;
+import com.restaurant.common.mailbox.TableSerial;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * 桌台信箱配置
+ */
+@Configuration
+public class TableMailboxConfig {
+
+    /**
+     * 排在事务拦截器外层：事务在分片线程上开启，调用方线程只等待结果，不占用数据库连接
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor tableMailboxAdvisor(ObjectProvider<TableMailbox> tableMailbox) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(TableSerial.class),
+                new TableMailboxInterceptor(tableMailbox));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+}
@@ -1,12 +1,18 @@
 package com.restaurant.config;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -15,4 +21,14 @@ public class WebMvcConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .maxAge(3600);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 仅限制对匿名顾客开放的接口
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/api/orders/**", "/api/tables/**", "/api/dishes/**");
+        // 数据库变慢时按优先级拒绝超出并发上限的请求
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns("/api/orders/**", "/api/tables/**", "/api/kitchen/**");
+    }
 }
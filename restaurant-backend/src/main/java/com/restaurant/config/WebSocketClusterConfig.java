@@ -0,0 +1,35 @@
+package com.restaurant.config;
+
+import com.restaurant.websocket.ClusterMessageRelay;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * WebSocket集群配置（app.websocket.cluster.enabled=true 时生效）
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "true")
+public class WebSocketClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer webSocketClusterListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                          ClusterMessageRelay relay) {
+        // 单线程派发，保证同一频道的消息按到达顺序投递
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("ws-cluster-");
+        executor.initialize();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(executor);
+        container.addMessageListener(relay, new ChannelTopic(relay.getChannel()));
+        return container;
+    }
+}
@@ -1,5 +1,6 @@
 package com.restaurant.config;
 
+import com.restaurant.websocket.FloorWebSocketHandler;
 import com.restaurant.websocket.KitchenWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
@@ -13,10 +14,16 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final KitchenWebSocketHandler kitchenWebSocketHandler;
+    private final FloorWebSocketHandler floorWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(kitchenWebSocketHandler, "/ws/kitchen")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOrigins("*");
+        registry.addHandler(floorWebSocketHandler, "/ws/floor")
+                .addInterceptors(jwtHandshakeInterceptor)
                 .setAllowedOrigins("*");
     }
 }
@@ -1,13 +1,22 @@
 package com.restaurant.dish.controller;
 
 import com.restaurant.common.Result;
+import com.restaurant.common.image.ImageRenditionService;
+import com.restaurant.common.image.ImageSize;
 import com.restaurant.dish.dto.*;
 import com.restaurant.dish.entity.Dish;
 import com.restaurant.dish.entity.DishCategory;
 import com.restaurant.dish.service.DishService;
+import com.restaurant.dish.service.MenuAvailabilityStream;
+import com.restaurant.dish.service.MenuSnapshotService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -18,6 +27,9 @@ import java.util.List;
 public class DishController {
 
     private final DishService dishService;
+    private final ImageRenditionService imageRenditionService;
+    private final MenuSnapshotService menuSnapshotService;
+    private final MenuAvailabilityStream menuAvailabilityStream;
 
     // ========== 分类接口 ==========
 
@@ -46,15 +58,50 @@ public class DishController {
 
     // ========== 菜品接口 ==========
 
+    /**
+     * imageSize 可选 thumb/list/detail，返回对应规格的图片地址，不传时返回原图
+     */
     @GetMapping
     public Result<List<Dish>> list(@RequestParam(required = false) Long categoryId,
-                                   @RequestParam(required = false) Integer status) {
-        return Result.success(dishService.listDishes(categoryId, status));
+                                   @RequestParam(required = false) Integer status,
+                                   @RequestParam(required = false) String imageSize) {
+        List<Dish> dishes = dishService.listDishes(categoryId, status);
+        applyImageSize(dishes, ImageSize.of(imageSize));
+        return Result.success(dishes);
     }
 
+    /**
+     * 在售菜单，来自菜单快照并叠加实时可售状态（soldOut）
+     * 带 ETag，客户端重新校验时菜单和可售状态都未变化则返回 304
+     */
     @GetMapping("/by-category")
-    public Result<List<CategoryWithDishesDTO>> listByCategory() {
-        return Result.success(dishService.listDishesByCategory());
+    public Result<List<CategoryWithDishesDTO>> listByCategory(@RequestParam(required = false) String imageSize,
+                                                              HttpServletRequest request,
+                                                              HttpServletResponse response) {
+        String etag = menuSnapshotService.getEtag();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        List<CategoryWithDishesDTO> categories = menuSnapshotService.getMenu();
+        ImageSize size = ImageSize.of(imageSize);
+        categories.forEach(category -> applyImageSize(category.getDishes(), size));
+        // 菜单取到后才带 ETag，避免客户端缓存错误响应
+        response.setHeader(HttpHeaders.ETAG, etag);
+        return Result.success(categories);
+    }
+
+    /**
+     * 订阅菜品可售状态变化（售罄、补货、上下架）
+     */
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter availabilityStream(HttpServletResponse response) {
+        // 禁止反向代理缓冲事件流
+        response.setHeader("X-Accel-Buffering", "no");
+        return menuAvailabilityStream.subscribe();
     }
 
     @GetMapping("/{id}")
@@ -66,8 +113,11 @@ public class DishController {
      * 获取菜品详情（包含规格）
      */
     @GetMapping("/{id}/detail")
-    public Result<DishDetailDTO> getDetail(@PathVariable Long id) {
-        return Result.success(dishService.getDetailWithSpecs(id));
+    public Result<DishDetailDTO> getDetail(@PathVariable Long id,
+                                           @RequestParam(required = false) String imageSize) {
+        DishDetailDTO detail = dishService.getDetailWithSpecs(id);
+        detail.setImage(imageRenditionService.resolve(detail.getImage(), ImageSize.of(imageSize)));
+        return Result.success(detail);
     }
 
     @PostMapping
@@ -111,4 +161,11 @@ public class DishController {
         dishService.updatePrice(id, price);
         return Result.success();
     }
+
+    private void applyImageSize(List<Dish> dishes, ImageSize size) {
+        if (size == null || dishes == null) {
+            return;
+        }
+        dishes.forEach(dish -> dish.setImage(imageRenditionService.resolve(dish.getImage(), size)));
+    }
 }
@@ -0,0 +1,18 @@
+package com.restaurant.dish.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 菜品可售状态变化，dishId 为空表示菜单结构变化，客户端需重新拉取菜单
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuAvailabilityDTO {
+
+    private Long dishId;
+    private Integer status;    // 0下架 1上架
+    private boolean soldOut;
+}
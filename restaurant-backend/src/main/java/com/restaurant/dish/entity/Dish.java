@@ -1,7 +1,9 @@
 package com.restaurant.dish.entity;
 
 import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.FieldFill;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import com.restaurant.common.BaseEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -24,8 +26,13 @@ public class Dish extends BaseEntity {
     private Integer status;        // 状态: 0下架 1上架
     private Integer sortOrder;     // 排序
     private Integer hasSpecs;      // 是否有规格: 0无 1有
+    @Version
+    @TableField(fill = FieldFill.INSERT)
+    private Integer version;       // 版本号(乐观锁)
     
     // 非持久化字段
     @TableField(exist = false)
     private List<DishSpec> specs;  // 规格列表
+    @TableField(exist = false)
+    private Boolean soldOut;       // 是否售罄（菜单快照填充）
 }
@@ -1,6 +1,9 @@
 package com.restaurant.dish.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import com.restaurant.common.BaseEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -21,4 +24,7 @@ public class DishSpec extends BaseEntity {
     private BigDecimal price;      // 规格价格
     private Integer sortOrder;     // 排序
     private Integer status;        // 状态: 0禁用 1启用
+    @Version
+    @TableField(fill = FieldFill.INSERT)
+    private Integer version;        // 版本号(乐观锁)
 }
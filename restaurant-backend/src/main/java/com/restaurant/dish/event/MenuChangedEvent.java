@@ -0,0 +1,42 @@
+package com.restaurant.dish.event;
+
+import com.restaurant.dish.entity.Dish;
+import lombok.Getter;
+
+/**
+ * 菜单变更事件
+ * - 可售状态变化（售罄、补货、上下架）只更新菜单快照上的可售覆盖层，并实时推送给点餐端
+ * - 其他变化（分类、菜品信息、价格、规格）使整个菜单快照失效
+ */
+@Getter
+public class MenuChangedEvent {
+
+    private final Long dishId;      // 结构变化时为空
+    private final Integer status;   // 0下架 1上架
+    private final boolean soldOut;  // 限量菜品库存为0
+
+    private MenuChangedEvent(Long dishId, Integer status, boolean soldOut) {
+        this.dishId = dishId;
+        this.status = status;
+        this.soldOut = soldOut;
+    }
+
+    public static MenuChangedEvent availability(Dish dish) {
+        return new MenuChangedEvent(dish.getId(), dish.getStatus(), isSoldOut(dish));
+    }
+
+    public static MenuChangedEvent structure() {
+        return new MenuChangedEvent(null, null, false);
+    }
+
+    public boolean isStructural() {
+        return dishId == null;
+    }
+
+    /**
+     * 库存为0视为售罄，-1 表示不限量
+     */
+    public static boolean isSoldOut(Dish dish) {
+        return dish.getStock() != null && dish.getStock() == 0;
+    }
+}
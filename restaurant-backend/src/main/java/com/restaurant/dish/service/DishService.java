@@ -1,15 +1,19 @@
 package com.restaurant.dish.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.common.datasource.ReplicaRead;
 import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.optimistic.RetryOnConflict;
 import com.restaurant.dish.dto.*;
 import com.restaurant.dish.entity.Dish;
 import com.restaurant.dish.entity.DishCategory;
 import com.restaurant.dish.entity.DishSpec;
+import com.restaurant.dish.event.MenuChangedEvent;
 import com.restaurant.dish.mapper.CategoryMapper;
 import com.restaurant.dish.mapper.DishMapper;
 import com.restaurant.dish.mapper.DishSpecMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,9 +28,11 @@ public class DishService {
     private final DishMapper dishMapper;
     private final CategoryMapper categoryMapper;
     private final DishSpecMapper dishSpecMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========== 分类管理 ==========
 
+    @ReplicaRead
     public List<DishCategory> listCategories() {
         LambdaQueryWrapper<DishCategory> wrapper = new LambdaQueryWrapper<>();
         wrapper.orderByAsc(DishCategory::getSortOrder);
@@ -39,6 +45,7 @@ public class DishService {
         category.setSortOrder(request.getSortOrder());
         category.setStatus(1);
         categoryMapper.insert(category);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
     public void updateCategory(Long id, CreateCategoryRequest request) {
@@ -49,6 +56,7 @@ public class DishService {
         category.setName(request.getName());
         category.setSortOrder(request.getSortOrder());
         categoryMapper.updateById(category);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
     public void deleteCategory(Long id) {
@@ -59,10 +67,12 @@ public class DishService {
             throw new BusinessException("该分类下还有菜品，无法删除");
         }
         categoryMapper.deleteById(id);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
     // ========== 菜品管理 ==========
 
+    @ReplicaRead
     public List<Dish> listDishes(Long categoryId, Integer status) {
         LambdaQueryWrapper<Dish> wrapper = new LambdaQueryWrapper<>();
         if (categoryId != null) {
@@ -80,6 +90,17 @@ public class DishService {
      * 按分类获取菜品（包含规格）- Pad端点餐使用
      */
     public List<CategoryWithDishesDTO> listDishesByCategory() {
+        return buildMenu(true);
+    }
+
+    /**
+     * 按分类获取全部菜品（含已下架），供菜单快照使用，上下架由可售覆盖层决定
+     */
+    public List<CategoryWithDishesDTO> listMenuDishesByCategory() {
+        return buildMenu(false);
+    }
+
+    private List<CategoryWithDishesDTO> buildMenu(boolean onSaleOnly) {
         List<DishCategory> categories = listCategories();
         return categories.stream()
             .filter(c -> c.getStatus() == 1)
@@ -90,7 +111,7 @@ public class DishService {
                 
                 LambdaQueryWrapper<Dish> wrapper = new LambdaQueryWrapper<>();
                 wrapper.eq(Dish::getCategoryId, category.getId())
-                       .eq(Dish::getStatus, 1)
+                       .eq(onSaleOnly, Dish::getStatus, 1)
                        .orderByDesc(Dish::getIsRecommend)
                        .orderByAsc(Dish::getSortOrder);
                 List<Dish> dishes = dishMapper.selectList(wrapper);
@@ -116,6 +137,7 @@ public class DishService {
     /**
      * 获取菜品详情（包含规格）
      */
+    @ReplicaRead
     public DishDetailDTO getDetailWithSpecs(Long id) {
         Dish dish = dishMapper.selectById(id);
         if (dish == null) {
@@ -165,13 +187,17 @@ public class DishService {
         dish.setSortOrder(request.getSortOrder());
         dish.setHasSpecs(0); // 默认无规格
         dishMapper.insert(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
+    @RetryOnConflict
     public void updateDish(Long id, UpdateDishRequest request) {
         Dish dish = dishMapper.selectById(id);
         if (dish == null) {
             throw new BusinessException("菜品不存在");
         }
+        Integer oldStatus = dish.getStatus();
+        boolean wasSoldOut = MenuChangedEvent.isSoldOut(dish);
 
         if (request.getCategoryId() != null) {
             dish.setCategoryId(request.getCategoryId());
@@ -202,12 +228,18 @@ public class DishService {
         }
 
         dishMapper.updateById(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
+        if (!dish.getStatus().equals(oldStatus) || MenuChangedEvent.isSoldOut(dish) != wasSoldOut) {
+            eventPublisher.publishEvent(MenuChangedEvent.availability(dish));
+        }
     }
 
     public void deleteDish(Long id) {
         dishMapper.deleteById(id);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
+    @RetryOnConflict
     public void toggleStatus(Long id) {
         Dish dish = dishMapper.selectById(id);
         if (dish == null) {
@@ -215,12 +247,14 @@ public class DishService {
         }
         dish.setStatus(dish.getStatus() == 1 ? 0 : 1);
         dishMapper.updateById(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.availability(dish));
     }
 
     /**
      * 切换菜品规格模式
      */
     @Transactional
+    @RetryOnConflict
     public void toggleHasSpecs(Long id) {
         Dish dish = dishMapper.selectById(id);
         if (dish == null) {
@@ -239,11 +273,13 @@ public class DishService {
         }
         
         dishMapper.updateById(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 
     /**
      * 快速更新价格 (Pad端专用)
      */
+    @RetryOnConflict
     public void updatePrice(Long id, BigDecimal price) {
         if (price == null || price.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BusinessException("价格必须大于0");
@@ -256,5 +292,6 @@ public class DishService {
         
         dish.setPrice(price);
         dishMapper.updateById(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
 }
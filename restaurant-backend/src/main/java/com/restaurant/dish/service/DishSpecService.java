@@ -2,12 +2,15 @@ package com.restaurant.dish.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.optimistic.RetryOnConflict;
 import com.restaurant.dish.dto.*;
 import com.restaurant.dish.entity.Dish;
 import com.restaurant.dish.entity.DishSpec;
+import com.restaurant.dish.event.MenuChangedEvent;
 import com.restaurant.dish.mapper.DishMapper;
 import com.restaurant.dish.mapper.DishSpecMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +27,7 @@ public class DishSpecService {
     
     private final DishSpecMapper specMapper;
     private final DishMapper dishMapper;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * 获取菜品的所有启用的规格
@@ -56,6 +60,8 @@ public class DishSpecService {
     /**
      * 创建规格
      */
+    @Transactional
+    @RetryOnConflict
     public DishSpec create(CreateSpecRequest request) {
         // 验证菜品存在
         Dish dish = dishMapper.selectById(request.getDishId());
@@ -76,6 +82,7 @@ public class DishSpecService {
             dish.setHasSpecs(1);
             dishMapper.updateById(dish);
         }
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
         
         return spec;
     }
@@ -83,6 +90,7 @@ public class DishSpecService {
     /**
      * 更新规格
      */
+    @RetryOnConflict
     public void update(Long id, UpdateSpecRequest request) {
         DishSpec spec = specMapper.selectById(id);
         if (spec == null) {
@@ -103,11 +111,14 @@ public class DishSpecService {
         }
         
         specMapper.updateById(spec);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
     
     /**
      * 删除规格
      */
+    @Transactional
+    @RetryOnConflict
     public void delete(Long id) {
         DishSpec spec = specMapper.selectById(id);
         if (spec == null) {
@@ -125,6 +136,7 @@ public class DishSpecService {
                 dishMapper.updateById(dish);
             }
         }
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
     
     /**
@@ -132,6 +144,7 @@ public class DishSpecService {
      * 一次性保存菜品的所有规格
      */
     @Transactional
+    @RetryOnConflict
     public void batchUpdate(Long dishId, List<SpecItemRequest> specs) {
         // 1. 验证菜品存在
         Dish dish = dishMapper.selectById(dishId);
@@ -192,11 +205,14 @@ public class DishSpecService {
             .anyMatch(s -> s.getStatus() == null || s.getStatus() == 1);
         dish.setHasSpecs(hasActiveSpecs ? 1 : 0);
         dishMapper.updateById(dish);
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
     
     /**
      * 启用/禁用规格
      */
+    @Transactional
+    @RetryOnConflict
     public void toggleStatus(Long id) {
         DishSpec spec = specMapper.selectById(id);
         if (spec == null) {
@@ -213,6 +229,7 @@ public class DishSpecService {
             dish.setHasSpecs(activeSpecs.isEmpty() ? 0 : 1);
             dishMapper.updateById(dish);
         }
+        eventPublisher.publishEvent(MenuChangedEvent.structure());
     }
     
     /**
@@ -0,0 +1,145 @@
+package com.restaurant.dish.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 菜品可售状态推送（SSE）
+ * 顾客手机和点餐平板打开菜单后订阅，售罄、补货、上下架实时推送，菜单结构变化时通知重新拉取。
+ * 推送不做补发：客户端每次（重新）连接后重新拉取菜单，依靠 ETag 校验，菜单未变时开销很小。
+ */
+@Slf4j
+@Component
+public class MenuAvailabilityStream {
+
+    public static final String EVENT_AVAILABILITY = "availability";
+    public static final String EVENT_MENU = "menu";
+
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long BUSY_RETRY_MS = 30_000;
+
+    private final ObjectMapper objectMapper;
+    private final int maxConnections;
+
+    private final Set<SseEmitter> emitters = new CopyOnWriteArraySet<>();
+
+    // 慢客户端不阻塞事务提交线程
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "menu-push");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "menu-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder pushedEvents = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public MenuAvailabilityStream(ObjectMapper objectMapper,
+                                  @Value("${app.menu.max-stream-connections:2000}") int maxConnections,
+                                  @Value("${app.sse.heartbeat-interval-ms:15000}") long heartbeatIntervalMs) {
+        this.objectMapper = objectMapper;
+        this.maxConnections = maxConnections;
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat,
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        if (emitters.size() >= maxConnections) {
+            rejected.increment();
+            try {
+                emitter.send(SseEmitter.event().name("busy").reconnectTime(BUSY_RETRY_MS).data("连接数已满"));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("发送SSE拒绝消息失败: {}", e.getMessage());
+            }
+            emitter.complete();
+            return emitter;
+        }
+        try {
+            // 立即发送一行注释，让浏览器收到响应头并触发 open（客户端据此刷新菜单）
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 推送给本节点的所有订阅者
+     */
+    public void push(String name, Object data) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (Exception e) {
+            log.error("序列化菜单推送失败", e);
+            return;
+        }
+        pushExecutor.execute(() -> {
+            // SseEventBuilder 构建时会追加内容，不能在多个连接间复用
+            for (SseEmitter emitter : emitters) {
+                send(emitter, SseEmitter.event().name(name).data(json, MediaType.TEXT_PLAIN));
+            }
+            pushedEvents.increment();
+        });
+    }
+
+    private void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("hb"));
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", emitters.size());
+        stats.put("pushedEvents", pushedEvents.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        pushExecutor.shutdown();
+        emitters.forEach(SseEmitter::complete);
+    }
+}
@@ -0,0 +1,198 @@
+package com.restaurant.dish.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.dish.dto.CategoryWithDishesDTO;
+import com.restaurant.dish.dto.MenuAvailabilityDTO;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.event.MenuChangedEvent;
+import com.restaurant.websocket.WebSocketDispatcher;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 点餐端菜单快照
+ * 按分类的菜单（含规格）只在结构变化（分类、菜品信息、价格、规格）时重建，
+ * 售罄、补货、上下架只更新可售覆盖层，返回菜单时再叠加，不必为库存变化重建整个菜单。
+ * ETag 由结构版本和可售版本组成，客户端重新校验时未变化直接返回 304。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MenuSnapshotService {
+
+    private final DishService dishService;
+    private final MenuAvailabilityStream availabilityStream;
+    private final WebSocketDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    // 版本号所属的进程标识，节点重启后旧的 ETag 全部失效
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong structureVersion = new AtomicLong();
+    private final AtomicLong availabilityVersion = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    // 菜品ID -> 最新可售状态，快照重建后仍然保留（覆盖层只会比数据库读到的更新或相同）
+    private final Map<Long, Availability> overlay = new ConcurrentHashMap<>();
+
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder availabilityChanges = new LongAdder();
+
+    @PostConstruct
+    public void registerTopic() {
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_MENU, this::apply);
+    }
+
+    /**
+     * 当前菜单的 ETag
+     */
+    public String getEtag() {
+        return "\"" + epoch + "-" + structureVersion.get() + "-" + availabilityVersion.get() + "\"";
+    }
+
+    /**
+     * 获取按分类的在售菜单
+     * 每次返回新的菜品对象，调用方可以修改（如替换图片地址）而不影响快照
+     */
+    public List<CategoryWithDishesDTO> getMenu() {
+        List<CategoryWithDishesDTO> source = currentSnapshot().categories;
+        List<CategoryWithDishesDTO> result = new ArrayList<>(source.size());
+        for (CategoryWithDishesDTO category : source) {
+            List<Dish> dishes = new ArrayList<>(category.getDishes().size());
+            for (Dish dish : category.getDishes()) {
+                Availability availability = overlay.get(dish.getId());
+                Integer status = availability != null ? availability.status : dish.getStatus();
+                if (status == null || status != 1) {
+                    continue;
+                }
+                Dish copy = new Dish();
+                BeanUtils.copyProperties(dish, copy);
+                copy.setStatus(status);
+                copy.setSoldOut(availability != null ? availability.soldOut : MenuChangedEvent.isSoldOut(dish));
+                dishes.add(copy);
+            }
+            CategoryWithDishesDTO dto = new CategoryWithDishesDTO();
+            dto.setId(category.getId());
+            dto.setName(category.getName());
+            dto.setDishes(dishes);
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 按内存中的菜单校验菜品和规格可以下单，不查询数据库
+     * 只拦截已下架、售罄、规格停用等明显无效的请求，精确库存仍以下单事务为准
+     */
+    public void checkOrderable(Long dishId, Long specId, String dishName) {
+        Dish dish = currentSnapshot().dishes.get(dishId);
+        Availability availability = dish != null ? overlay.get(dishId) : null;
+        Integer status = availability != null ? availability.status : dish != null ? dish.getStatus() : null;
+        if (status == null || status != 1) {
+            throw new BusinessException("菜品不存在或已下架: " + dishName);
+        }
+        boolean soldOut = availability != null ? availability.soldOut : MenuChangedEvent.isSoldOut(dish);
+        if (soldOut) {
+            throw new BusinessException("菜品已售罄: " + dish.getName());
+        }
+        if (specId != null && (dish.getSpecs() == null
+                || dish.getSpecs().stream().noneMatch(spec -> specId.equals(spec.getId())))) {
+            throw new BusinessException("规格不存在或已禁用: " + dish.getName());
+        }
+    }
+
+    /**
+     * 菜单变更在事务提交后分发到 menu 频道（含其他节点）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        try {
+            MenuAvailabilityDTO message = event.isStructural()
+                    ? new MenuAvailabilityDTO()
+                    : new MenuAvailabilityDTO(event.getDishId(), event.getStatus(), event.isSoldOut());
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_MENU, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("分发菜单变更失败: {}", event.getDishId(), e);
+        }
+    }
+
+    private void apply(String payload) {
+        try {
+            MenuAvailabilityDTO change = objectMapper.readValue(payload, MenuAvailabilityDTO.class);
+            if (change.getDishId() == null) {
+                structureVersion.incrementAndGet();
+                snapshot = null;
+                availabilityStream.push(MenuAvailabilityStream.EVENT_MENU, change);
+                return;
+            }
+            overlay.put(change.getDishId(), new Availability(change.getStatus(), change.isSoldOut()));
+            availabilityVersion.incrementAndGet();
+            availabilityChanges.increment();
+            availabilityStream.push(MenuAvailabilityStream.EVENT_AVAILABILITY, change);
+        } catch (Exception e) {
+            log.error("处理菜单变更失败", e);
+        }
+    }
+
+    /**
+     * 快照失效后由第一个请求重建，其他请求等待同一次重建结果
+     */
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long version = structureVersion.get();
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            version = structureVersion.get();
+            if (current != null && current.version == version) {
+                return current;
+            }
+            current = new Snapshot(version, dishService.listMenuDishesByCategory());
+            rebuilds.increment();
+            // 重建期间又有结构变化时不缓存，下一个请求重新构建
+            if (structureVersion.get() == version) {
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("etag", getEtag());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("availabilityChanges", availabilityChanges.sum());
+        stats.put("overlaySize", overlay.size());
+        stats.put("stream", availabilityStream.getStats());
+        return stats;
+    }
+
+    private record Snapshot(long version, List<CategoryWithDishesDTO> categories, Map<Long, Dish> dishes) {
+
+        Snapshot(long version, List<CategoryWithDishesDTO> categories) {
+            this(version, categories, categories.stream()
+                    .flatMap(category -> category.getDishes().stream())
+                    .collect(Collectors.toMap(Dish::getId, Function.identity(), (a, b) -> a)));
+        }
+    }
+
+    private record Availability(Integer status, boolean soldOut) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.restaurant.inventory.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.inventory.entity.InventoryItem;
+import com.restaurant.inventory.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    /**
+     * 原料列表，预警的排在前面；warningStatus 可选 0正常 1低于安全库存 2缺货
+     */
+    @GetMapping("/items")
+    public Result<List<InventoryItem>> listItems(@RequestParam(required = false) Integer warningStatus) {
+        return Result.success(inventoryService.listItems(warningStatus));
+    }
+
+    @PostMapping("/items/{id}/stock-in")
+    public Result<Void> stockIn(@PathVariable Long id, @RequestParam BigDecimal quantity,
+                                Authentication authentication) {
+        inventoryService.stockIn(id, quantity, (Long) authentication.getPrincipal());
+        return Result.success();
+    }
+
+    /**
+     * 修改配方后立即重新加载配方索引
+     */
+    @PostMapping("/recipes/reload")
+    public Result<Void> reloadRecipes() {
+        inventoryService.reloadRecipes();
+        return Result.success();
+    }
+
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(inventoryService.getStats());
+    }
+}
@@ -0,0 +1,20 @@
+package com.restaurant.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单项对单个原料的预占量
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationLine {
+
+    private Long orderItemId;
+    private Long inventoryItemId;
+    private BigDecimal quantity;
+}
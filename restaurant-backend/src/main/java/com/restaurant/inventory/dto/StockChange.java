@@ -0,0 +1,20 @@
+package com.restaurant.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 单个原料的库存变化量，批量更新时每个原料一条
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChange {
+
+    private Long itemId;
+    private BigDecimal current;    // 当前库存变化量
+    private BigDecimal reserved;   // 已预占变化量
+}
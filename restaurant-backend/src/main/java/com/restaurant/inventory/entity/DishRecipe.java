@@ -0,0 +1,21 @@
+package com.restaurant.inventory.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.restaurant.common.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("dish_recipe")
+public class DishRecipe extends BaseEntity {
+
+    private Long dishId;            // 菜品ID
+    private Long specId;            // 规格ID（null表示基础配方）
+    private Long inventoryItemId;   // 原料ID
+    private BigDecimal quantity;    // 用量（主单位）
+    private Integer isMain;         // 是否主料：0辅料 1主料
+    private Integer sortOrder;      // 排序
+}
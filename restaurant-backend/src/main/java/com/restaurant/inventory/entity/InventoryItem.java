@@ -0,0 +1,28 @@
+package com.restaurant.inventory.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.restaurant.common.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("inventory_item")
+public class InventoryItem extends BaseEntity {
+
+    private String code;                // 原料编码
+    private String name;                // 原料名称
+    private String category;            // 分类：肉类/蔬菜/调料等
+    private String mainUnit;            // 主单位
+    private String auxUnit;             // 辅助单位
+    private BigDecimal conversionRate;  // 换算系数
+    private BigDecimal currentStock;    // 当前库存（主单位）
+    private BigDecimal reservedStock;   // 已预占库存
+    private BigDecimal availableStock;  // 可用库存 = 当前库存 - 已预占
+    private BigDecimal safetyStock;     // 安全库存阈值
+    private Integer warningStatus;      // 预警状态：0正常 1低于安全库存 2缺货
+    private Integer status;             // 状态：0禁用 1启用
+    private String remark;              // 备注
+}
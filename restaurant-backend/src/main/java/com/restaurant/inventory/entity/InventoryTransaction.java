@@ -0,0 +1,30 @@
+package com.restaurant.inventory.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.restaurant.common.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("inventory_transaction")
+public class InventoryTransaction extends BaseEntity {
+
+    public static final int TYPE_STOCK_IN = 1;   // 入库
+    public static final int TYPE_CONSUME = 2;    // 出库（开始制作时扣减）
+    public static final int TYPE_RESERVE = 3;    // 预占（下单时）
+    public static final int TYPE_RELEASE = 4;    // 释放（取消或未制作）
+    public static final int TYPE_ADJUST = 5;     // 盘点调整
+
+    private Long inventoryItemId;   // 原料ID
+    private Integer transactionType; // 类型：1入库 2出库 3预占 4释放 5盘点调整
+    private BigDecimal quantity;    // 数量（正数增加，负数减少）
+    private BigDecimal beforeStock; // 操作前库存
+    private BigDecimal afterStock;  // 操作后库存
+    private Long orderId;           // 关联订单ID
+    private Long orderItemId;       // 关联订单项ID
+    private String remark;          // 备注
+    private Long operatorId;        // 操作人ID
+}
@@ -0,0 +1,20 @@
+package com.restaurant.inventory.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.restaurant.inventory.entity.DishRecipe;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface DishRecipeMapper extends BaseMapper<DishRecipe> {
+
+    /**
+     * 所有有效配方（原料未删除且已启用）
+     */
+    @Select("SELECT r.* FROM dish_recipe r JOIN inventory_item i ON i.id = r.inventory_item_id " +
+            "WHERE r.is_deleted = 0 AND i.is_deleted = 0 AND i.status = 1 " +
+            "ORDER BY r.dish_id, r.spec_id, r.sort_order")
+    List<DishRecipe> selectActiveRecipes();
+}
@@ -0,0 +1,44 @@
+package com.restaurant.inventory.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.restaurant.inventory.dto.StockChange;
+import com.restaurant.inventory.entity.InventoryItem;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface InventoryItemMapper extends BaseMapper<InventoryItem> {
+
+    /**
+     * 锁定并读取一批原料，行锁按主键顺序获取，多个订单并发调整同一批原料也不会死锁
+     */
+    @Select("<script>" +
+            "SELECT * FROM inventory_item WHERE is_deleted = 0 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " ORDER BY id FOR UPDATE" +
+            "</script>")
+    List<InventoryItem> selectForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 一条语句批量调整多个原料的库存，并按调整后的可用库存重新计算预警状态
+     * MySQL 按顺序执行 SET 子句，后面的赋值使用前面已更新的值
+     */
+    @Update("<script>" +
+            "UPDATE inventory_item SET " +
+            "current_stock = current_stock + CASE id " +
+            "<foreach collection='changes' item='c'>WHEN #{c.itemId} THEN #{c.current} </foreach>END, " +
+            "reserved_stock = reserved_stock + CASE id " +
+            "<foreach collection='changes' item='c'>WHEN #{c.itemId} THEN #{c.reserved} </foreach>END, " +
+            "available_stock = current_stock - reserved_stock, " +
+            "warning_status = CASE WHEN available_stock &lt;= 0 THEN 2 " +
+            "WHEN available_stock &lt; IFNULL(safety_stock, 0) THEN 1 ELSE 0 END " +
+            "WHERE is_deleted = 0 AND id IN " +
+            "<foreach collection='changes' item='c' open='(' separator=',' close=')'>#{c.itemId}</foreach>" +
+            "</script>")
+    int applyChanges(@Param("changes") List<StockChange> changes);
+}
@@ -0,0 +1,49 @@
+package com.restaurant.inventory.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.restaurant.inventory.dto.ReservationLine;
+import com.restaurant.inventory.entity.InventoryTransaction;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface InventoryTransactionMapper extends BaseMapper<InventoryTransaction> {
+
+    /**
+     * 批量写入流水，ID和创建时间由写入方预先分配
+     */
+    @Insert("<script>" +
+            "INSERT INTO inventory_transaction (id, inventory_item_id, transaction_type, quantity, " +
+            "before_stock, after_stock, order_id, order_item_id, remark, operator_id, created_at, updated_at) VALUES " +
+            "<foreach collection='list' item='t' separator=','>" +
+            "(#{t.id}, #{t.inventoryItemId}, #{t.transactionType}, #{t.quantity}, #{t.beforeStock}, #{t.afterStock}, " +
+            "#{t.orderId}, #{t.orderItemId}, #{t.remark}, #{t.operatorId}, #{t.createdAt}, #{t.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int batchInsert(@Param("list") List<InventoryTransaction> transactions);
+
+    /**
+     * 订单中尚未扣减或释放的预占量（按订单项和原料汇总）
+     * 流水中预占、扣减记为负数，释放记为正数，未结清量 = 预占量 - 已释放 - 已扣减
+     * excludeIds 为当前事务中尚未写库的流水，由调用方自行合并，这里排除以免重复计算
+     */
+    @Select("<script>" +
+            "SELECT order_item_id AS orderItemId, inventory_item_id AS inventoryItemId, " +
+            "SUM(CASE transaction_type WHEN 2 THEN quantity ELSE -quantity END) AS quantity " +
+            "FROM inventory_transaction WHERE is_deleted = 0 AND order_id = #{orderId} " +
+            "AND transaction_type IN (2, 3, 4) " +
+            "<if test='orderItemIds != null'>AND order_item_id IN " +
+            "<foreach collection='orderItemIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></if>" +
+            "<if test='excludeIds != null and excludeIds.size() > 0'>AND id NOT IN " +
+            "<foreach collection='excludeIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></if>" +
+            "GROUP BY order_item_id, inventory_item_id " +
+            "HAVING SUM(CASE transaction_type WHEN 2 THEN quantity ELSE -quantity END) &gt; 0" +
+            "</script>")
+    List<ReservationLine> selectOutstanding(@Param("orderId") Long orderId,
+                                            @Param("orderItemIds") List<Long> orderItemIds,
+                                            @Param("excludeIds") List<Long> excludeIds);
+}
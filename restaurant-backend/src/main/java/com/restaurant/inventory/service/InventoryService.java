@@ -0,0 +1,283 @@
+package com.restaurant.inventory.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.inventory.dto.ReservationLine;
+import com.restaurant.inventory.dto.StockChange;
+import com.restaurant.inventory.entity.InventoryItem;
+import com.restaurant.inventory.entity.InventoryTransaction;
+import com.restaurant.inventory.mapper.InventoryItemMapper;
+import com.restaurant.inventory.mapper.InventoryTransactionMapper;
+import com.restaurant.order.entity.OrderItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 原料库存引擎
+ * - 下单：订单项按配方展开为原料用量并预占（可用库存减少）
+ * - 开始制作：预占转为实际扣减（当前库存和已预占同时减少）
+ * - 取消或完成时仍未制作：释放预占
+ * 一批订单项涉及的原料先按主键顺序加锁，再合并成一条语句更新并重算预警状态，不会互相死锁；
+ * 每次变化按订单项写入库存流水，扣减和释放以流水中的预占量为准，不受之后配方修改影响。
+ * 所有流水都随业务事务写库，预占量只以数据库为准：进程崩溃或由其他节点结算都不会丢失或重复结算；
+ * 预占、扣减、释放和入库流水都交给 {@link LedgerWriter} 在提交前合并成一条语句写入，
+ * 计算未结清预占时合并当前事务中尚未写库的部分。
+ * 调用方负责事务，库存不足时抛出异常使整个下单回滚。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final InventoryItemMapper inventoryItemMapper;
+    private final InventoryTransactionMapper transactionMapper;
+    private final RecipeIndex recipeIndex;
+    private final LedgerWriter ledgerWriter;
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder shortages = new LongAdder();
+    private final LongAdder consumptions = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+
+    /**
+     * 为新增的订单项预占原料
+     */
+    public void reserve(Long orderId, List<OrderItem> items) {
+        List<ReservationLine> lines = new ArrayList<>();
+        for (OrderItem item : items) {
+            for (RecipeIndex.RecipeLine recipe : recipeIndex.lookup(item.getDishId(), item.getSpecId())) {
+                BigDecimal quantity = recipe.quantity().multiply(BigDecimal.valueOf(item.getQuantity()));
+                lines.add(new ReservationLine(item.getId(), recipe.inventoryItemId(), quantity));
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Map<Long, BigDecimal> totals = sumByInventoryItem(lines);
+        Map<Long, InventoryItem> locked = lock(totals);
+        String shortage = locked.values().stream()
+                .filter(item -> item.getAvailableStock().compareTo(totals.get(item.getId())) < 0)
+                .map(InventoryItem::getName)
+                .collect(Collectors.joining("、"));
+        if (!shortage.isEmpty()) {
+            shortages.increment();
+            throw new BusinessException("原料库存不足: " + shortage);
+        }
+
+        inventoryItemMapper.applyChanges(toChanges(totals, 0, 1));
+        ledgerWriter.append(toLedger(orderId, lines, InventoryTransaction.TYPE_RESERVE, locked,
+                InventoryItem::getAvailableStock, true, "下单预占"));
+        reservations.increment();
+    }
+
+    /**
+     * 订单项开始制作，扣减其预占的原料
+     */
+    public void consume(Long orderId, List<Long> orderItemIds) {
+        if (orderItemIds.isEmpty()) {
+            return;
+        }
+        List<ReservationLine> lines = outstanding(orderId, orderItemIds);
+        if (lines.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> totals = sumByInventoryItem(lines);
+        Map<Long, InventoryItem> locked = lock(totals);
+        inventoryItemMapper.applyChanges(toChanges(totals, -1, -1));
+        ledgerWriter.append(toLedger(orderId, lines, InventoryTransaction.TYPE_CONSUME, locked,
+                InventoryItem::getCurrentStock, true, "开始制作"));
+        consumptions.increment();
+    }
+
+    /**
+     * 释放订单中尚未制作的预占（取消或完成订单时调用）
+     */
+    public void release(Long orderId) {
+        List<ReservationLine> lines = outstanding(orderId, null);
+        if (lines.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> totals = sumByInventoryItem(lines);
+        Map<Long, InventoryItem> locked = lock(totals);
+        inventoryItemMapper.applyChanges(toChanges(totals, 0, -1));
+        ledgerWriter.append(toLedger(orderId, lines, InventoryTransaction.TYPE_RELEASE, locked,
+                InventoryItem::getAvailableStock, false, "释放预占"));
+        releases.increment();
+    }
+
+    /**
+     * 原料入库
+     */
+    @Transactional
+    public void stockIn(Long inventoryItemId, BigDecimal quantity, Long operatorId) {
+        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BusinessException("入库数量必须大于0");
+        }
+        List<InventoryItem> locked = inventoryItemMapper.selectForUpdate(List.of(inventoryItemId));
+        if (locked.isEmpty()) {
+            throw new BusinessException("原料不存在");
+        }
+        inventoryItemMapper.applyChanges(List.of(new StockChange(inventoryItemId, quantity, BigDecimal.ZERO)));
+
+        BigDecimal before = locked.get(0).getCurrentStock();
+        InventoryTransaction transaction = new InventoryTransaction();
+        transaction.setInventoryItemId(inventoryItemId);
+        transaction.setTransactionType(InventoryTransaction.TYPE_STOCK_IN);
+        transaction.setQuantity(quantity);
+        transaction.setBeforeStock(before);
+        transaction.setAfterStock(before.add(quantity));
+        transaction.setOperatorId(operatorId);
+        transaction.setRemark("入库");
+        ledgerWriter.append(List.of(stamp(transaction)));
+    }
+
+    public List<InventoryItem> listItems(Integer warningStatus) {
+        LambdaQueryWrapper<InventoryItem> wrapper = new LambdaQueryWrapper<>();
+        if (warningStatus != null) {
+            wrapper.eq(InventoryItem::getWarningStatus, warningStatus);
+        }
+        wrapper.orderByDesc(InventoryItem::getWarningStatus)
+               .orderByAsc(InventoryItem::getCategory)
+               .orderByAsc(InventoryItem::getId);
+        return inventoryItemMapper.selectList(wrapper);
+    }
+
+    public void reloadRecipes() {
+        recipeIndex.reload();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recipes", recipeIndex.size());
+        stats.put("reservations", reservations.sum());
+        stats.put("shortages", shortages.sum());
+        stats.put("consumptions", consumptions.sum());
+        stats.put("releases", releases.sum());
+        stats.put("ledger", ledgerWriter.getStats());
+        return stats;
+    }
+
+    /**
+     * 按原料ID汇总，TreeMap 使后续加锁和更新都按主键顺序进行
+     */
+    private Map<Long, BigDecimal> sumByInventoryItem(List<ReservationLine> lines) {
+        Map<Long, BigDecimal> totals = new TreeMap<>();
+        for (ReservationLine line : lines) {
+            totals.merge(line.getInventoryItemId(), line.getQuantity(), BigDecimal::add);
+        }
+        return totals;
+    }
+
+    private Map<Long, InventoryItem> lock(Map<Long, BigDecimal> totals) {
+        Map<Long, InventoryItem> locked = new HashMap<>();
+        for (InventoryItem item : inventoryItemMapper.selectForUpdate(totals.keySet())) {
+            locked.put(item.getId(), item);
+        }
+        return locked;
+    }
+
+    /**
+     * 按方向把汇总量转成库存变化量，sign 为 1 增加、-1 减少、0 不变
+     */
+    private List<StockChange> toChanges(Map<Long, BigDecimal> totals, int currentSign, int reservedSign) {
+        List<StockChange> changes = new ArrayList<>(totals.size());
+        totals.forEach((id, quantity) -> changes.add(new StockChange(id,
+                quantity.multiply(BigDecimal.valueOf(currentSign)),
+                quantity.multiply(BigDecimal.valueOf(reservedSign)))));
+        return changes;
+    }
+
+    /**
+     * 按订单项生成流水，库存从加锁时读到的值依次累计
+     */
+    private List<InventoryTransaction> toLedger(Long orderId, List<ReservationLine> lines, int type, Map<Long, InventoryItem> locked,
+                             Function<InventoryItem, BigDecimal> stock, boolean decrease, String remark) {
+        Map<Long, BigDecimal> running = new HashMap<>();
+        List<InventoryTransaction> transactions = new ArrayList<>(lines.size());
+        for (ReservationLine line : lines) {
+            InventoryItem item = locked.get(line.getInventoryItemId());
+            if (item == null) {
+                // 原料已被删除，库存未调整，不记流水
+                continue;
+            }
+            BigDecimal quantity = decrease ? line.getQuantity().negate() : line.getQuantity();
+            BigDecimal before = running.computeIfAbsent(item.getId(), id -> stock.apply(item));
+            BigDecimal after = before.add(quantity);
+            running.put(item.getId(), after);
+
+            InventoryTransaction transaction = new InventoryTransaction();
+            transaction.setInventoryItemId(item.getId());
+            transaction.setTransactionType(type);
+            transaction.setQuantity(quantity);
+            transaction.setBeforeStock(before);
+            transaction.setAfterStock(after);
+            transaction.setOrderId(orderId);
+            transaction.setOrderItemId(line.getOrderItemId());
+            transaction.setRemark(remark);
+            transactions.add(stamp(transaction));
+        }
+        return transactions;
+    }
+
+    /**
+     * 流水追加时就分配ID和时间，结算时据此排除当前事务中尚未写库的部分，提交前写库也不影响记录时间
+     */
+    private InventoryTransaction stamp(InventoryTransaction transaction) {
+        transaction.setId(IdWorker.getId());
+        transaction.setCreatedAt(LocalDateTime.now());
+        return transaction;
+    }
+
+    /**
+     * 订单中尚未扣减或释放的预占量：已写库的流水由数据库汇总，当前事务中尚未写库的按同样规则合并
+     */
+    private List<ReservationLine> outstanding(Long orderId, List<Long> orderItemIds) {
+        List<InventoryTransaction> pending = ledgerWriter.pending(orderId);
+        List<Long> pendingIds = pending.stream().map(InventoryTransaction::getId).toList();
+        List<ReservationLine> persisted = transactionMapper.selectOutstanding(orderId, orderItemIds, pendingIds);
+        if (pending.isEmpty()) {
+            return persisted;
+        }
+
+        Map<List<Long>, BigDecimal> merged = new LinkedHashMap<>();
+        for (ReservationLine line : persisted) {
+            merged.merge(List.of(line.getOrderItemId(), line.getInventoryItemId()), line.getQuantity(), BigDecimal::add);
+        }
+        for (InventoryTransaction transaction : pending) {
+            Integer type = transaction.getTransactionType();
+            boolean settles = type == InventoryTransaction.TYPE_CONSUME;
+            if (!settles && type != InventoryTransaction.TYPE_RESERVE && type != InventoryTransaction.TYPE_RELEASE) {
+                continue;
+            }
+            if (orderItemIds != null && !orderItemIds.contains(transaction.getOrderItemId())) {
+                continue;
+            }
+            BigDecimal quantity = settles ? transaction.getQuantity() : transaction.getQuantity().negate();
+            merged.merge(List.of(transaction.getOrderItemId(), transaction.getInventoryItemId()), quantity, BigDecimal::add);
+        }
+
+        List<ReservationLine> lines = new ArrayList<>();
+        merged.forEach((key, quantity) -> {
+            if (quantity.signum() > 0) {
+                lines.add(new ReservationLine(key.get(0), key.get(1), quantity));
+            }
+        });
+        return lines;
+    }
+}
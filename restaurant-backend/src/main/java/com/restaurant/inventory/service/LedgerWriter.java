@@ -0,0 +1,124 @@
+package com.restaurant.inventory.service;
+
+import com.restaurant.inventory.entity.InventoryTransaction;
+import com.restaurant.inventory.mapper.InventoryTransactionMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存流水批量写入
+ * - 事务内追加的流水先在事务中暂存，提交前（beforeCommit）合并成多行 INSERT 随业务事务一起提交：
+ *   一个事务无论追加多少次只写一条语句（超过 batch-size 行时分成多条），流水与库存变化同时生效或同时回滚
+ * - 合并只在单个业务事务内进行，不跨事务攒批，也没有本地日志和后台线程：提交返回时流水已经在库里，
+ *   进程崩溃不会丢失，其他节点立即可见
+ * - 事务外追加的流水直接同步写库
+ * - 当前事务中尚未写库的流水可通过 {@link #pending(Long)} 查询，库存结算时与数据库记录合并
+ */
+@Component
+public class LedgerWriter {
+
+    private final InventoryTransactionMapper transactionMapper;
+    private final int batchSize;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder flushedRecords = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder committedWithTransaction = new LongAdder();
+    private final LongAdder direct = new LongAdder();
+
+    public LedgerWriter(InventoryTransactionMapper transactionMapper,
+                        @Value("${app.inventory.ledger.batch-size:200}") int batchSize) {
+        this.transactionMapper = transactionMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 提交流水：当前有事务时在事务提交前随事务写库，回滚的事务不留下流水；没有事务时立即写库
+     */
+    public void append(List<InventoryTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        appended.add(transactions.size());
+        List<InventoryTransaction> uncommitted = uncommitted(true);
+        if (uncommitted != null) {
+            uncommitted.addAll(transactions);
+        } else {
+            insert(transactions);
+            direct.add(transactions.size());
+        }
+    }
+
+    /**
+     * 订单在当前事务中尚未写库的流水
+     */
+    public List<InventoryTransaction> pending(Long orderId) {
+        List<InventoryTransaction> uncommitted = uncommitted(false);
+        if (uncommitted == null) {
+            return List.of();
+        }
+        return uncommitted.stream()
+                .filter(transaction -> Objects.equals(orderId, transaction.getOrderId()))
+                .toList();
+    }
+
+    /**
+     * 当前事务中追加的流水，提交前统一写库；没有事务时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private List<InventoryTransaction> uncommitted(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        List<InventoryTransaction> bound = (List<InventoryTransaction>) TransactionSynchronizationManager.getResource(this);
+        if (bound == null && create) {
+            List<InventoryTransaction> list = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, list);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // 仍在业务事务和连接上执行，写库失败时异常使整个事务回滚
+                    insert(list);
+                    committedWithTransaction.add(list.size());
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LedgerWriter.this);
+                }
+            });
+            bound = list;
+        }
+        return bound;
+    }
+
+    private void insert(List<InventoryTransaction> transactions) {
+        for (int from = 0; from < transactions.size(); from += batchSize) {
+            transactionMapper.batchInsert(transactions.subList(from, Math.min(from + batchSize, transactions.size())));
+            batches.increment();
+        }
+        flushedRecords.add(transactions.size());
+    }
+
+    public Map<String, Object> getStats() {
+        long flushed = flushedRecords.sum();
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("appended", appended.sum());
+        stats.put("flushed", flushed);
+        stats.put("batches", batchCount);
+        stats.put("recordsPerBatch", batchCount == 0 ? 0 : (double) flushed / batchCount);
+        stats.put("committedWithTransaction", committedWithTransaction.sum());
+        stats.put("direct", direct.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,93 @@
+package com.restaurant.inventory.service;
+
+import com.restaurant.inventory.entity.DishRecipe;
+import com.restaurant.inventory.mapper.DishRecipeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 菜品配方的内存索引
+ * 下单时按（菜品, 规格）展开原料用量不再查库；规格有专属配方时用规格配方，否则用菜品基础配方。
+ * 配方很少变化，索引整体替换，超过刷新间隔后由下一次访问重新加载。
+ */
+@Slf4j
+@Component
+public class RecipeIndex {
+
+    private final DishRecipeMapper dishRecipeMapper;
+    private final long refreshIntervalMs;
+
+    private volatile Snapshot snapshot;
+
+    public RecipeIndex(DishRecipeMapper dishRecipeMapper,
+                       @Value("${app.inventory.recipe-refresh-ms:60000}") long refreshIntervalMs) {
+        this.dishRecipeMapper = dishRecipeMapper;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * 一份菜品（规格）所需的原料
+     *
+     * @return 未配置配方时返回空列表
+     */
+    public List<RecipeLine> lookup(Long dishId, Long specId) {
+        Snapshot current = current();
+        if (specId != null) {
+            List<RecipeLine> lines = current.recipes.get(new RecipeKey(dishId, specId));
+            if (lines != null) {
+                return lines;
+            }
+        }
+        return current.recipes.getOrDefault(new RecipeKey(dishId, null), Collections.emptyList());
+    }
+
+    /**
+     * 立即重新加载（配方或原料启用状态修改后调用）
+     */
+    public synchronized void reload() {
+        Map<RecipeKey, List<RecipeLine>> recipes = new HashMap<>();
+        List<DishRecipe> rows = dishRecipeMapper.selectActiveRecipes();
+        for (DishRecipe recipe : rows) {
+            recipes.computeIfAbsent(new RecipeKey(recipe.getDishId(), recipe.getSpecId()), k -> new ArrayList<>())
+                    .add(new RecipeLine(recipe.getInventoryItemId(), recipe.getQuantity()));
+        }
+        recipes.replaceAll((key, lines) -> List.copyOf(lines));
+        snapshot = new Snapshot(Map.copyOf(recipes), System.currentTimeMillis());
+        log.info("配方索引已加载: {} 个配方, {} 条原料", recipes.size(), rows.size());
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.recipes.size() : 0;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || System.currentTimeMillis() - current.loadedAt > refreshIntervalMs) {
+            synchronized (this) {
+                if (snapshot == current) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    public record RecipeLine(Long inventoryItemId, BigDecimal quantity) {
+    }
+
+    private record RecipeKey(Long dishId, Long specId) {
+    }
+
+    private record Snapshot(Map<RecipeKey, List<RecipeLine>> recipes, long loadedAt) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.restaurant.kitchen.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.common.datasource.Workload;
+import com.restaurant.common.datasource.WorkloadType;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.kitchen.dto.BatchCookingDTO;
+import com.restaurant.kitchen.dto.StationQueueDTO;
+import com.restaurant.kitchen.service.KitchenQueueService;
+import com.restaurant.order.service.OrderStatusService;
+import com.restaurant.websocket.WebSocketMessageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/kitchen")
+@RequiredArgsConstructor
+@Workload(WorkloadType.KITCHEN)
+public class KitchenController {
+
+    private final KitchenQueueService kitchenQueueService;
+    private final OrderStatusService orderStatusService;
+    private final WebSocketMessageService webSocketMessageService;
+
+    /**
+     * 后厨出菜队列（内存视图，不查询数据库）
+     */
+    @GetMapping("/queue")
+    public Result<List<StationQueueDTO>> queue(@RequestParam(required = false) Long stationId) {
+        return Result.success(kitchenQueueService.getQueue(stationId));
+    }
+
+    /**
+     * 合并制作视图：按菜品和规格汇总所有桌台的待制作/制作中数量
+     */
+    @GetMapping("/batches")
+    public Result<List<BatchCookingDTO>> batches() {
+        return Result.success(kitchenQueueService.getBatches());
+    }
+
+    /**
+     * 一键开始制作某菜品某规格的全部待制作份数
+     */
+    @PostMapping("/batches/start")
+    public Result<List<Long>> startBatch(@RequestParam Long dishId, @RequestParam(required = false) Long specId) {
+        List<Long> itemIds = kitchenQueueService.getPendingItemIds(dishId, specId);
+        if (itemIds.isEmpty()) {
+            throw new BusinessException("没有待制作的菜品");
+        }
+        orderStatusService.updateItemsStatus(itemIds, 1);
+        itemIds.forEach(itemId -> webSocketMessageService.notifyItemStatus(itemId, 1));
+        return Result.success(itemIds);
+    }
+
+    /**
+     * 从数据库重建队列
+     */
+    @PostMapping("/queue/reload")
+    public Result<Void> reload() {
+        kitchenQueueService.reload();
+        return Result.success();
+    }
+}
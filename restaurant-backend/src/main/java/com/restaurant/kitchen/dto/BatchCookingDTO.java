@@ -0,0 +1,23 @@
+package com.restaurant.kitchen.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 合并制作视图：同一菜品同一规格在所有桌台的待制作/制作中数量
+ * 例如 "宫保鸡丁 大份 ×3，来自 3/7/12 号桌"
+ */
+@Data
+public class BatchCookingDTO {
+
+    private Long dishId;
+    private String dishName;
+    private Long specId;              // 无规格时为空
+    private String specName;
+    private Integer pendingQuantity;  // 待制作份数
+    private Integer cookingQuantity;  // 制作中份数
+    private List<Long> pendingItemIds;
+    private List<Long> cookingItemIds;
+    private List<String> tableNos;    // 待制作菜品所在桌台
+}
@@ -0,0 +1,26 @@
+package com.restaurant.kitchen.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 后厨队列中的一道菜
+ */
+@Data
+public class KitchenTicketDTO {
+
+    private Long itemId;
+    private Long orderId;
+    private String tableNo;
+    private Long dishId;
+    private String dishName;
+    private String specName;
+    private Integer quantity;
+    private String remark;
+    private Integer status;         // 0待制作 1制作中
+    private Boolean paid;           // 是否已结账
+    private Boolean addOn;          // 是否为加菜
+    private LocalDateTime createdAt;
+    private Long waitSeconds;       // 已等待秒数
+}
@@ -0,0 +1,17 @@
+package com.restaurant.kitchen.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 单个档口的出菜队列（档口按菜品分类划分）
+ */
+@Data
+public class StationQueueDTO {
+
+    private Long stationId;                  // 分类ID
+    private String stationName;              // 分类名称
+    private List<KitchenTicketDTO> cooking;  // 制作中，按优先级排序
+    private List<KitchenTicketDTO> pending;  // 待制作，按优先级排序
+}
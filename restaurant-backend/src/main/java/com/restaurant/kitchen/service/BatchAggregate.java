@@ -0,0 +1,140 @@
+package com.restaurant.kitchen.service;
+
+import com.restaurant.kitchen.dto.BatchCookingDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按 (菜品, 规格) 汇总的待制作/制作中数量
+ * 随后厨队列的入队、出队增量维护，不单独加锁，由 {@link KitchenQueueService} 保证串行访问
+ */
+class BatchAggregate {
+
+    private final Map<Key, Group> groups = new LinkedHashMap<>();
+
+    // 本次变更涉及的分组，用于推送增量
+    private final Set<Key> dirty = new HashSet<>();
+
+    void add(long itemId, Long dishId, String dishName, Long specId, String specName,
+             String tableNo, int quantity, int status) {
+        Key key = new Key(dishId, specId);
+        Group group = groups.computeIfAbsent(key, k -> new Group(dishName, specName));
+        group.of(status).put(itemId, new Portion(quantity, tableNo));
+        dirty.add(key);
+    }
+
+    void remove(long itemId, Long dishId, Long specId, int status) {
+        Key key = new Key(dishId, specId);
+        Group group = groups.get(key);
+        if (group == null) {
+            return;
+        }
+        group.of(status).remove(itemId);
+        if (group.pending.isEmpty() && group.cooking.isEmpty()) {
+            groups.remove(key);
+        }
+        dirty.add(key);
+    }
+
+    void clear() {
+        groups.clear();
+        dirty.clear();
+    }
+
+    /**
+     * 清空分组但把原有分组记为变更，重建后未再出现的分组以数量0推送
+     */
+    void reset() {
+        dirty.addAll(groups.keySet());
+        groups.clear();
+    }
+
+    /**
+     * 全部分组，待制作份数多的排在前面
+     */
+    List<BatchCookingDTO> snapshot() {
+        List<BatchCookingDTO> list = new ArrayList<>(groups.size());
+        groups.forEach((key, group) -> list.add(toDTO(key, group)));
+        list.sort(Comparator.comparing(BatchCookingDTO::getPendingQuantity).reversed()
+                .thenComparing(BatchCookingDTO::getDishId));
+        return list;
+    }
+
+    /**
+     * 取出并清空本次变更涉及的分组（已清空的分组数量为0）
+     */
+    List<BatchCookingDTO> drainChanges() {
+        List<BatchCookingDTO> list = new ArrayList<>(dirty.size());
+        for (Key key : dirty) {
+            Group group = groups.get(key);
+            list.add(group != null ? toDTO(key, group) : emptyDTO(key));
+        }
+        dirty.clear();
+        return list;
+    }
+
+    List<Long> pendingItemIds(Long dishId, Long specId) {
+        Group group = groups.get(new Key(dishId, specId));
+        return group == null ? List.of() : new ArrayList<>(group.pending.keySet());
+    }
+
+    private static BatchCookingDTO toDTO(Key key, Group group) {
+        BatchCookingDTO dto = emptyDTO(key);
+        dto.setDishName(group.dishName);
+        dto.setSpecName(group.specName);
+        dto.setPendingQuantity(group.pending.values().stream().mapToInt(Portion::quantity).sum());
+        dto.setCookingQuantity(group.cooking.values().stream().mapToInt(Portion::quantity).sum());
+        dto.setPendingItemIds(new ArrayList<>(group.pending.keySet()));
+        dto.setCookingItemIds(new ArrayList<>(group.cooking.keySet()));
+        Set<String> tables = new LinkedHashSet<>();
+        group.pending.values().forEach(p -> {
+            if (p.tableNo() != null) {
+                tables.add(p.tableNo());
+            }
+        });
+        dto.setTableNos(new ArrayList<>(tables));
+        return dto;
+    }
+
+    private static BatchCookingDTO emptyDTO(Key key) {
+        BatchCookingDTO dto = new BatchCookingDTO();
+        dto.setDishId(key.dishId());
+        dto.setSpecId(key.specId());
+        dto.setPendingQuantity(0);
+        dto.setCookingQuantity(0);
+        dto.setPendingItemIds(List.of());
+        dto.setCookingItemIds(List.of());
+        dto.setTableNos(List.of());
+        return dto;
+    }
+
+    private record Key(Long dishId, Long specId) {
+    }
+
+    private record Portion(int quantity, String tableNo) {
+    }
+
+    private static class Group {
+        final String dishName;
+        final String specName;
+        // 菜品ID -> 份数，按入队顺序
+        final Map<Long, Portion> pending = new LinkedHashMap<>();
+        final Map<Long, Portion> cooking = new LinkedHashMap<>();
+
+        Group(String dishName, String specName) {
+            this.dishName = dishName;
+            this.specName = specName;
+        }
+
+        Map<Long, Portion> of(int status) {
+            return status == 1 ? cooking : pending;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.restaurant.kitchen.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.entity.DishCategory;
+import com.restaurant.dish.mapper.CategoryMapper;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.kitchen.dto.BatchCookingDTO;
+import com.restaurant.kitchen.dto.KitchenTicketDTO;
+import com.restaurant.kitchen.dto.StationQueueDTO;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.websocket.ClusterMessageReceivedEvent;
+import com.restaurant.websocket.WebSocketDispatcher;
+import com.restaurant.websocket.WebSocketMessageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * 后厨出菜队列
+ * 在内存中维护所有待制作、制作中的菜品，按档口（菜品分类）分组并按优先级排序。
+ * 订单变更事件在事务提交后增量更新队列，每次变更 O(log n)，查询队列不访问数据库。
+ *
+ * 优先级：等待时间越长越靠前；已结账、加菜分别提前若干秒；
+ * 同等优先级时先下单的桌台优先，同桌菜品排在一起。
+ * 所有菜品的等待时间同步增长，因此排序键只需在入队时计算一次。
+ *
+ * 同时维护按 (菜品, 规格) 汇总的合并制作视图，变更后推送涉及的分组。
+ *
+ * 集群模式下其他节点提交的订单变更经中继转发为 remote 事件，同样增量更新；
+ * 只有中继发现转发消息丢失（序号不连续）时才标记队列过期，下一次查询或变更时从数据库重建。
+ * 读写都在本对象的锁内进行，查询不会看到重建或变更到一半的队列。
+ */
+@Slf4j
+@Service
+public class KitchenQueueService {
+
+    private static final Long UNKNOWN_STATION = 0L;
+    private static final String UNKNOWN_STATION_NAME = "其他";
+
+    // 下单后超过该时间才加入的菜品视为加菜
+    private static final Duration ADD_ON_THRESHOLD = Duration.ofMinutes(1);
+
+    private static final Comparator<Ticket> PRIORITY = Comparator
+            .comparingLong(Ticket::sortKey)
+            .thenComparingLong(Ticket::orderCreatedAt)
+            .thenComparingLong(Ticket::orderId)
+            .thenComparingLong(Ticket::itemId);
+
+    private final OrderMapper orderMapper;
+    private final OrderItemMapper orderItemMapper;
+    private final DishMapper dishMapper;
+    private final CategoryMapper categoryMapper;
+    private final WebSocketMessageService webSocketMessageService;
+    private final long paidBonusMs;
+    private final long addOnBonusMs;
+
+    private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();          // 菜品ID -> 队列项
+    private final Map<Long, Set<Long>> orderTickets = new ConcurrentHashMap<>();  // 订单ID -> 菜品ID
+    private final Map<Long, StationQueue> stations = new ConcurrentHashMap<>();   // 档口ID -> 队列
+    private final Map<Long, OrderInfo> orders = new ConcurrentHashMap<>();        // 订单ID -> 桌台信息
+    private final Map<Long, Long> dishStations = new ConcurrentHashMap<>();       // 菜品ID -> 档口ID
+    private final Map<Long, String> stationNames = new ConcurrentHashMap<>();     // 档口ID -> 名称
+    private final BatchAggregate batches = new BatchAggregate();
+
+    private volatile boolean loaded = false;
+    // 丢失了其他节点转发的变更，本节点的内存视图需要从数据库重建
+    private volatile boolean stale = false;
+
+    public KitchenQueueService(OrderMapper orderMapper,
+                               OrderItemMapper orderItemMapper,
+                               DishMapper dishMapper,
+                               CategoryMapper categoryMapper,
+                               WebSocketMessageService webSocketMessageService,
+                               @Value("${app.kitchen.priority.paid-bonus-seconds:120}") long paidBonusSeconds,
+                               @Value("${app.kitchen.priority.add-on-bonus-seconds:300}") long addOnBonusSeconds) {
+        this.orderMapper = orderMapper;
+        this.orderItemMapper = orderItemMapper;
+        this.dishMapper = dishMapper;
+        this.categoryMapper = categoryMapper;
+        this.webSocketMessageService = webSocketMessageService;
+        this.paidBonusMs = paidBonusSeconds * 1000;
+        this.addOnBonusMs = addOnBonusSeconds * 1000;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // 数据库暂不可用时，首次查询队列时再加载
+            log.warn("加载后厨队列失败，将在首次查询时重试: {}", e.toString());
+        }
+    }
+
+    /**
+     * 从数据库重建队列
+     */
+    public synchronized void reload() {
+        dishStations.clear();
+        stationNames.clear();
+        for (DishCategory category : categoryMapper.selectList(null)) {
+            stationNames.put(category.getId(), category.getName());
+        }
+        rebuild(false);
+        loaded = true;
+        log.info("后厨队列已加载: {} 道菜, {} 个档口", tickets.size(), stations.size());
+    }
+
+    /**
+     * 从数据库重建队列和合并制作视图，菜品所属档口的缓存保留
+     *
+     * @param trackChanges 为 true 时把重建前后涉及的合并制作分组都记为变更，供推送
+     */
+    private void rebuild(boolean trackChanges) {
+        // 先清除标记，重建期间再收到的失效通知会在下一次访问时处理
+        stale = false;
+        tickets.clear();
+        orderTickets.clear();
+        stations.clear();
+        orders.clear();
+        if (trackChanges) {
+            batches.reset();
+        } else {
+            batches.clear();
+        }
+
+        List<Order> activeOrders = orderMapper.selectActiveOrders();
+        if (!activeOrders.isEmpty()) {
+            Map<Long, Order> orderMap = activeOrders.stream()
+                    .collect(Collectors.toMap(Order::getId, o -> o));
+            activeOrders.forEach(this::rememberOrder);
+
+            LambdaQueryWrapper<OrderItem> wrapper = new LambdaQueryWrapper<>();
+            wrapper.in(OrderItem::getOrderId, orderMap.keySet())
+                   .in(OrderItem::getStatus, 0, 1);
+            for (OrderItem item : orderItemMapper.selectList(wrapper)) {
+                Order order = orderMap.get(item.getOrderId());
+                boolean addOn = item.getCreatedAt() != null && order.getCreatedAt() != null
+                        && item.getCreatedAt().isAfter(order.getCreatedAt().plus(ADD_ON_THRESHOLD));
+                enqueue(item, addOn);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded || stale) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                } else if (stale) {
+                    rebuild(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * 其他节点转发的订单变更有消息丢失，增量无法补齐
+     */
+    @EventListener
+    public void onClusterMessage(ClusterMessageReceivedEvent event) {
+        if (event.isGap() && WebSocketDispatcher.TOPIC_ORDER_CHANGED.equals(event.getTopic())) {
+            stale = true;
+        }
+    }
+
+    /**
+     * 订单变更后增量更新队列（本节点的在事务提交后执行，其他节点的经中继转发后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderChanged(OrderChangedEvent event) {
+        if (!loaded) {
+            // 尚未加载时变更已落库，加载时会一并读取
+            return;
+        }
+        if (stale) {
+            // 重建时从数据库读到的已包含本次变更，推送重建前后涉及的全部分组
+            rebuild(true);
+        } else {
+            apply(event);
+        }
+
+        List<BatchCookingDTO> changes = batches.drainChanges();
+        if (!changes.isEmpty()) {
+            webSocketMessageService.notifyBatchUpdate(changes);
+        }
+    }
+
+    private void apply(OrderChangedEvent event) {
+        switch (event.getType()) {
+            case ITEMS_ADDED -> {
+                rememberOrder(event.getOrder());
+                for (OrderItem item : event.getItems()) {
+                    if (isQueued(item.getStatus())) {
+                        enqueue(item, event.isAddOn());
+                    }
+                }
+            }
+            case ITEM_STATUS -> event.getItems().forEach(this::onItemStatus);
+            case ITEMS_PAID -> event.getItems().forEach(item -> {
+                Ticket ticket = tickets.get(item.getId());
+                if (ticket != null && !ticket.paid()) {
+                    replace(ticket, ticket.withPaid(true, paidBonusMs));
+                }
+            });
+            case CANCELLED, COMPLETED -> removeOrder(event.getOrderId());
+        }
+    }
+
+    private void onItemStatus(OrderItem item) {
+        Ticket ticket = tickets.get(item.getId());
+        if (!isQueued(item.getStatus())) {
+            if (ticket != null) {
+                remove(ticket);
+            }
+            return;
+        }
+        if (ticket != null) {
+            if (ticket.status() != item.getStatus()) {
+                replace(ticket, ticket.withStatus(item.getStatus()));
+            }
+            return;
+        }
+        // 已完成的菜品被退回：重新入队
+        if (!orders.containsKey(item.getOrderId())) {
+            Order order = orderMapper.selectById(item.getOrderId());
+            if (order == null || order.getStatus() >= 3) {
+                return;
+            }
+            rememberOrder(order);
+        }
+        enqueue(item, false);
+    }
+
+    private static boolean isQueued(Integer status) {
+        return status != null && (status == 0 || status == 1);
+    }
+
+    private void rememberOrder(Order order) {
+        long createdAt = order.getCreatedAt() != null ? toMillis(order.getCreatedAt()) : System.currentTimeMillis();
+        orders.put(order.getId(), new OrderInfo(order.getTableNo(), createdAt));
+    }
+
+    private void enqueue(OrderItem item, boolean addOn) {
+        OrderInfo orderInfo = orders.get(item.getOrderId());
+        LocalDateTime createdAt = item.getCreatedAt() != null ? item.getCreatedAt() : LocalDateTime.now();
+        boolean paid = item.getIsPaid() != null && item.getIsPaid() == 1;
+
+        long sortKey = toMillis(createdAt);
+        if (paid) {
+            sortKey -= paidBonusMs;
+        }
+        if (addOn) {
+            sortKey -= addOnBonusMs;
+        }
+
+        Ticket ticket = new Ticket(item.getId(), item.getOrderId(),
+                orderInfo != null ? orderInfo.tableNo() : null,
+                orderInfo != null ? orderInfo.createdAt() : toMillis(createdAt),
+                stationOf(item.getDishId()), item.getDishId(), item.getDishName(),
+                item.getSpecId(), item.getSpecName(),
+                item.getQuantity(), item.getRemark(), item.getStatus(), paid, addOn, createdAt, sortKey);
+
+        Ticket previous = tickets.get(ticket.itemId());
+        if (previous != null) {
+            remove(previous);
+        }
+        add(ticket);
+    }
+
+    private void add(Ticket ticket) {
+        tickets.put(ticket.itemId(), ticket);
+        orderTickets.computeIfAbsent(ticket.orderId(), k -> ConcurrentHashMap.newKeySet()).add(ticket.itemId());
+        stations.computeIfAbsent(ticket.stationId(), k -> new StationQueue()).of(ticket.status()).add(ticket);
+        batches.add(ticket.itemId(), ticket.dishId(), ticket.dishName(), ticket.specId(), ticket.specName(),
+                ticket.tableNo(), ticket.quantity() != null ? ticket.quantity() : 0, ticket.status());
+    }
+
+    private void remove(Ticket ticket) {
+        tickets.remove(ticket.itemId());
+        Set<Long> items = orderTickets.get(ticket.orderId());
+        if (items != null) {
+            items.remove(ticket.itemId());
+        }
+        StationQueue queue = stations.get(ticket.stationId());
+        if (queue != null) {
+            queue.of(ticket.status()).remove(ticket);
+        }
+        batches.remove(ticket.itemId(), ticket.dishId(), ticket.specId(), ticket.status());
+    }
+
+    private void replace(Ticket oldTicket, Ticket newTicket) {
+        remove(oldTicket);
+        add(newTicket);
+    }
+
+    private void removeOrder(Long orderId) {
+        Set<Long> items = orderTickets.remove(orderId);
+        if (items != null) {
+            for (Long itemId : items) {
+                Ticket ticket = tickets.get(itemId);
+                if (ticket != null) {
+                    remove(ticket);
+                }
+            }
+        }
+        orders.remove(orderId);
+    }
+
+    /**
+     * 菜品所属档口，首次遇到的菜品查询一次分类后缓存
+     */
+    private Long stationOf(Long dishId) {
+        return dishStations.computeIfAbsent(dishId, id -> {
+            Dish dish = dishMapper.selectById(id);
+            if (dish == null || dish.getCategoryId() == null) {
+                return UNKNOWN_STATION;
+            }
+            stationNames.computeIfAbsent(dish.getCategoryId(), cid -> {
+                DishCategory category = categoryMapper.selectById(cid);
+                return category != null ? category.getName() : UNKNOWN_STATION_NAME;
+            });
+            return dish.getCategoryId();
+        });
+    }
+
+    /**
+     * 获取出菜队列
+     *
+     * @param stationId 档口ID，为空时返回全部档口
+     */
+    public synchronized List<StationQueueDTO> getQueue(Long stationId) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        List<StationQueueDTO> result = new ArrayList<>();
+        stations.entrySet().stream()
+                .filter(e -> stationId == null || stationId.equals(e.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    StationQueueDTO dto = new StationQueueDTO();
+                    dto.setStationId(e.getKey());
+                    dto.setStationName(stationNames.getOrDefault(e.getKey(), UNKNOWN_STATION_NAME));
+                    dto.setCooking(toDTOs(e.getValue().cooking, now));
+                    dto.setPending(toDTOs(e.getValue().pending, now));
+                    if (!dto.getCooking().isEmpty() || !dto.getPending().isEmpty()) {
+                        result.add(dto);
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * 合并制作视图
+     */
+    public synchronized List<BatchCookingDTO> getBatches() {
+        ensureLoaded();
+        return batches.snapshot();
+    }
+
+    /**
+     * 某菜品某规格当前所有待制作的菜品ID（用于一键开始制作）
+     */
+    public synchronized List<Long> getPendingItemIds(Long dishId, Long specId) {
+        ensureLoaded();
+        return batches.pendingItemIds(dishId, specId);
+    }
+
+    private List<KitchenTicketDTO> toDTOs(NavigableSet<Ticket> queue, long now) {
+        List<KitchenTicketDTO> list = new ArrayList<>(queue.size());
+        for (Ticket ticket : queue) {
+            KitchenTicketDTO dto = new KitchenTicketDTO();
+            dto.setItemId(ticket.itemId());
+            dto.setOrderId(ticket.orderId());
+            dto.setTableNo(ticket.tableNo());
+            dto.setDishId(ticket.dishId());
+            dto.setDishName(ticket.dishName());
+            dto.setSpecName(ticket.specName());
+            dto.setQuantity(ticket.quantity());
+            dto.setRemark(ticket.remark());
+            dto.setStatus(ticket.status());
+            dto.setPaid(ticket.paid());
+            dto.setAddOn(ticket.addOn());
+            dto.setCreatedAt(ticket.createdAt());
+            dto.setWaitSeconds(Math.max(0, (now - toMillis(ticket.createdAt())) / 1000));
+            list.add(dto);
+        }
+        return list;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record OrderInfo(String tableNo, long createdAt) {
+    }
+
+    private record Ticket(long itemId, long orderId, String tableNo, long orderCreatedAt,
+                          Long stationId, Long dishId, String dishName, Long specId, String specName,
+                          Integer quantity, String remark, int status, boolean paid, boolean addOn,
+                          LocalDateTime createdAt, long sortKey) {
+
+        Ticket withStatus(int newStatus) {
+            return new Ticket(itemId, orderId, tableNo, orderCreatedAt, stationId, dishId, dishName, specId, specName,
+                    quantity, remark, newStatus, paid, addOn, createdAt, sortKey);
+        }
+
+        Ticket withPaid(boolean newPaid, long paidBonusMs) {
+            long key = newPaid == paid ? sortKey : (newPaid ? sortKey - paidBonusMs : sortKey + paidBonusMs);
+            return new Ticket(itemId, orderId, tableNo, orderCreatedAt, stationId, dishId, dishName, specId, specName,
+                    quantity, remark, status, newPaid, addOn, createdAt, key);
+        }
+    }
+
+    private static class StationQueue {
+        final NavigableSet<Ticket> pending = new ConcurrentSkipListSet<>(PRIORITY);
+        final NavigableSet<Ticket> cooking = new ConcurrentSkipListSet<>(PRIORITY);
+
+        NavigableSet<Ticket> of(int status) {
+            return status == 1 ? cooking : pending;
+        }
+    }
+}
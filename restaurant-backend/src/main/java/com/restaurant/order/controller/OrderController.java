@@ -3,13 +3,18 @@ package com.restaurant.order.controller;
 import com.restaurant.common.Result;
 import com.restaurant.order.dto.*;
 import com.restaurant.order.entity.Order;
+import com.restaurant.order.service.OrderIntakeService;
 import com.restaurant.order.service.OrderService;
 import com.restaurant.order.service.OrderStatusService;
+import com.restaurant.order.service.OrderTrackingService;
+import com.restaurant.websocket.WebSocketMessageService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -18,6 +23,9 @@ public class OrderController {
 
     private final OrderService orderService;
     private final OrderStatusService orderStatusService;
+    private final WebSocketMessageService webSocketMessageService;
+    private final OrderTrackingService orderTrackingService;
+    private final OrderIntakeService orderIntakeService;
 
     @GetMapping
     public Result<List<Order>> list(@RequestParam(required = false) Integer status) {
@@ -36,7 +44,36 @@ public class OrderController {
 
     @PostMapping
     public Result<Order> create(@RequestBody CreateOrderRequest request) {
-        return Result.success(orderService.createOrder(request));
+        Order order = orderService.createOrder(request);
+        // 事务提交后再通知后厨
+        webSocketMessageService.notifyNewOrder(orderService.getOrderDetail(order.getId()));
+        return Result.success(order);
+    }
+
+    /**
+     * 异步下单：校验后写入本地受理日志即返回 202 和受理单，由后台写库
+     * 未开启异步下单时同步写库，直接返回已下单的受理单
+     */
+    @PostMapping("/intake")
+    public Result<IntakeTicketDTO> intake(@RequestBody CreateOrderRequest request, HttpServletResponse response) {
+        IntakeTicketDTO ticket = orderIntakeService.submit(request);
+        if (IntakeTicketDTO.QUEUED.equals(ticket.getStatus())) {
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        }
+        return Result.success(ticket);
+    }
+
+    /**
+     * 查询受理单的下单结果
+     */
+    @GetMapping("/intake/{ticketId}")
+    public Result<IntakeTicketDTO> getIntakeTicket(@PathVariable String ticketId) {
+        return Result.success(orderIntakeService.getTicket(ticketId));
+    }
+
+    @GetMapping("/intake/stats")
+    public Result<Map<String, Object>> intakeStats() {
+        return Result.success(orderIntakeService.getStats());
     }
 
     @PostMapping("/{orderId}/add")
@@ -44,6 +81,7 @@ public class OrderController {
         orderService.addDishToOrder(orderId, request);
         // 加菜后自动更新订单状态
         orderStatusService.updateOrderStatus(orderId);
+        webSocketMessageService.notifyNewOrder(orderService.getOrderDetail(orderId));
         return Result.success();
     }
 
@@ -52,6 +90,7 @@ public class OrderController {
         Order order = orderService.batchAddDishToOrder(request);
         // 加菜后自动更新订单状态
         orderStatusService.updateOrderStatus(order.getId());
+        webSocketMessageService.notifyNewOrder(orderService.getOrderDetail(order.getId()));
         return Result.success(order);
     }
 
@@ -63,7 +102,7 @@ public class OrderController {
     }
 
     @GetMapping("/{orderId}/unpaid-amount")
-    public Result<BigDecimal> getUnpaidAmount(@PathVariable Long orderId) {
+    public Result<UnpaidAmountDTO> getUnpaidAmount(@PathVariable Long orderId) {
         return Result.success(orderStatusService.getUnpaidAmount(orderId));
     }
 
@@ -71,6 +110,7 @@ public class OrderController {
     public Result<Void> updateItemStatus(@PathVariable Long itemId, @RequestParam Integer status) {
         // 使用新的状态更新逻辑，自动更新订单状态
         orderStatusService.updateItemStatus(itemId, status);
+        webSocketMessageService.notifyItemStatus(itemId, status);
         return Result.success();
     }
 
@@ -84,6 +124,7 @@ public class OrderController {
     @PostMapping("/{orderId}/cancel")
     public Result<Void> cancel(@PathVariable Long orderId) {
         orderService.cancelOrder(orderId);
+        webSocketMessageService.notifyOrderStatus(orderId, 4);
         return Result.success();
     }
 
@@ -92,6 +133,18 @@ public class OrderController {
         return Result.success(orderService.getOrderByTable(tableId));
     }
 
+    /**
+     * 顾客端订阅桌台订单的实时变化（SSE），替代轮询 by-table 接口
+     */
+    @GetMapping("/by-table/{tableId}/stream")
+    public SseEmitter streamByTable(@PathVariable Long tableId,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                    HttpServletResponse response) {
+        // 关闭 Nginx 的响应缓冲，事件才能立即到达客户端
+        response.setHeader("X-Accel-Buffering", "no");
+        return orderTrackingService.subscribe(tableId, lastEventId);
+    }
+
     @GetMapping("/stats/today-count")
     public Result<Long> getTodayOrderCount() {
         return Result.success(orderService.getTodayOrderCount());
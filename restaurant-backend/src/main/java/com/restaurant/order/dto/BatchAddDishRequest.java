@@ -1,5 +1,6 @@
 package com.restaurant.order.dto;
 
+import com.restaurant.common.mailbox.TableScoped;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -7,7 +8,7 @@ import lombok.Data;
 import java.util.List;
 
 @Data
-public class BatchAddDishRequest {
+public class BatchAddDishRequest implements TableScoped {
     
     @NotNull(message = "桌台ID不能为空")
     private Long tableId;
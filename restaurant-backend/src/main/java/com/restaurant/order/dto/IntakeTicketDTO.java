@@ -0,0 +1,25 @@
+package com.restaurant.order.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步下单的受理单
+ * 受理单号即订单编号，写库成功后可凭 orderId 查询订单
+ */
+@Data
+public class IntakeTicketDTO {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    private String ticketId;
+    private String status;          // QUEUED 排队中 / CREATED 已下单 / FAILED 下单失败
+    private Long tableId;
+    private Long orderId;
+    private String message;         // 失败原因
+    private Integer attempts;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.restaurant.order.dto;
+
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 推送给顾客端的订单增量
+ * 客户端按 id 合并：order 不为空时整体替换订单，items 中的菜品按 id 更新或追加
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTrackingEvent {
+
+    private String type;            // ITEMS_ADDED / ITEM_STATUS / ITEMS_PAID / CANCELLED / COMPLETED
+    private Long orderId;
+    private Order order;
+    private List<OrderItem> items;
+}
@@ -0,0 +1,17 @@
+package com.restaurant.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 未结账金额，附带按角、元、十元抹零后的金额，供平板的抹零按钮直接使用
+ */
+@Data
+public class UnpaidAmountDTO {
+
+    private BigDecimal amount;            // 应付金额（未结账菜品小计减去促销）
+    private BigDecimal roundedToJiao;     // 抹去分
+    private BigDecimal roundedToYuan;     // 抹去角分
+    private BigDecimal roundedToTenYuan;  // 抹去个位
+}
@@ -1,6 +1,9 @@
 package com.restaurant.order.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import com.restaurant.common.BaseEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -24,4 +27,7 @@ public class Order extends BaseEntity {
     private LocalDateTime payTime;    // 支付时间
     private Integer status;           // 状态: 0待上菜 1上菜中 2待结账 3已完成 4已取消
     private String remark;            // 订单备注
+    @Version
+    @TableField(fill = FieldFill.INSERT)
+    private Integer version;          // 版本号(乐观锁)
 }
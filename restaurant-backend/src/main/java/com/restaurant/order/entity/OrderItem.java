@@ -21,6 +21,7 @@ public class OrderItem extends BaseEntity {
     private BigDecimal price;     // 单价(快照)
     private Integer quantity;     // 数量
     private BigDecimal subtotal;  // 小计金额
+    private BigDecimal discountAmount; // 分摊到本项的促销优惠
     private String remark;        // 备注
     private Integer status;       // 状态: 0待制作 1制作中 2已完成
     private Integer isPaid;       // 是否已结账: 0否 1是
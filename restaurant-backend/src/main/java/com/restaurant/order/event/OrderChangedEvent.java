@@ -0,0 +1,80 @@
+package com.restaurant.order.event;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 订单变更事件
+ * 由订单服务在事务中发布，监听方使用 @TransactionalEventListener 在事务提交后处理，
+ * 回滚的变更不会被推送或计入内存视图。
+ * 集群模式下提交后的事件经中继转发给其他节点，在对方重新发布为 remote 事件，只用于更新内存视图，不再推送
+ */
+@Getter
+public class OrderChangedEvent {
+
+    public enum Type {
+        ITEMS_ADDED,   // 下单或加菜
+        ITEM_STATUS,   // 菜品状态变更
+        ITEMS_PAID,    // 菜品结账
+        CANCELLED,     // 订单取消
+        COMPLETED      // 订单完成（清台）
+    }
+
+    private final Type type;
+    private final Long orderId;
+    private final Order order;            // 可能为空，仅在发布方已查询订单时提供
+    private final List<OrderItem> items;  // 本次变更涉及的菜品
+    private final boolean addOn;          // ITEMS_ADDED 时表示是否为加菜
+    private final boolean remote;         // 由其他节点转发而来
+
+    private OrderChangedEvent(Type type, Long orderId, Order order, List<OrderItem> items, boolean addOn) {
+        this(type, orderId, order, items, addOn, false);
+    }
+
+    @JsonCreator
+    private OrderChangedEvent(@JsonProperty("type") Type type,
+                              @JsonProperty("orderId") Long orderId,
+                              @JsonProperty("order") Order order,
+                              @JsonProperty("items") List<OrderItem> items,
+                              @JsonProperty("addOn") boolean addOn,
+                              @JsonProperty("remote") boolean remote) {
+        this.type = type;
+        this.orderId = orderId;
+        this.order = order;
+        this.items = items;
+        this.addOn = addOn;
+        this.remote = remote;
+    }
+
+    /**
+     * 其他节点转发来的同一事件
+     */
+    public OrderChangedEvent asRemote() {
+        return new OrderChangedEvent(type, orderId, order, items, addOn, true);
+    }
+
+    public static OrderChangedEvent itemsAdded(Order order, List<OrderItem> items, boolean addOn) {
+        return new OrderChangedEvent(Type.ITEMS_ADDED, order.getId(), order, items, addOn);
+    }
+
+    public static OrderChangedEvent itemStatus(OrderItem item) {
+        return new OrderChangedEvent(Type.ITEM_STATUS, item.getOrderId(), null, List.of(item), false);
+    }
+
+    public static OrderChangedEvent itemsPaid(Order order, List<OrderItem> items) {
+        return new OrderChangedEvent(Type.ITEMS_PAID, order.getId(), order, items, false);
+    }
+
+    public static OrderChangedEvent cancelled(Order order, List<OrderItem> items) {
+        return new OrderChangedEvent(Type.CANCELLED, order.getId(), order, items, false);
+    }
+
+    public static OrderChangedEvent completed(Order order) {
+        return new OrderChangedEvent(Type.COMPLETED, order.getId(), order, List.of(), false);
+    }
+}
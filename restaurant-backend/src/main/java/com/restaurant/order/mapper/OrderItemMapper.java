@@ -6,6 +6,7 @@ import com.restaurant.report.dto.TopDishDTO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -14,6 +15,12 @@ public interface OrderItemMapper extends BaseMapper<OrderItem> {
     
     @Select("SELECT * FROM order_item WHERE order_id = #{orderId}")
     List<OrderItem> selectByOrderId(Long orderId);
+
+    /**
+     * 仅当菜品仍为待制作时更新状态，并发的重复指令只有一个能成功
+     */
+    @Update("UPDATE order_item SET status = #{status} WHERE id = #{id} AND status = 0 AND is_deleted = 0")
+    int updateStatusIfPending(@Param("id") Long id, @Param("status") Integer status);
     
     @Select("SELECT dish_name as dishName, SUM(quantity) as totalQuantity, SUM(subtotal) as totalAmount " +
             "FROM order_item oi JOIN orders o ON oi.order_id = o.id " +
@@ -0,0 +1,219 @@
+package com.restaurant.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.order.dto.CreateOrderRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 异步下单的本地受理日志
+ * 只追加写，每行一条 JSON 记录：受理（含下单请求）或结案（已写库 / 失败）。
+ * 日志按大小切换分段；最早的分段中受理的订单全部结案后整段删除，
+ * 只从最早的一段开始删，保证剩余分段中的结案记录不会早于其受理记录被删掉。
+ * 启动时按顺序读取剩余分段，没有结案记录的受理单重新排队。
+ */
+@Slf4j
+class OrderIntakeLog {
+
+    static final String ACCEPTED = "ACCEPTED";
+    static final String CREATED = "CREATED";
+    static final String FAILED = "FAILED";
+
+    private static final String SEGMENT_PREFIX = "intake-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final long segmentBytes;
+    private final boolean fsync;
+
+    // 以下状态都在 this 锁内访问；segments 按写入顺序排列，最后一段为当前写入段
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Segment> openTickets = new HashMap<>();
+    private long segmentSeq;
+
+    /**
+     * 一条日志记录，受理记录带下单请求，结案记录带订单ID或失败原因
+     */
+    record Entry(String type, String ticketId, CreateOrderRequest request, Long orderId, String message,
+                 LocalDateTime time) {
+    }
+
+    OrderIntakeLog(Path dir, ObjectMapper objectMapper, long segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 读取已有分段并打开新的写入段
+     *
+     * @return 剩余分段中的全部记录，按写入顺序
+     */
+    synchronized List<Entry> open() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : files) {
+            Segment segment = new Segment(file, null);
+            segments.addLast(segment);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        Entry entry = objectMapper.readValue(line, Entry.class);
+                        track(entry, segment);
+                        entries.add(entry);
+                    } catch (IOException e) {
+                        // 崩溃时写了一半的最后一行
+                        log.warn("跳过无法解析的受理日志: {}", file.getFileName());
+                    }
+                }
+            }
+        }
+        String last = files.isEmpty() ? null : files.get(files.size() - 1).getFileName().toString();
+        segmentSeq = Math.max(last == null ? 0 : parseSeq(last), System.currentTimeMillis());
+        segments.addLast(openSegment());
+        purge();
+        return entries;
+    }
+
+    /**
+     * 追加一条记录，开启 fsync 时刷盘后才返回
+     */
+    synchronized void append(Entry entry) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        Segment active = segments.getLast();
+        if (active.size >= segmentBytes) {
+            active.close();
+            active = openSegment();
+            segments.addLast(active);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                active.channel.write(buffer);
+            }
+            if (fsync) {
+                active.channel.force(false);
+            }
+        } catch (IOException e) {
+            // 可能留下半行，后续记录写到新分段，避免与半行拼在一起无法解析
+            active.close();
+            segments.addLast(openSegment());
+            throw e;
+        }
+        active.size += line.length;
+        track(entry, active);
+        if (!ACCEPTED.equals(entry.type())) {
+            purge();
+        }
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    synchronized void close() {
+        if (!segments.isEmpty()) {
+            segments.getLast().close();
+        }
+    }
+
+    private void track(Entry entry, Segment segment) {
+        if (ACCEPTED.equals(entry.type())) {
+            openTickets.put(entry.ticketId(), segment);
+            segment.open++;
+        } else {
+            Segment accepted = openTickets.remove(entry.ticketId());
+            if (accepted != null) {
+                accepted.open--;
+            }
+        }
+    }
+
+    /**
+     * 从最早的分段开始，删除受理单已全部结案的分段，当前写入段除外
+     */
+    private void purge() {
+        while (segments.size() > 1 && segments.getFirst().open == 0) {
+            segments.removeFirst().delete();
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        Path file = dir.resolve(SEGMENT_PREFIX + String.format("%019d", ++segmentSeq) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        return new Segment(file, channel);
+    }
+
+    private long parseSeq(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 一个日志分段，open 为该段受理、尚未结案的订单数
+     */
+    private static class Segment {
+        final Path file;
+        final FileChannel channel;
+        long size;
+        int open;
+
+        Segment(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+        void close() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("关闭受理日志分段失败: {}", e.getMessage());
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("删除受理日志分段失败: {}", file, e);
+            }
+        }
+    }
+}
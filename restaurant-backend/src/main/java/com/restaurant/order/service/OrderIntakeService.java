@@ -0,0 +1,395 @@
+package com.restaurant.order.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.mailbox.TableMailboxFullException;
+import com.restaurant.dish.service.MenuSnapshotService;
+import com.restaurant.order.dto.CartItemDTO;
+import com.restaurant.order.dto.CreateOrderRequest;
+import com.restaurant.order.dto.IntakeTicketDTO;
+import com.restaurant.order.entity.Order;
+import com.restaurant.table.service.FloorStatusService;
+import com.restaurant.websocket.WebSocketMessageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步下单
+ * 受理时只按内存中的桌台和菜单做校验，把下单请求追加到本地受理日志（刷盘）后立即返回受理单，
+ * 由后台线程写库；数据库短暂不可用时一直重试，进程崩溃后启动时重放未结案的受理单。
+ * - 受理单号即订单编号（唯一键），写库前先按编号查询，重放时不会重复下单
+ * - 下单业务校验失败（如库存不足）直接结案为失败，客户端凭受理单查询结果
+ * - 桌台信箱排队已满时稍后重新排队，不结案为失败
+ * 未开启时同步下单，返回已创建的受理单，客户端流程不变。
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final OrderService orderService;
+    private final MenuSnapshotService menuSnapshotService;
+    private final FloorStatusService floorStatusService;
+    private final WebSocketMessageService webSocketMessageService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String dir;
+    private final int workers;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final boolean fsync;
+    private final long segmentBytes;
+    private final Duration retention;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private OrderIntakeLog intakeLog;
+    private ScheduledThreadPoolExecutor executor;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    public OrderIntakeService(OrderService orderService,
+                              MenuSnapshotService menuSnapshotService,
+                              FloorStatusService floorStatusService,
+                              WebSocketMessageService webSocketMessageService,
+                              ObjectMapper objectMapper,
+                              @Value("${app.order.intake.enabled:false}") boolean enabled,
+                              @Value("${app.order.intake.dir:data/order-intake}") String dir,
+                              @Value("${app.order.intake.workers:4}") int workers,
+                              @Value("${app.order.intake.max-pending:5000}") int maxPending,
+                              @Value("${app.order.intake.max-attempts:5}") int maxAttempts,
+                              @Value("${app.order.intake.fsync:true}") boolean fsync,
+                              @Value("${app.order.intake.segment-bytes:4194304}") long segmentBytes,
+                              @Value("${app.order.intake.retention-minutes:30}") long retentionMinutes) {
+        this.orderService = orderService;
+        this.menuSnapshotService = menuSnapshotService;
+        this.floorStatusService = floorStatusService;
+        this.webSocketMessageService = webSocketMessageService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.workers = workers;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.fsync = fsync;
+        this.segmentBytes = segmentBytes;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        intakeLog = new OrderIntakeLog(Paths.get(dir), objectMapper, segmentBytes, fsync);
+        List<OrderIntakeLog.Entry> entries = intakeLog.open();
+
+        executor = new ScheduledThreadPoolExecutor(workers, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 停机时丢弃等待中的重试，未结案的受理单留在日志中下次启动重放
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.scheduleWithFixedDelay(this::evictSettled, 1, 1, TimeUnit.MINUTES);
+
+        replay(entries);
+    }
+
+    /**
+     * 按日志重建受理单，未结案的重新排队
+     */
+    private void replay(List<OrderIntakeLog.Entry> entries) {
+        for (OrderIntakeLog.Entry entry : entries) {
+            if (OrderIntakeLog.ACCEPTED.equals(entry.type())) {
+                tickets.put(entry.ticketId(), new Ticket(entry.ticketId(), entry.request(), entry.time()));
+                continue;
+            }
+            Ticket ticket = tickets.get(entry.ticketId());
+            if (ticket != null) {
+                ticket.settle(entry.type(), entry.orderId(), entry.message(), entry.time());
+            }
+        }
+        int count = 0;
+        for (Ticket ticket : tickets.values()) {
+            if (ticket.status.equals(IntakeTicketDTO.QUEUED)) {
+                pending.incrementAndGet();
+                executor.execute(() -> process(ticket));
+                count++;
+            }
+        }
+        if (count > 0) {
+            replayed.add(count);
+            log.info("重放受理日志: {} 个受理单待写库", count);
+        }
+    }
+
+    /**
+     * 受理下单请求
+     */
+    public IntakeTicketDTO submit(CreateOrderRequest request) {
+        validate(request);
+        if (!enabled) {
+            Order order = orderService.createOrder(request);
+            notifyNewOrder(order);
+            Ticket ticket = new Ticket(order.getOrderNo(), request, LocalDateTime.now());
+            ticket.attempts = 1;
+            ticket.settle(IntakeTicketDTO.CREATED, order.getId(), null, LocalDateTime.now());
+            return ticket.toDTO();
+        }
+
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejected.increment();
+            throw new BusinessException("下单人数过多，请稍后再试");
+        }
+        Ticket ticket = new Ticket(generateTicketId(), request, LocalDateTime.now());
+        try {
+            intakeLog.append(new OrderIntakeLog.Entry(OrderIntakeLog.ACCEPTED, ticket.id, request, null, null,
+                    ticket.createdAt));
+        } catch (IOException e) {
+            pending.decrementAndGet();
+            log.error("写入受理日志失败", e);
+            // 受理记录可能已部分落盘，补一条失败记录，避免重放时为已拒绝的请求下单
+            appendSettle(ticket.id, IntakeTicketDTO.FAILED, null, "受理失败");
+            throw new BusinessException("下单失败，请重试");
+        }
+        tickets.put(ticket.id, ticket);
+        accepted.increment();
+        executor.execute(() -> process(ticket));
+        return ticket.toDTO();
+    }
+
+    /**
+     * 查询受理单；内存中已清理的受理单按订单编号查询订单
+     */
+    public IntakeTicketDTO getTicket(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket != null) {
+            return ticket.toDTO();
+        }
+        Order order = orderService.getByOrderNo(ticketId);
+        if (order == null) {
+            throw new BusinessException("受理单不存在");
+        }
+        IntakeTicketDTO dto = new IntakeTicketDTO();
+        dto.setTicketId(ticketId);
+        dto.setStatus(IntakeTicketDTO.CREATED);
+        dto.setTableId(order.getTableId());
+        dto.setOrderId(order.getId());
+        dto.setCreatedAt(order.getCreatedAt());
+        return dto;
+    }
+
+    /**
+     * 按内存中的桌台和菜单校验，不查询数据库
+     */
+    private void validate(CreateOrderRequest request) {
+        if (request.getTableId() == null) {
+            throw new BusinessException("桌台ID不能为空");
+        }
+        if (request.getCartItems() == null || request.getCartItems().isEmpty()) {
+            throw new BusinessException("购物车不能为空");
+        }
+        if (!floorStatusService.exists(request.getTableId())) {
+            throw new BusinessException("桌台不存在");
+        }
+        for (CartItemDTO item : request.getCartItems()) {
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new BusinessException("菜品数量错误: " + item.getDishName());
+            }
+            menuSnapshotService.checkOrderable(item.getDishId(), item.getSpecId(), item.getDishName());
+        }
+    }
+
+    private void process(Ticket ticket) {
+        ticket.attempts++;
+        try {
+            Order order = orderService.getByOrderNo(ticket.id);
+            if (order == null) {
+                try {
+                    order = orderService.createOrder(ticket.request, ticket.id);
+                } catch (DuplicateKeyException e) {
+                    // 并发重放时另一个线程已写入
+                    order = orderService.getByOrderNo(ticket.id);
+                    if (order == null) {
+                        throw e;
+                    }
+                }
+                notifyNewOrder(order);
+            }
+            settle(ticket, IntakeTicketDTO.CREATED, order.getId(), null);
+        } catch (TableMailboxFullException e) {
+            // 桌台信箱排队已满或排队超时只是暂时过载（操作未执行），不计入重试次数，稍后重新排队
+            ticket.attempts--;
+            long delay = 200L + ThreadLocalRandom.current().nextLong(800L);
+            log.warn("受理单所在桌台排队已满或超时，{}ms 后重试: {}", delay, ticket.id);
+            retries.increment();
+            executor.schedule(() -> process(ticket), delay, TimeUnit.MILLISECONDS);
+        } catch (BusinessException e) {
+            log.info("受理单下单失败: {} {}", ticket.id, e.getMessage());
+            settle(ticket, IntakeTicketDTO.FAILED, null, e.getMessage());
+        } catch (Exception e) {
+            if (isTransient(e) || ticket.attempts < maxAttempts) {
+                long delay = Math.min(MAX_BACKOFF_MS, 500L << Math.min(ticket.attempts - 1, 10));
+                log.warn("受理单写库失败，{}ms 后重试（第 {} 次）: {} {}", delay, ticket.attempts, ticket.id, e.getMessage());
+                retries.increment();
+                executor.schedule(() -> process(ticket), delay, TimeUnit.MILLISECONDS);
+            } else {
+                log.error("受理单写库失败，已重试 {} 次: {}", ticket.attempts, ticket.id, e);
+                settle(ticket, IntakeTicketDTO.FAILED, null, "下单失败，请联系服务员");
+            }
+        }
+    }
+
+    /**
+     * 数据库连接、事务、桌台信箱排队已满等暂时性错误：受理单已落盘，一直重试直到恢复
+     */
+    private boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private void settle(Ticket ticket, String status, Long orderId, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        ticket.settle(status, orderId, message, now);
+        appendSettle(ticket.id, status, orderId, message);
+        pending.decrementAndGet();
+        if (IntakeTicketDTO.CREATED.equals(status)) {
+            created.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    /**
+     * 结案记录写失败不影响结果：重放时按订单编号能查到已写库的订单
+     */
+    private void appendSettle(String ticketId, String status, Long orderId, String message) {
+        try {
+            intakeLog.append(new OrderIntakeLog.Entry(status, ticketId, null, orderId, message, LocalDateTime.now()));
+        } catch (IOException e) {
+            log.warn("写入受理日志结案记录失败: {}", ticketId, e);
+        }
+    }
+
+    private void notifyNewOrder(Order order) {
+        try {
+            webSocketMessageService.notifyNewOrder(orderService.getOrderDetail(order.getId()));
+        } catch (Exception e) {
+            log.warn("通知后厨新订单失败: {}", order.getId(), e);
+        }
+    }
+
+    private void evictSettled() {
+        LocalDateTime expireBefore = LocalDateTime.now().minus(retention);
+        tickets.values().removeIf(ticket -> ticket.settledAt != null && ticket.settledAt.isBefore(expireBefore));
+    }
+
+    /**
+     * 受理单号兼作订单编号：ORD + 日期 + 全局唯一ID，不会与同步下单的编号冲突
+     */
+    private String generateTicketId() {
+        return "ORD" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + IdWorker.getIdStr();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accepted", accepted.sum());
+        stats.put("created", created.sum());
+        stats.put("failed", failed.sum());
+        stats.put("retries", retries.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("pending", pending.get());
+        stats.put("tickets", tickets.size());
+        stats.put("segments", intakeLog != null ? intakeLog.segmentCount() : 0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        intakeLog.close();
+    }
+
+    private static class Ticket {
+        final String id;
+        final Long tableId;
+        final LocalDateTime createdAt;
+        volatile CreateOrderRequest request;
+        volatile String status = IntakeTicketDTO.QUEUED;
+        volatile Long orderId;
+        volatile String message;
+        volatile int attempts;
+        volatile LocalDateTime settledAt;
+
+        Ticket(String id, CreateOrderRequest request, LocalDateTime createdAt) {
+            this.id = id;
+            this.request = request;
+            this.tableId = request != null ? request.getTableId() : null;
+            this.createdAt = createdAt;
+        }
+
+        void settle(String status, Long orderId, String message, LocalDateTime time) {
+            this.orderId = orderId;
+            this.message = message;
+            this.settledAt = time;
+            this.request = null;
+            this.status = status;
+        }
+
+        IntakeTicketDTO toDTO() {
+            IntakeTicketDTO dto = new IntakeTicketDTO();
+            dto.setTicketId(id);
+            dto.setStatus(status);
+            dto.setTableId(tableId);
+            dto.setOrderId(orderId);
+            dto.setMessage(message);
+            dto.setAttempts(attempts);
+            dto.setCreatedAt(createdAt);
+            return dto;
+        }
+    }
+}
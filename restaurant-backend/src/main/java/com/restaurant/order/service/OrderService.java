@@ -1,9 +1,15 @@
 package com.restaurant.order.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.common.Money;
+import com.restaurant.common.datasource.ReplicaRead;
 import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.mailbox.TableSerial;
+import com.restaurant.common.optimistic.RetryOnConflict;
 import com.restaurant.dish.entity.Dish;
 import com.restaurant.dish.entity.DishSpec;
+import com.restaurant.dish.event.MenuChangedEvent;
+import com.restaurant.inventory.service.InventoryService;
 import com.restaurant.dish.mapper.DishMapper;
 import com.restaurant.dish.mapper.DishSpecMapper;
 import com.restaurant.order.dto.AddDishRequest;
@@ -14,11 +20,14 @@ import com.restaurant.order.dto.OrderDetailDTO;
 import com.restaurant.order.dto.PayOrderRequest;
 import com.restaurant.order.entity.Order;
 import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
 import com.restaurant.order.mapper.OrderItemMapper;
 import com.restaurant.order.mapper.OrderMapper;
 import com.restaurant.table.entity.RestaurantTable;
+import com.restaurant.table.event.TableChangedEvent;
 import com.restaurant.table.mapper.TableMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,7 +48,10 @@ public class OrderService {
     private final DishSpecMapper dishSpecMapper;
     private final TableMapper tableMapper;
     private final OrderStatusService orderStatusService;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @ReplicaRead
     public List<Order> listOrders(Integer status) {
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
         if (status != null) {
@@ -67,6 +79,10 @@ public class OrderService {
         return dto;
     }
 
+    public Order getByOrderNo(String orderNo) {
+        return orderMapper.selectOne(new LambdaQueryWrapper<Order>().eq(Order::getOrderNo, orderNo));
+    }
+
     public OrderDetailDTO getOrderByTable(Long tableId) {
         // 查询该桌台最新的未完成订单
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
@@ -89,7 +105,19 @@ public class OrderService {
     }
 
     @Transactional
+    @TableSerial
+    @RetryOnConflict
     public Order createOrder(CreateOrderRequest request) {
+        return createOrder(request, generateOrderNo());
+    }
+
+    /**
+     * 使用指定的订单编号下单，异步下单时编号在受理时分配，重放时据此判断是否已经写入
+     */
+    @Transactional
+    @TableSerial
+    @RetryOnConflict
+    public Order createOrder(CreateOrderRequest request, String orderNo) {
         // 检查桌台
         RestaurantTable table = tableMapper.selectById(request.getTableId());
         if (table == null) {
@@ -97,7 +125,7 @@ public class OrderService {
         }
 
         // 先计算总金额和准备订单项
-        BigDecimal totalAmount = BigDecimal.ZERO;
+        Money totalAmount = Money.ZERO;
         List<OrderItem> items = new ArrayList<>();
         
         for (CartItemDTO cartItem : request.getCartItems()) {
@@ -105,9 +133,7 @@ public class OrderService {
             if (dish == null || dish.getStatus() != 1) {
                 throw new BusinessException("菜品不存在或已下架: " + cartItem.getDishName());
             }
-            if (dish.getStock() > 0 && dish.getStock() < cartItem.getQuantity()) {
-                throw new BusinessException("菜品库存不足: " + dish.getName());
-            }
+            checkStock(dish, cartItem.getQuantity());
 
             OrderItem item = new OrderItem();
             item.setDishId(dish.getId());
@@ -133,28 +159,29 @@ public class OrderService {
                 unitPrice = dish.getPrice();
             }
             
+            Money subtotal = Money.of(unitPrice).times(cartItem.getQuantity());
             item.setPrice(unitPrice);
-            item.setSubtotal(unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+            item.setSubtotal(subtotal.toBigDecimal());
             items.add(item);
             
-            totalAmount = totalAmount.add(item.getSubtotal());
+            totalAmount = totalAmount.plus(subtotal);
 
             // 扣减库存
-            if (dish.getStock() > 0) {
-                dish.setStock(dish.getStock() - cartItem.getQuantity());
-                dishMapper.updateById(dish);
-            }
+            deductStock(dish, cartItem.getQuantity());
         }
 
+        // 按当前生效的活动计算促销优惠
+        Money discount = orderStatusService.applyPromotions(items, LocalDateTime.now());
+
         // 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(orderNo);
         order.setTableId(table.getId());
         order.setTableNo(table.getTableNo());
         order.setCustomerCount(request.getCustomerCount());
-        order.setTotalAmount(totalAmount);
-        order.setDiscountAmount(BigDecimal.ZERO);
-        order.setPayAmount(totalAmount);
+        order.setTotalAmount(totalAmount.toBigDecimal());
+        order.setDiscountAmount(discount.toBigDecimal());
+        order.setPayAmount(totalAmount.minus(discount).toBigDecimal());
         order.setStatus(0); // 待上菜
         order.setRemark(request.getRemark());
 
@@ -166,15 +193,21 @@ public class OrderService {
             item.setOrderId(order.getId());
             orderItemMapper.insert(item);
         }
+        // 整单的原料一次预占，不足时整单回滚
+        inventoryService.reserve(order.getId(), items);
 
         // 更新桌台状态
         table.setStatus(1); // 使用中
         tableMapper.updateById(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
 
+        eventPublisher.publishEvent(OrderChangedEvent.itemsAdded(order, items, false));
         return order;
     }
 
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void addDishToOrder(Long orderId, AddDishRequest request) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -188,6 +221,7 @@ public class OrderService {
         if (dish == null || dish.getStatus() != 1) {
             throw new BusinessException("菜品不存在或已下架");
         }
+        checkStock(dish, request.getQuantity());
 
         OrderItem item = new OrderItem();
         item.setOrderId(orderId);
@@ -197,24 +231,29 @@ public class OrderService {
         item.setPrice(dish.getPrice());
         item.setQuantity(request.getQuantity());
         item.setRemark(request.getRemark());
-        item.setSubtotal(dish.getPrice().multiply(BigDecimal.valueOf(request.getQuantity())));
+        Money subtotal = Money.of(dish.getPrice()).times(request.getQuantity());
+        item.setSubtotal(subtotal.toBigDecimal());
         item.setStatus(0);
+        Money discount = orderStatusService.applyPromotions(List.of(item), LocalDateTime.now());
 
         orderItemMapper.insert(item);
+        inventoryService.reserve(orderId, List.of(item));
 
         // 更新订单金额
-        order.setTotalAmount(order.getTotalAmount().add(item.getSubtotal()));
-        order.setPayAmount(order.getPayAmount().add(item.getSubtotal()));
+        order.setTotalAmount(Money.of(order.getTotalAmount()).plus(subtotal).toBigDecimal());
+        order.setDiscountAmount(Money.of(order.getDiscountAmount()).plus(discount).toBigDecimal());
+        order.setPayAmount(Money.of(order.getPayAmount()).plus(subtotal).minus(discount).toBigDecimal());
         orderMapper.updateById(order);
 
+        eventPublisher.publishEvent(OrderChangedEvent.itemsAdded(order, List.of(item), true));
+
         // 扣减库存
-        if (dish.getStock() > 0) {
-            dish.setStock(dish.getStock() - request.getQuantity());
-            dishMapper.updateById(dish);
-        }
+        deductStock(dish, request.getQuantity());
     }
 
     @Transactional
+    @TableSerial
+    @RetryOnConflict
     public Order batchAddDishToOrder(BatchAddDishRequest request) {
         // 1. 先查询该桌台是否有未完成订单
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
@@ -236,16 +275,15 @@ public class OrderService {
         }
 
         // 2. 批量添加菜品到订单
-        BigDecimal totalAddAmount = BigDecimal.ZERO;
+        Money totalAddAmount = Money.ZERO;
+        List<OrderItem> addedItems = new ArrayList<>();
         
         for (BatchAddDishRequest.AddDishItemRequest itemRequest : request.getItems()) {
             Dish dish = dishMapper.selectById(itemRequest.getDishId());
             if (dish == null || dish.getStatus() != 1) {
                 throw new BusinessException("菜品不存在或已下架: " + itemRequest.getDishId());
             }
-            if (dish.getStock() > 0 && dish.getStock() < itemRequest.getQuantity()) {
-                throw new BusinessException("菜品库存不足: " + dish.getName());
-            }
+            checkStock(dish, itemRequest.getQuantity());
 
             OrderItem item = new OrderItem();
             item.setOrderId(order.getId());
@@ -255,29 +293,37 @@ public class OrderService {
             item.setPrice(dish.getPrice());
             item.setQuantity(itemRequest.getQuantity());
             item.setRemark(itemRequest.getRemark());
-            item.setSubtotal(dish.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
+            Money subtotal = Money.of(dish.getPrice()).times(itemRequest.getQuantity());
+            item.setSubtotal(subtotal.toBigDecimal());
             item.setStatus(0); // 待制作
-
-            orderItemMapper.insert(item);
+            addedItems.add(item);
             
-            totalAddAmount = totalAddAmount.add(item.getSubtotal());
+            totalAddAmount = totalAddAmount.plus(subtotal);
 
             // 扣减库存
-            if (dish.getStock() > 0) {
-                dish.setStock(dish.getStock() - itemRequest.getQuantity());
-                dishMapper.updateById(dish);
-            }
+            deductStock(dish, itemRequest.getQuantity());
+        }
+
+        // 本次加菜一起计算促销，再插入订单项
+        Money discount = orderStatusService.applyPromotions(addedItems, LocalDateTime.now());
+        for (OrderItem item : addedItems) {
+            orderItemMapper.insert(item);
         }
+        inventoryService.reserve(order.getId(), addedItems);
 
         // 3. 更新订单金额
-        order.setTotalAmount(order.getTotalAmount().add(totalAddAmount));
-        order.setPayAmount(order.getPayAmount().add(totalAddAmount));
+        order.setTotalAmount(Money.of(order.getTotalAmount()).plus(totalAddAmount).toBigDecimal());
+        order.setDiscountAmount(Money.of(order.getDiscountAmount()).plus(discount).toBigDecimal());
+        order.setPayAmount(Money.of(order.getPayAmount()).plus(totalAddAmount).minus(discount).toBigDecimal());
         orderMapper.updateById(order);
 
+        eventPublisher.publishEvent(OrderChangedEvent.itemsAdded(order, addedItems, true));
         return order;
     }
 
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void payOrder(Long orderId, PayOrderRequest request) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -287,37 +333,44 @@ public class OrderService {
             throw new BusinessException("订单状态错误");
         }
 
-        BigDecimal shouldPay = order.getPayAmount();
-        BigDecimal actualPay = request.getAmount();
+        Money shouldPay = Money.of(order.getPayAmount());
+        Money actualPay = Money.of(request.getAmount());
 
-        // 验证金额（允许支付金额小于等于应付金额，支持抹零优惠）
-        if (actualPay == null || actualPay.compareTo(BigDecimal.ZERO) <= 0) {
+        // 验证金额：实付不超过应付，差额（抹零或收银员手工优惠）记为优惠
+        if (!actualPay.isPositive()) {
             throw new BusinessException("支付金额必须大于0");
         }
-        if (actualPay.compareTo(shouldPay) > 0) {
+        if (actualPay.greaterThan(shouldPay)) {
             throw new BusinessException("支付金额不能超过应付金额：¥" + shouldPay);
         }
 
         // 计算优惠金额
-        BigDecimal discount = shouldPay.subtract(actualPay);
+        Money discount = shouldPay.discountTo(actualPay);
 
         order.setStatus(1); // 已支付
         order.setPayType(request.getPayType());
-        order.setPayAmount(actualPay); // 记录实际支付金额
-        order.setDiscountAmount(discount); // 记录优惠金额
+        order.setPayAmount(actualPay.toBigDecimal()); // 记录实际支付金额
+        order.setDiscountAmount(discount.toBigDecimal()); // 记录优惠金额
         order.setPayTime(LocalDateTime.now());
         orderMapper.updateById(order);
     }
 
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER_ITEM)
+    @RetryOnConflict
     public void updateItemStatus(Long itemId, Integer status) {
         OrderItem item = orderItemMapper.selectById(itemId);
         if (item == null) {
             throw new BusinessException("订单项不存在");
         }
 
+        boolean started = orderStatusService.claimCookingStart(item, status);
         item.setStatus(status);
         orderItemMapper.updateById(item);
+        if (started) {
+            inventoryService.consume(item.getOrderId(), List.of(itemId));
+        }
+        eventPublisher.publishEvent(OrderChangedEvent.itemStatus(item));
 
         // 菜品状态更新后，重新计算订单状态
         // 注：即使菜品已结账，仍然可以切换状态
@@ -325,6 +378,8 @@ public class OrderService {
     }
 
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void completeOrder(Long orderId) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -333,16 +388,21 @@ public class OrderService {
 
         order.setStatus(3); // 已完成
         orderMapper.updateById(order);
+        inventoryService.release(orderId);
+        eventPublisher.publishEvent(OrderChangedEvent.completed(order));
 
         // 更新桌台状态为待清台
         RestaurantTable table = tableMapper.selectById(order.getTableId());
         if (table != null) {
             table.setStatus(2); // 待清台
             tableMapper.updateById(table);
+            eventPublisher.publishEvent(TableChangedEvent.changed(table));
         }
     }
 
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void cancelOrder(Long orderId) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -360,10 +420,16 @@ public class OrderService {
         for (OrderItem item : items) {
             Dish dish = dishMapper.selectById(item.getDishId());
             if (dish != null && dish.getStock() >= 0) {
+                boolean wasSoldOut = MenuChangedEvent.isSoldOut(dish);
                 dish.setStock(dish.getStock() + item.getQuantity());
                 dishMapper.updateById(dish);
+                if (wasSoldOut) {
+                    eventPublisher.publishEvent(MenuChangedEvent.availability(dish));
+                }
             }
         }
+        inventoryService.release(orderId);
+        eventPublisher.publishEvent(OrderChangedEvent.cancelled(order, items));
 
         // 检查桌台是否还有其他订单，如果没有则恢复空闲
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
@@ -373,6 +439,31 @@ public class OrderService {
             RestaurantTable table = tableMapper.selectById(order.getTableId());
             table.setStatus(0); // 空闲
             tableMapper.updateById(table);
+            eventPublisher.publishEvent(TableChangedEvent.changed(table));
+        }
+    }
+
+    /**
+     * 限量菜品（库存不为-1）剩余数量不足时拒绝下单，库存为0即已售罄
+     */
+    private void checkStock(Dish dish, int quantity) {
+        if (dish.getStock() >= 0 && dish.getStock() < quantity) {
+            throw new BusinessException(dish.getStock() == 0
+                    ? "菜品已售罄: " + dish.getName()
+                    : "菜品库存不足: " + dish.getName());
+        }
+    }
+
+    /**
+     * 扣减限量菜品库存，刚好卖完时通知点餐端售罄
+     */
+    private void deductStock(Dish dish, int quantity) {
+        if (dish.getStock() > 0) {
+            dish.setStock(dish.getStock() - quantity);
+            dishMapper.updateById(dish);
+            if (MenuChangedEvent.isSoldOut(dish)) {
+                eventPublisher.publishEvent(MenuChangedEvent.availability(dish));
+            }
         }
     }
 
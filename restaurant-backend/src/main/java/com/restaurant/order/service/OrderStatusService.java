@@ -1,20 +1,38 @@
 package com.restaurant.order.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.common.Money;
+import com.restaurant.common.datasource.Workload;
+import com.restaurant.common.datasource.WorkloadType;
 import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.mailbox.TableKeyResolver;
+import com.restaurant.common.mailbox.TableSerial;
+import com.restaurant.common.optimistic.RetryOnConflict;
+import com.restaurant.inventory.service.InventoryService;
+import com.restaurant.order.dto.UnpaidAmountDTO;
 import com.restaurant.order.entity.Order;
 import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
 import com.restaurant.order.mapper.OrderItemMapper;
 import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.promotion.dto.PromotionLine;
+import com.restaurant.promotion.dto.PromotionResult;
+import com.restaurant.promotion.service.PromotionService;
 import com.restaurant.table.entity.RestaurantTable;
+import com.restaurant.table.event.TableChangedEvent;
 import com.restaurant.table.mapper.TableMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +41,12 @@ public class OrderStatusService {
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
     private final TableMapper tableMapper;
+    private final InventoryService inventoryService;
+    private final PromotionService promotionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TableKeyResolver tableKeyResolver;
+    /** 经过代理调用本类方法，使按桌台串行和事务生效 */
+    private final ObjectProvider<OrderStatusService> self;
 
     /**
      * 根据菜品状态自动更新订单状态
@@ -33,6 +57,9 @@ public class OrderStatusService {
      * - 已完成(3)：所有菜品都已完成，且已结账
      * - 追加订单(4)：已结账后又加菜
      */
+    @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void updateOrderStatus(Long orderId) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -78,6 +105,7 @@ public class OrderStatusService {
                 if (table != null && table.getStatus() != 2) {
                     table.setStatus(2); // 待清台
                     tableMapper.updateById(table);
+                    eventPublisher.publishEvent(TableChangedEvent.changed(table));
                 }
             }
         }
@@ -94,22 +122,65 @@ public class OrderStatusService {
     }
 
     /**
-     * 计算未结账金额
+     * 计算未结账金额，以及按角、元、十元抹零后的金额（抹零后的金额可直接作为实付提交结账）
      */
-    public BigDecimal getUnpaidAmount(Long orderId) {
+    public UnpaidAmountDTO getUnpaidAmount(Long orderId) {
         List<OrderItem> unpaidItems = getUnpaidItems(orderId);
-        return unpaidItems.stream()
-                .map(OrderItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        PromotionResult promotion = promotionService.evaluate(toPromotionLines(unpaidItems, null), LocalDateTime.now());
+        Money amount = sumSubtotals(unpaidItems).minus(promotion.discount());
+        UnpaidAmountDTO dto = new UnpaidAmountDTO();
+        dto.setAmount(amount.toBigDecimal());
+        dto.setRoundedToJiao(amount.floorTo(Money.JIAO).toBigDecimal());
+        dto.setRoundedToYuan(amount.floorTo(Money.YUAN).toBigDecimal());
+        dto.setRoundedToTenYuan(amount.floorTo(Money.TEN_YUAN).toBigDecimal());
+        return dto;
+    }
+
+    /**
+     * 计算一组订单项的促销优惠，并把分摊结果写到各项的 discountAmount 上（不落库）
+     *
+     * @param orderedAt 尚未入库的订单项使用的点菜时间
+     * @return 优惠合计
+     */
+    public Money applyPromotions(List<OrderItem> items, LocalDateTime orderedAt) {
+        PromotionResult promotion = promotionService.evaluate(toPromotionLines(items, orderedAt), LocalDateTime.now());
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setDiscountAmount(promotion.lineDiscounts()[i].toBigDecimal());
+        }
+        return promotion.discount();
+    }
+
+    private List<PromotionLine> toPromotionLines(List<OrderItem> items, LocalDateTime orderedAt) {
+        List<PromotionLine> lines = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            LocalDateTime at = item.getCreatedAt() != null ? item.getCreatedAt() : orderedAt;
+            lines.add(new PromotionLine(item.getDishId(), null, Money.of(item.getPrice()), item.getQuantity(),
+                    at != null ? at : LocalDateTime.now()));
+        }
+        return lines;
+    }
+
+    private Money sumSubtotals(List<OrderItem> items) {
+        long cents = 0;
+        for (OrderItem item : items) {
+            cents = Math.addExact(cents, Money.of(item.getSubtotal()).cents());
+        }
+        return Money.ofCents(cents);
     }
 
     /**
      * 结账
      * 支持部分结账（已结账后加菜的情况）
-     * 支持抹零优惠（支付金额可以小于应付金额）
+     * 实付可以是 0 到应付金额之间的任意金额，应付与实付的差额（抹零或收银员手工让利）记为优惠；
+     * 抹零后的金额见 {@link #getUnpaidAmount}
      */
     @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void checkout(Long orderId, Integer payType, BigDecimal amount) {
+        if (amount == null) {
+            throw new BusinessException("支付金额不能为空");
+        }
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
             throw new BusinessException("订单不存在");
@@ -121,21 +192,18 @@ public class OrderStatusService {
             throw new BusinessException("没有待结账的菜品");
         }
 
-        // 计算应付金额
-        BigDecimal shouldPay = unpaidItems.stream()
-                .map(OrderItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 验证金额（允许支付金额小于等于应付金额，支持抹零优惠）
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BusinessException("支付金额必须大于0");
-        }
-        if (amount.compareTo(shouldPay) > 0) {
-            throw new BusinessException("支付金额不能超过应付金额：¥" + shouldPay);
+        // 计算应付金额：未结账菜品合并重新计算促销（跨批次加菜的买N送1、满减在这里生效）
+        Money gross = sumSubtotals(unpaidItems);
+        Money previousPromotion = Money.ZERO;
+        for (OrderItem item : unpaidItems) {
+            previousPromotion = previousPromotion.plus(Money.of(item.getDiscountAmount()));
         }
+        Money promotion = applyPromotions(unpaidItems, null);
+        Money shouldPay = gross.minus(promotion);
+        Money paid = Money.of(amount);
 
-        // 计算优惠金额（应付 - 实付）
-        BigDecimal discount = shouldPay.subtract(amount);
+        // 优惠金额（抹零或手工优惠，应付 - 实付），实付不在 0 到应付之间时拒绝
+        Money discount = shouldPay.discountTo(paid);
 
         // 标记未结账的菜品为已结账
         for (OrderItem item : unpaidItems) {
@@ -145,14 +213,16 @@ public class OrderStatusService {
 
         // 更新订单支付信息
         // 注意：这里直接设置实付金额，不是累加
-        // 因为createOrder时payAmount被设为totalAmount（应付），所以这里要减去应付，加上实付
-        BigDecimal currentPayAmount = order.getPayAmount();
-        BigDecimal newPayAmount = currentPayAmount.subtract(shouldPay).add(amount);
-        order.setPayAmount(newPayAmount);
-        order.setDiscountAmount(order.getDiscountAmount().add(discount));
+        // 下单时payAmount被设为应付金额（小计减去当时计算的促销），所以这里要减去这部分应付，加上实付；
+        // 优惠金额同样先去掉下单时的促销，再加上本次结算的促销和抹零
+        Money newPayAmount = Money.of(order.getPayAmount()).minus(gross.minus(previousPromotion)).plus(paid);
+        order.setPayAmount(newPayAmount.toBigDecimal());
+        order.setDiscountAmount(Money.of(order.getDiscountAmount()).minus(previousPromotion)
+                .plus(promotion).plus(discount).toBigDecimal());
         order.setPayType(payType);
         order.setPayTime(LocalDateTime.now());
         orderMapper.updateById(order);
+        eventPublisher.publishEvent(OrderChangedEvent.itemsPaid(order, unpaidItems));
 
         // 结账后根据菜品状态更新订单状态
         updateOrderStatus(orderId);
@@ -161,6 +231,9 @@ public class OrderStatusService {
     /**
      * 完成订单（上菜完毕）
      */
+    @Transactional
+    @TableSerial(source = TableSerial.Source.ORDER)
+    @RetryOnConflict
     public void completeOrder(Long orderId) {
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -175,23 +248,77 @@ public class OrderStatusService {
 
         order.setStatus(3); // 已完成
         orderMapper.updateById(order);
+        // 未制作的菜品不再出餐，归还预占的原料
+        inventoryService.release(orderId);
+        eventPublisher.publishEvent(OrderChangedEvent.completed(order));
     }
 
     /**
      * 更新菜品状态（供服务员/后厨调用）
      * 更新后自动更新订单状态
+     * 无论从后厨接口、订单接口还是后厨 WebSocket 指令进入，都使用后厨连接池
      */
     @Transactional
+    @Workload(WorkloadType.KITCHEN)
+    @TableSerial(source = TableSerial.Source.ORDER_ITEM)
+    @RetryOnConflict
     public void updateItemStatus(Long itemId, Integer status) {
         OrderItem item = orderItemMapper.selectById(itemId);
         if (item == null) {
             throw new BusinessException("菜品不存在");
         }
 
+        boolean started = claimCookingStart(item, status);
         item.setStatus(status);
         orderItemMapper.updateById(item);
+        if (started) {
+            inventoryService.consume(item.getOrderId(), List.of(itemId));
+        }
+        eventPublisher.publishEvent(OrderChangedEvent.itemStatus(item));
 
         // 自动更新订单状态
         updateOrderStatus(item.getOrderId());
     }
+
+    /**
+     * 菜品从待制作进入制作（或直接完成）时需要扣减原料
+     * 先用条件更新抢占状态变化，重复提交的指令只有一个返回 true，必须在 updateById 之前调用
+     */
+    boolean claimCookingStart(OrderItem item, Integer status) {
+        return Integer.valueOf(0).equals(item.getStatus()) && status != null && status > 0
+                && orderItemMapper.updateStatusIfPending(item.getId(), status) > 0;
+    }
+
+    /**
+     * 批量更新菜品状态（后厨一次出多道菜）
+     * 合并制作的一批菜品可能属于多张桌台，按桌台分组后依次交给各桌台的分片执行，每张桌台一个事务；
+     * 任一菜品不存在时在修改任何数据之前报错，某张桌台失败时该桌台整体回滚，之前已完成的桌台保持不变
+     */
+    @Workload(WorkloadType.KITCHEN)
+    public void updateItemsStatus(List<Long> itemIds, Integer status) {
+        Map<Long, List<Long>> itemsByTable = new LinkedHashMap<>();
+        for (Long itemId : itemIds) {
+            Long tableId = tableKeyResolver.tableOfOrderItem(itemId);
+            if (tableId == null) {
+                throw new BusinessException("菜品不存在");
+            }
+            itemsByTable.computeIfAbsent(tableId, id -> new ArrayList<>()).add(itemId);
+        }
+        OrderStatusService proxy = self.getObject();
+        itemsByTable.forEach((tableId, tableItemIds) -> proxy.updateTableItemsStatus(tableId, tableItemIds, status));
+    }
+
+    /**
+     * 更新同一桌台的一批菜品状态，tableId 只用于确定所在分片
+     * 逐个调用 updateItemStatus 是自调用，不再经过桌台信箱，在同一个事务中完成
+     */
+    @Transactional
+    @Workload(WorkloadType.KITCHEN)
+    @TableSerial
+    @RetryOnConflict
+    public void updateTableItemsStatus(Long tableId, List<Long> itemIds, Integer status) {
+        for (Long itemId : itemIds) {
+            updateItemStatus(itemId, status);
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.restaurant.order.service;
+
+import com.restaurant.common.mailbox.TableKeyResolver;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 订单、订单明细所属桌台的查找
+ * 订单的桌台和明细的订单创建后不再变化，查到后缓存；超过上限时淘汰最久未访问的条目，
+ * 进行中的订单被反复访问，不会因为缓存满了一起失效、集中回查数据库
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderTableResolver implements TableKeyResolver {
+
+    static final int MAX_ENTRIES = 10000;
+
+    private final OrderMapper orderMapper;
+    private final OrderItemMapper orderItemMapper;
+
+    // 按访问顺序排列，读取也会调整顺序，访问时需持有该 Map 的锁
+    private final Map<Long, Long> orderTables = lruCache();
+    private final Map<Long, Long> itemOrders = lruCache();
+
+    @Override
+    public Long tableOfOrder(Long orderId) {
+        Long tableId = cached(orderTables, orderId);
+        if (tableId != null) {
+            return tableId;
+        }
+        Order order = orderMapper.selectById(orderId);
+        if (order == null) {
+            return null;
+        }
+        remember(orderTables, orderId, order.getTableId());
+        return order.getTableId();
+    }
+
+    @Override
+    public Long tableOfOrderItem(Long itemId) {
+        Long orderId = cached(itemOrders, itemId);
+        if (orderId == null) {
+            OrderItem item = orderItemMapper.selectById(itemId);
+            if (item == null) {
+                return null;
+            }
+            orderId = item.getOrderId();
+            remember(itemOrders, itemId, orderId);
+        }
+        return tableOfOrder(orderId);
+    }
+
+    private static Long cached(Map<Long, Long> cache, Long key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private static void remember(Map<Long, Long> cache, Long key, Long value) {
+        if (value == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+    }
+
+    private static Map<Long, Long> lruCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+}
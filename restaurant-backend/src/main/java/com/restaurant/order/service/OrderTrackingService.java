@@ -0,0 +1,492 @@
+package com.restaurant.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.order.dto.OrderDetailDTO;
+import com.restaurant.order.dto.OrderTrackingEvent;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.event.OrderChangedEvent;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.websocket.WebSocketDispatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 顾客端订单实时跟踪（SSE）
+ * 每部手机按桌台订阅一条事件流，连接建立时发送一次订单快照，之后只推送增量，不再轮询。
+ * - 增量来自订单变更事件，经 {@link WebSocketDispatcher} 分发，多节点部署时各节点都能收到
+ * - 每个桌台保留最近若干条事件，断线重连时按 Last-Event-ID 补发，补不上时重新发送快照
+ * - 定时发送心跳注释，保持连接并及时发现断开的客户端
+ * - 每个连接一个有界发送队列，由发送线程池逐个写出；桌台锁内和推送、心跳线程上只入队，
+ *   某部手机网络中断、写阻塞时只影响它自己，积压超限或单次发送超时后断开该连接
+ */
+@Slf4j
+@Service
+public class OrderTrackingService {
+
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    // 无订阅者的桌台保留事件缓冲的时间，便于短暂断线后补发
+    private static final long IDLE_STREAM_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    // 连接数超限时建议客户端的重连间隔
+    private static final long BUSY_RETRY_MS = 30_000;
+    private static final int MAX_TRACKED_ORDERS = 10_000;
+    // 单个连接的发送超时与积压上限，与 WebSocket 连接的限制一致
+    private static final long SEND_TIME_LIMIT_MS = 5000;
+    private static final int MAX_PENDING_EVENTS = 200;
+    private static final int SEND_THREADS = 8;
+
+    private final OrderService orderService;
+    private final OrderMapper orderMapper;
+    private final WebSocketDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+    private final int maxConnectionsPerTable;
+    private final int replaySize;
+
+    // 事件ID前缀，节点重启后旧ID不会被误认为可以续传
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Long, TableStream> streams = new ConcurrentHashMap<>();
+    // 订单ID -> 桌台ID，菜品状态事件只带订单ID
+    private final Map<Long, Long> orderTables = new ConcurrentHashMap<>();
+
+    // 事件按提交顺序推送，慢客户端不阻塞业务线程
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sse-push");
+        t.setDaemon(true);
+        return t;
+    });
+    // 每个连接同一时间最多占用一个发送线程，写阻塞的连接不影响其他连接
+    private final ExecutorService sendExecutor = Executors.newFixedThreadPool(SEND_THREADS, r -> {
+        Thread t = new Thread(r, "sse-send");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder pushedEvents = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public OrderTrackingService(OrderService orderService,
+                                OrderMapper orderMapper,
+                                WebSocketDispatcher dispatcher,
+                                ObjectMapper objectMapper,
+                                @Value("${app.sse.max-connections-per-table:10}") int maxConnectionsPerTable,
+                                @Value("${app.sse.replay-size:50}") int replaySize,
+                                @Value("${app.sse.heartbeat-interval-ms:15000}") long heartbeatIntervalMs) {
+        this.orderService = orderService;
+        this.orderMapper = orderMapper;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+        this.maxConnectionsPerTable = maxConnectionsPerTable;
+        this.replaySize = replaySize;
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat,
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PostConstruct
+    public void registerTopic() {
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_TABLE, this::deliver);
+    }
+
+    /**
+     * 订阅桌台的订单事件
+     *
+     * @param lastEventId 浏览器重连时带上的最后一条事件ID，可为空
+     */
+    public SseEmitter subscribe(Long tableId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter);
+        TableStream stream = join(tableId);
+        boolean busy = false;
+        try {
+            synchronized (stream) {
+                if (stream.subscribers.size() >= maxConnectionsPerTable) {
+                    busy = true;
+                } else {
+                    List<StreamEvent> replay = stream.eventsAfter(lastEventId, epoch);
+                    if (replay != null) {
+                        resumed.increment();
+                        offerAll(subscriber, replay);
+                        stream.subscribers.add(subscriber);
+                    }
+                }
+            }
+            if (!busy && !stream.subscribers.contains(subscriber)) {
+                // 无法续传：先查快照，再补发查询期间产生的事件，客户端按 id 合并，重复的增量无副作用
+                long seqBeforeSnapshot = stream.lastSeq();
+                OrderDetailDTO snapshot = orderService.getOrderByTable(tableId);
+                if (snapshot != null) {
+                    rememberOrder(snapshot.getOrder());
+                }
+                String data = objectMapper.writeValueAsString(snapshot);
+                synchronized (stream) {
+                    subscriber.offer(() -> SseEmitter.event()
+                            .id(epoch + "-" + seqBeforeSnapshot)
+                            .name("snapshot")
+                            .data(data, MediaType.TEXT_PLAIN));
+                    offerAll(subscriber, stream.eventsSince(seqBeforeSnapshot));
+                    stream.subscribers.add(subscriber);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.error("序列化订单快照失败: 桌台 {}", tableId, e);
+            emitter.completeWithError(e);
+            return emitter;
+        } finally {
+            synchronized (stream) {
+                stream.joining--;
+                stream.lastActive = System.currentTimeMillis();
+            }
+        }
+        if (busy) {
+            rejected.increment();
+            rejectBusy(emitter);
+            return emitter;
+        }
+
+        Runnable remove = () -> {
+            stream.subscribers.remove(subscriber);
+            stream.lastActive = System.currentTimeMillis();
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 取桌台的事件流并登记正在订阅，心跳不会在订阅过程中移除它
+     */
+    private TableStream join(Long tableId) {
+        while (true) {
+            TableStream stream = streams.computeIfAbsent(tableId, id -> new TableStream());
+            synchronized (stream) {
+                // 心跳可能刚把空闲的桌台移除，挂在移除的对象上将再也收不到事件
+                if (streams.get(tableId) == stream) {
+                    stream.joining++;
+                    return stream;
+                }
+            }
+        }
+    }
+
+    /**
+     * 订单变更在事务提交后转成增量事件分发
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.isRemote()) {
+            // 发生变更的节点已经分发给所有节点
+            return;
+        }
+        pushExecutor.execute(() -> publish(event));
+    }
+
+    private void publish(OrderChangedEvent event) {
+        try {
+            Long tableId = resolveTableId(event);
+            if (tableId == null) {
+                return;
+            }
+            if (event.getType() == OrderChangedEvent.Type.CANCELLED
+                    || event.getType() == OrderChangedEvent.Type.COMPLETED) {
+                orderTables.remove(event.getOrderId());
+            }
+            OrderTrackingEvent payload = new OrderTrackingEvent(
+                    event.getType().name(), event.getOrderId(), event.getOrder(), event.getItems());
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("tableId", tableId);
+            message.put("event", payload);
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_TABLE, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("推送订单跟踪事件失败: {}", event.getOrderId(), e);
+        }
+    }
+
+    /**
+     * 投递给本节点订阅了该桌台的客户端
+     */
+    private void deliver(String message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            TableStream stream = streams.get(node.get("tableId").asLong());
+            if (stream == null) {
+                return;
+            }
+            String data = node.get("event").toString();
+            synchronized (stream) {
+                StreamEvent event = stream.append("order", data, replaySize);
+                for (Subscriber subscriber : stream.subscribers) {
+                    if (!subscriber.offer(() -> toSse(event))) {
+                        stream.subscribers.remove(subscriber);
+                    }
+                }
+            }
+            pushedEvents.increment();
+        } catch (Exception e) {
+            log.error("解析订单跟踪消息失败", e);
+        }
+    }
+
+    private Long resolveTableId(OrderChangedEvent event) {
+        if (event.getOrder() != null) {
+            rememberOrder(event.getOrder());
+            return event.getOrder().getTableId();
+        }
+        Long tableId = orderTables.get(event.getOrderId());
+        if (tableId == null) {
+            Order order = orderMapper.selectById(event.getOrderId());
+            if (order == null) {
+                return null;
+            }
+            rememberOrder(order);
+            tableId = order.getTableId();
+        }
+        return tableId;
+    }
+
+    private void rememberOrder(Order order) {
+        if (order == null || order.getTableId() == null || order.getStatus() == null || order.getStatus() >= 3) {
+            return;
+        }
+        if (orderTables.size() >= MAX_TRACKED_ORDERS) {
+            // 正常营业不会达到上限，超出时整体清空，之后按需查库
+            orderTables.clear();
+        }
+        orderTables.put(order.getId(), order.getTableId());
+    }
+
+    private void offerAll(Subscriber subscriber, List<StreamEvent> events) {
+        for (StreamEvent event : events) {
+            if (!subscriber.offer(() -> toSse(event))) {
+                return;
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSse(StreamEvent event) {
+        return SseEmitter.event()
+                .id(epoch + "-" + event.seq)
+                .name(event.name)
+                .data(event.data, MediaType.TEXT_PLAIN);
+    }
+
+    private void rejectBusy(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().name("busy").reconnectTime(BUSY_RETRY_MS).data("连接数已满"));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("发送SSE拒绝消息失败: {}", e.getMessage());
+        }
+        emitter.complete();
+    }
+
+    /**
+     * 心跳：向所有连接发送注释行，清理长期无人订阅的桌台
+     */
+    private void heartbeat() {
+        // 定时任务抛出异常后不会再执行，任何异常都在这里吞掉
+        try {
+            long now = System.currentTimeMillis();
+            streams.forEach((tableId, stream) -> {
+                synchronized (stream) {
+                    for (Subscriber subscriber : stream.subscribers) {
+                        if (!subscriber.offer(() -> SseEmitter.event().comment("hb"))) {
+                            stream.subscribers.remove(subscriber);
+                        }
+                    }
+                    if (stream.subscribers.isEmpty() && stream.joining == 0
+                            && now - stream.lastActive > IDLE_STREAM_TTL_MS) {
+                        streams.remove(tableId, stream);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("SSE心跳执行失败", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tables", streams.size());
+        stats.put("connections", streams.values().stream().mapToInt(s -> s.subscribers.size()).sum());
+        stats.put("pushedEvents", pushedEvents.sum());
+        stats.put("resumed", resumed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        pushExecutor.shutdown();
+        streams.values().forEach(stream -> stream.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        sendExecutor.shutdownNow();
+    }
+
+    private record StreamEvent(long seq, String name, String data) {
+    }
+
+    /**
+     * 一个 SSE 连接及其待发送的事件，按入队顺序由发送线程写出
+     * 入队不阻塞：积压超过上限、或当前一次发送超过时限（多半是对端网络已断）时放弃该连接，
+     * 关闭也交给发送线程执行，SseEmitter 的方法互斥，在入队线程上关闭会被卡住的发送拖住
+     */
+    private class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> pending = new LinkedBlockingQueue<>(MAX_PENDING_EVENTS);
+        final AtomicBoolean flushing = new AtomicBoolean();
+        volatile long sendStartedAt;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return 连接已放弃时返回 false，调用方应将其移出订阅列表
+         */
+        boolean offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return false;
+            }
+            long started = sendStartedAt;
+            if ((started != 0 && System.currentTimeMillis() - started > SEND_TIME_LIMIT_MS) || !pending.offer(event)) {
+                dropped.increment();
+                log.info("SSE客户端接收过慢，断开连接");
+                close(new IOException("SSE客户端接收过慢"));
+                return false;
+            }
+            if (flushing.compareAndSet(false, true)) {
+                sendExecutor.execute(this::flush);
+            }
+            return true;
+        }
+
+        private void flush() {
+            do {
+                Supplier<SseEmitter.SseEventBuilder> next;
+                while (!closed && (next = pending.poll()) != null) {
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        emitter.send(next.get());
+                    } catch (IOException | RuntimeException e) {
+                        close(e);
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                flushing.set(false);
+            } while (!closed && !pending.isEmpty() && flushing.compareAndSet(false, true));
+        }
+
+        private void close(Throwable cause) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            sendExecutor.execute(() -> {
+                try {
+                    emitter.completeWithError(cause);
+                } catch (RuntimeException e) {
+                    log.debug("关闭SSE连接失败: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 单个桌台的订阅者和最近事件，修改和入队都在该对象的锁内进行，保证同一桌台的事件顺序；
+     * joining 为正在订阅（查询快照中）的连接数，大于 0 时心跳不移除该桌台
+     */
+    private static class TableStream {
+        final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        int joining;
+        final Deque<StreamEvent> recent = new ArrayDeque<>();
+        long seq;
+        volatile long lastActive = System.currentTimeMillis();
+
+        synchronized long lastSeq() {
+            return seq;
+        }
+
+        StreamEvent append(String name, String data, int capacity) {
+            StreamEvent event = new StreamEvent(++seq, name, data);
+            recent.addLast(event);
+            while (recent.size() > capacity) {
+                recent.removeFirst();
+            }
+            lastActive = System.currentTimeMillis();
+            return event;
+        }
+
+        /**
+         * 按 Last-Event-ID 取需要补发的事件
+         *
+         * @return 无法续传（ID无效、来自其他节点或已超出缓冲）时返回 null
+         */
+        List<StreamEvent> eventsAfter(String lastEventId, String epoch) {
+            if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+                return null;
+            }
+            long lastSeq;
+            try {
+                lastSeq = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (lastSeq > seq) {
+                return null;
+            }
+            long oldest = recent.isEmpty() ? seq + 1 : recent.peekFirst().seq;
+            if (lastSeq + 1 < oldest) {
+                return null;
+            }
+            return eventsSince(lastSeq);
+        }
+
+        List<StreamEvent> eventsSince(long lastSeq) {
+            List<StreamEvent> result = new ArrayList<>();
+            for (StreamEvent event : recent) {
+                if (event.seq > lastSeq) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.restaurant.promotion.controller;
+
+import com.restaurant.common.Result;
+import com.restaurant.promotion.entity.Promotion;
+import com.restaurant.promotion.service.PromotionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/promotions")
+@RequiredArgsConstructor
+public class PromotionController {
+
+    private final PromotionService promotionService;
+
+    @GetMapping
+    public Result<List<Promotion>> list() {
+        return Result.success(promotionService.list());
+    }
+
+    @PostMapping
+    public Result<Void> create(@RequestBody Promotion promotion) {
+        promotion.setId(null);
+        promotionService.save(promotion);
+        return Result.success();
+    }
+
+    @PutMapping("/{id}")
+    public Result<Void> update(@PathVariable Long id, @RequestBody Promotion promotion) {
+        promotion.setId(id);
+        promotionService.save(promotion);
+        return Result.success();
+    }
+
+    @PostMapping("/{id}/toggle")
+    public Result<Void> toggleStatus(@PathVariable Long id) {
+        promotionService.toggleStatus(id);
+        return Result.success();
+    }
+
+    @DeleteMapping("/{id}")
+    public Result<Void> delete(@PathVariable Long id) {
+        promotionService.delete(id);
+        return Result.success();
+    }
+
+    /**
+     * 直接修改数据库中的活动或菜品分类后，立即重建规则索引
+     */
+    @PostMapping("/reload")
+    public Result<Void> reload() {
+        promotionService.reload();
+        return Result.success();
+    }
+
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(promotionService.getStats());
+    }
+}
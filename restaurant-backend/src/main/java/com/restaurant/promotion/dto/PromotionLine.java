@@ -0,0 +1,12 @@
+package com.restaurant.promotion.dto;
+
+import com.restaurant.common.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * 参与计算优惠的一行：菜品、单价、数量和点菜时间（判断时段活动）
+ * categoryId 为空时按菜品所属分类匹配
+ */
+public record PromotionLine(Long dishId, Long categoryId, Money unitPrice, int quantity, LocalDateTime orderedAt) {
+}
@@ -0,0 +1,12 @@
+package com.restaurant.promotion.dto;
+
+import com.restaurant.common.Money;
+
+import java.util.List;
+
+/**
+ * 优惠计算结果
+ * lineDiscounts 与传入的行一一对应，满减按各行金额分摊到行上，合计等于 discount
+ */
+public record PromotionResult(Money[] lineDiscounts, Money discount, List<String> applied) {
+}
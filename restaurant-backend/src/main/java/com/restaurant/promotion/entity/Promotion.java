@@ -0,0 +1,34 @@
+package com.restaurant.promotion.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.restaurant.common.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("promotion")
+public class Promotion extends BaseEntity {
+
+    public static final int TYPE_PERCENT_OFF = 1;      // 折扣（配合每日时段即为欢乐时光）
+    public static final int TYPE_BUY_N_FREE_ONE = 2;   // 买N送1
+    public static final int TYPE_SPEND_REDUCTION = 3;  // 满减（整单）
+
+    private String name;                 // 活动名称
+    private Integer type;                // 类型：1折扣 2买N送1 3满减
+    private Long dishId;                 // 适用菜品（为空时看分类）
+    private Long categoryId;             // 适用分类（菜品和分类都为空表示全场）
+    private Integer percentOff;          // 折扣：减免百分比，如 20 表示八折
+    private Integer buyQuantity;         // 买N送1：N
+    private BigDecimal thresholdAmount;  // 满减：门槛金额
+    private BigDecimal reduceAmount;     // 满减：减免金额
+    private LocalTime startTime;         // 每日开始时间（为空不限）
+    private LocalTime endTime;           // 每日结束时间（早于开始时间表示跨零点）
+    private LocalDateTime validFrom;     // 活动开始
+    private LocalDateTime validTo;       // 活动结束
+    private Integer status;              // 状态：0停用 1启用
+}
@@ -0,0 +1,19 @@
+package com.restaurant.promotion.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.restaurant.promotion.entity.Promotion;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface PromotionMapper extends BaseMapper<Promotion> {
+
+    /**
+     * 启用且尚未结束的活动
+     */
+    @Select("SELECT * FROM promotion WHERE is_deleted = 0 AND status = 1 " +
+            "AND (valid_to IS NULL OR valid_to > NOW()) ORDER BY id")
+    List<Promotion> selectActivePromotions();
+}
@@ -0,0 +1,406 @@
+package com.restaurant.promotion.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.common.Money;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.event.MenuChangedEvent;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.promotion.dto.PromotionLine;
+import com.restaurant.promotion.dto.PromotionResult;
+import com.restaurant.promotion.entity.Promotion;
+import com.restaurant.promotion.mapper.PromotionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 促销规则的内存索引
+ * 启用的活动编译为不可变的规则，按菜品、分类和全场分别索引，菜品所属分类一并缓存；
+ * 计算一单优惠只在索引上查找，不访问数据库，耗时与行数和每个菜品命中的规则数成正比。
+ * 计算规则：
+ * - 同一菜品的所有行作为一组，在命中的折扣、买N送1规则中取优惠最大的一条，不叠加
+ * - 满减在单品优惠之后按剩余金额判断，只取减免最多的一条，按各行剩余金额分摊；
+ *   指定了菜品或分类的满减只按该菜品或分类的行计算门槛，也只分摊到这些行
+ * - 折扣按行计算，分以下舍去；时段活动按每行的点菜时间判断，满减按结算时间判断
+ * 活动或菜品分类修改后整体失效，超过刷新间隔也会在下一次访问时重新加载。
+ */
+@Slf4j
+@Component
+public class PromotionRuleIndex {
+
+    private final PromotionMapper promotionMapper;
+    private final DishMapper dishMapper;
+    private final long refreshIntervalMs;
+
+    private volatile Snapshot snapshot;
+
+    public PromotionRuleIndex(PromotionMapper promotionMapper,
+                              DishMapper dishMapper,
+                              @Value("${app.promotion.refresh-ms:60000}") long refreshIntervalMs) {
+        this.promotionMapper = promotionMapper;
+        this.dishMapper = dishMapper;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * 计算一组行的优惠
+     *
+     * @param evaluatedAt 结算时间，用于判断满减活动是否生效
+     */
+    public PromotionResult evaluate(List<PromotionLine> lines, LocalDateTime evaluatedAt) {
+        Snapshot current = current();
+        int size = lines.size();
+        long[] discounts = new long[size];
+        Set<String> applied = new LinkedHashSet<>();
+
+        // 按菜品分组，同一菜品的多行（如不同备注）合并计算买N送1
+        Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+        Long[] categories = new Long[size];
+        for (int i = 0; i < size; i++) {
+            PromotionLine line = lines.get(i);
+            groups.computeIfAbsent(line.dishId(), k -> new ArrayList<>(2)).add(i);
+            categories[i] = line.categoryId() != null ? line.categoryId() : current.dishCategories.get(line.dishId());
+        }
+
+        long[] candidate = new long[size];
+        for (Map.Entry<Long, List<Integer>> group : groups.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            Long categoryId = categories[indexes.get(0)];
+
+            Rule best = null;
+            long bestTotal = 0;
+            for (List<Rule> rules : List.of(current.byDish.getOrDefault(group.getKey(), List.of()),
+                    categoryId != null ? current.byCategory.getOrDefault(categoryId, List.of()) : List.<Rule>of(),
+                    current.global)) {
+                for (Rule rule : rules) {
+                    long total = rule.groupDiscount(lines, indexes, candidate);
+                    if (total > bestTotal) {
+                        best = rule;
+                        bestTotal = total;
+                        for (int index : indexes) {
+                            discounts[index] = candidate[index];
+                        }
+                    }
+                }
+            }
+            if (best != null) {
+                applied.add(best.name);
+            }
+        }
+
+        long[] remaining = new long[size];
+        for (int i = 0; i < size; i++) {
+            remaining[i] = lines.get(i).unitPrice().times(lines.get(i).quantity()).cents() - discounts[i];
+        }
+        // 满减规则按减免金额从大到小排列；各规则按适用行的剩余金额判断门槛，取实际减免最多的一条，
+        // 没有适用行（或适用行已全部减免）的规则减免为 0，不算命中
+        Rule reduction = null;
+        long reductionNet = 0;
+        long reductionCents = 0;
+        for (Rule rule : current.reductions) {
+            if (!rule.activeAt(evaluatedAt)) {
+                continue;
+            }
+            long net = 0;
+            for (int i = 0; i < size; i++) {
+                if (rule.appliesTo(lines.get(i).dishId(), categories[i])) {
+                    net = Math.addExact(net, remaining[i]);
+                }
+            }
+            long reduce = Math.min(rule.reduceCents, net);
+            if (reduce > reductionCents && net >= rule.thresholdCents) {
+                reduction = rule;
+                reductionNet = net;
+                reductionCents = reduce;
+            }
+        }
+        if (reduction != null) {
+            allocate(lines, categories, remaining, discounts, reduction, reductionNet, reductionCents);
+            applied.add(reduction.name);
+        }
+
+        Money[] lineDiscounts = new Money[size];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            lineDiscounts[i] = Money.ofCents(discounts[i]);
+            total += discounts[i];
+        }
+        return new PromotionResult(lineDiscounts, Money.ofCents(total), List.copyOf(applied));
+    }
+
+    /**
+     * 满减金额按规则适用行的剩余金额比例分摊，舍去的零头逐行补齐，每行优惠不超过其金额
+     */
+    private void allocate(List<PromotionLine> lines, Long[] categories, long[] remaining, long[] discounts,
+                          Rule rule, long net, long reduce) {
+        long allocated = 0;
+        for (int i = 0; i < remaining.length; i++) {
+            if (!rule.appliesTo(lines.get(i).dishId(), categories[i])) {
+                remaining[i] = 0;
+                continue;
+            }
+            long share = mulDiv(reduce, remaining[i], net);
+            discounts[i] += share;
+            remaining[i] -= share;
+            allocated += share;
+        }
+        for (int i = 0; i < remaining.length && allocated < reduce; i++) {
+            long extra = Math.min(remaining[i], reduce - allocated);
+            discounts[i] += extra;
+            allocated += extra;
+        }
+    }
+
+    /**
+     * a * b / c 向下取整，乘积超出 long 时改用 BigInteger
+     */
+    private static long mulDiv(long a, long b, long c) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return low / c;
+        }
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).divide(BigInteger.valueOf(c)).longValueExact();
+    }
+
+    /**
+     * 立即重新加载（活动修改后调用）
+     */
+    public synchronized void reload() {
+        List<Promotion> promotions = promotionMapper.selectActivePromotions();
+        Map<Long, List<Rule>> byDish = new HashMap<>();
+        Map<Long, List<Rule>> byCategory = new HashMap<>();
+        List<Rule> global = new ArrayList<>();
+        List<Rule> reductions = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            Rule rule = compile(promotion);
+            if (rule == null) {
+                continue;
+            }
+            if (rule.type == Promotion.TYPE_SPEND_REDUCTION) {
+                reductions.add(rule);
+            } else if (promotion.getDishId() != null) {
+                byDish.computeIfAbsent(promotion.getDishId(), k -> new ArrayList<>()).add(rule);
+            } else if (promotion.getCategoryId() != null) {
+                byCategory.computeIfAbsent(promotion.getCategoryId(), k -> new ArrayList<>()).add(rule);
+            } else {
+                global.add(rule);
+            }
+        }
+        byDish.replaceAll((key, rules) -> List.copyOf(rules));
+        byCategory.replaceAll((key, rules) -> List.copyOf(rules));
+        reductions.sort(Comparator.comparingLong((Rule r) -> r.reduceCents).reversed());
+
+        Map<Long, Long> dishCategories = new HashMap<>();
+        for (Dish dish : dishMapper.selectList(new LambdaQueryWrapper<Dish>().select(Dish::getId, Dish::getCategoryId))) {
+            if (dish.getCategoryId() != null) {
+                dishCategories.put(dish.getId(), dish.getCategoryId());
+            }
+        }
+
+        snapshot = new Snapshot(Map.copyOf(byDish), Map.copyOf(byCategory), List.copyOf(global),
+                List.copyOf(reductions), Map.copyOf(dishCategories), promotions.size(), System.currentTimeMillis());
+        log.info("促销规则已加载: {} 个活动", promotions.size());
+    }
+
+    /**
+     * 菜品分类变化后失效，下一次计算时重新加载
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        if (event.isStructural()) {
+            snapshot = null;
+        }
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.size : 0;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || System.currentTimeMillis() - current.loadedAt > refreshIntervalMs) {
+            synchronized (this) {
+                if (snapshot == current) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 参数不完整的活动不参与计算
+     */
+    private Rule compile(Promotion promotion) {
+        int type = promotion.getType() != null ? promotion.getType() : 0;
+        long threshold = 0;
+        long reduce = 0;
+        int percentOff = 0;
+        int buyQuantity = 0;
+        switch (type) {
+            case Promotion.TYPE_PERCENT_OFF -> {
+                if (promotion.getPercentOff() == null || promotion.getPercentOff() <= 0
+                        || promotion.getPercentOff() > 100) {
+                    return invalid(promotion);
+                }
+                percentOff = promotion.getPercentOff();
+            }
+            case Promotion.TYPE_BUY_N_FREE_ONE -> {
+                if (promotion.getBuyQuantity() == null || promotion.getBuyQuantity() <= 0) {
+                    return invalid(promotion);
+                }
+                buyQuantity = promotion.getBuyQuantity();
+            }
+            case Promotion.TYPE_SPEND_REDUCTION -> {
+                if (promotion.getReduceAmount() == null || promotion.getReduceAmount().signum() <= 0) {
+                    return invalid(promotion);
+                }
+                threshold = Money.of(promotion.getThresholdAmount()).cents();
+                reduce = Money.of(promotion.getReduceAmount()).cents();
+            }
+            default -> {
+                return invalid(promotion);
+            }
+        }
+        return new Rule(promotion.getName(), type, promotion.getDishId(), promotion.getCategoryId(),
+                percentOff, buyQuantity, threshold, reduce, promotion.getStartTime(), promotion.getEndTime(), promotion.getValidFrom(), promotion.getValidTo());
+    }
+
+    private Rule invalid(Promotion promotion) {
+        log.warn("促销活动参数不完整，已忽略: {} ({})", promotion.getName(), promotion.getId());
+        return null;
+    }
+
+    /**
+     * 编译后的规则
+     */
+    private static final class Rule {
+        final String name;
+        final int type;
+        final Long dishId;
+        final Long categoryId;
+        final int percentOff;
+        final int buyQuantity;
+        final long thresholdCents;
+        final long reduceCents;
+        final LocalTime startTime;
+        final LocalTime endTime;
+        final LocalDateTime validFrom;
+        final LocalDateTime validTo;
+
+        Rule(String name, int type, Long dishId, Long categoryId, int percentOff, int buyQuantity,
+             long thresholdCents, long reduceCents, LocalTime startTime, LocalTime endTime,
+             LocalDateTime validFrom, LocalDateTime validTo) {
+            this.name = name;
+            this.type = type;
+            this.dishId = dishId;
+            this.categoryId = categoryId;
+            this.percentOff = percentOff;
+            this.buyQuantity = buyQuantity;
+            this.thresholdCents = thresholdCents;
+            this.reduceCents = reduceCents;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.validFrom = validFrom;
+            this.validTo = validTo;
+        }
+
+        /**
+         * 活动指定了菜品时只匹配该菜品，否则指定了分类时只匹配该分类，都未指定为全场
+         */
+        boolean appliesTo(Long lineDishId, Long lineCategoryId) {
+            if (dishId != null) {
+                return dishId.equals(lineDishId);
+            }
+            return categoryId == null || categoryId.equals(lineCategoryId);
+        }
+
+        boolean activeAt(LocalDateTime at) {
+            if ((validFrom != null && at.isBefore(validFrom)) || (validTo != null && !at.isBefore(validTo))) {
+                return false;
+            }
+            if (startTime == null || endTime == null) {
+                return true;
+            }
+            LocalTime time = at.toLocalTime();
+            return startTime.isBefore(endTime)
+                    ? !time.isBefore(startTime) && time.isBefore(endTime)
+                    : !time.isBefore(startTime) || time.isBefore(endTime);
+        }
+
+        /**
+         * 计算该规则对一组同菜品行的优惠，结果写入 out 对应位置
+         */
+        long groupDiscount(List<PromotionLine> lines, List<Integer> indexes, long[] out) {
+            long total = 0;
+            for (int index : indexes) {
+                out[index] = 0;
+            }
+            if (type == Promotion.TYPE_PERCENT_OFF) {
+                for (int index : indexes) {
+                    PromotionLine line = lines.get(index);
+                    if (activeAt(line.orderedAt())) {
+                        long subtotal = line.unitPrice().times(line.quantity()).cents();
+                        out[index] = Math.multiplyExact(subtotal, percentOff) / 100;
+                        total += out[index];
+                    }
+                }
+                return total;
+            }
+
+            // 买N送1：每 N+1 份送一份，优先送单价最低的
+            int quantity = 0;
+            List<Integer> active = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                PromotionLine line = lines.get(index);
+                if (activeAt(line.orderedAt())) {
+                    active.add(index);
+                    quantity += line.quantity();
+                }
+            }
+            int free = quantity / (buyQuantity + 1);
+            if (free == 0) {
+                return 0;
+            }
+            Integer[] byPrice = active.toArray(new Integer[0]);
+            Arrays.sort(byPrice, Comparator.comparingLong(i -> lines.get(i).unitPrice().cents()));
+            for (int index : byPrice) {
+                PromotionLine line = lines.get(index);
+                int units = Math.min(free, line.quantity());
+                out[index] = line.unitPrice().times(units).cents();
+                total += out[index];
+                free -= units;
+                if (free == 0) {
+                    break;
+                }
+            }
+            return total;
+        }
+    }
+
+    private record Snapshot(Map<Long, List<Rule>> byDish,
+                            Map<Long, List<Rule>> byCategory,
+                            List<Rule> global,
+                            List<Rule> reductions,
+                            Map<Long, Long> dishCategories,
+                            int size,
+                            long loadedAt) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.restaurant.promotion.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.common.Money;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.promotion.dto.PromotionLine;
+import com.restaurant.promotion.dto.PromotionResult;
+import com.restaurant.promotion.entity.Promotion;
+import com.restaurant.promotion.mapper.PromotionMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 促销活动管理与优惠计算
+ * 计算在 {@link PromotionRuleIndex} 上进行，活动修改后立即重建索引。
+ */
+@Service
+@RequiredArgsConstructor
+public class PromotionService {
+
+    private final PromotionMapper promotionMapper;
+    private final PromotionRuleIndex ruleIndex;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder evaluatedLines = new LongAdder();
+    private final LongAdder discountedEvaluations = new LongAdder();
+
+    /**
+     * 计算一组行的优惠，不访问数据库
+     */
+    public PromotionResult evaluate(List<PromotionLine> lines, LocalDateTime evaluatedAt) {
+        PromotionResult result = ruleIndex.evaluate(lines, evaluatedAt);
+        evaluations.increment();
+        evaluatedLines.add(lines.size());
+        if (result.discount().isPositive()) {
+            discountedEvaluations.increment();
+        }
+        return result;
+    }
+
+    public List<Promotion> list() {
+        LambdaQueryWrapper<Promotion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.orderByDesc(Promotion::getStatus).orderByDesc(Promotion::getId);
+        return promotionMapper.selectList(wrapper);
+    }
+
+    public void save(Promotion promotion) {
+        validate(promotion);
+        if (promotion.getStatus() == null) {
+            promotion.setStatus(1);
+        }
+        if (promotion.getId() == null) {
+            promotionMapper.insert(promotion);
+        } else {
+            if (promotionMapper.selectById(promotion.getId()) == null) {
+                throw new BusinessException("活动不存在");
+            }
+            promotionMapper.updateById(promotion);
+        }
+        ruleIndex.reload();
+    }
+
+    public void toggleStatus(Long id) {
+        Promotion promotion = promotionMapper.selectById(id);
+        if (promotion == null) {
+            throw new BusinessException("活动不存在");
+        }
+        promotion.setStatus(promotion.getStatus() != null && promotion.getStatus() == 1 ? 0 : 1);
+        promotionMapper.updateById(promotion);
+        ruleIndex.reload();
+    }
+
+    public void delete(Long id) {
+        promotionMapper.deleteById(id);
+        ruleIndex.reload();
+    }
+
+    public void reload() {
+        ruleIndex.reload();
+    }
+
+    public Map<String, Object> getStats() {
+        long count = evaluations.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activePromotions", ruleIndex.size());
+        stats.put("evaluations", count);
+        stats.put("linesPerEvaluation", count == 0 ? 0 : (double) evaluatedLines.sum() / count);
+        stats.put("discounted", discountedEvaluations.sum());
+        return stats;
+    }
+
+    private void validate(Promotion promotion) {
+        if (promotion.getName() == null || promotion.getName().isBlank()) {
+            throw new BusinessException("活动名称不能为空");
+        }
+        if (promotion.getType() == null) {
+            throw new BusinessException("活动类型不能为空");
+        }
+        switch (promotion.getType()) {
+            case Promotion.TYPE_PERCENT_OFF -> {
+                if (promotion.getPercentOff() == null || promotion.getPercentOff() <= 0 || promotion.getPercentOff() > 100) {
+                    throw new BusinessException("折扣比例必须在1到100之间");
+                }
+            }
+            case Promotion.TYPE_BUY_N_FREE_ONE -> {
+                if (promotion.getBuyQuantity() == null || promotion.getBuyQuantity() <= 0) {
+                    throw new BusinessException("买N送1的N必须大于0");
+                }
+            }
+            case Promotion.TYPE_SPEND_REDUCTION -> {
+                Money reduce = Money.of(promotion.getReduceAmount());
+                if (!reduce.isPositive()) {
+                    throw new BusinessException("减免金额必须大于0");
+                }
+                if (reduce.greaterThan(Money.of(promotion.getThresholdAmount()))) {
+                    throw new BusinessException("满减门槛不能低于减免金额");
+                }
+            }
+            default -> throw new BusinessException("不支持的活动类型");
+        }
+        if ((promotion.getStartTime() == null) != (promotion.getEndTime() == null)) {
+            throw new BusinessException("每日时段需要同时设置开始和结束时间");
+        }
+        if (promotion.getValidFrom() != null && promotion.getValidTo() != null
+                && !promotion.getValidFrom().isBefore(promotion.getValidTo())) {
+            throw new BusinessException("活动结束时间必须晚于开始时间");
+        }
+    }
+}
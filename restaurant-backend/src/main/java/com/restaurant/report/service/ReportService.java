@@ -1,22 +1,35 @@
 package com.restaurant.report.service;
 
+import com.restaurant.common.datasource.Workload;
+import com.restaurant.common.datasource.WorkloadType;
+import com.restaurant.common.singleflight.SingleFlight;
 import com.restaurant.order.mapper.OrderItemMapper;
 import com.restaurant.order.mapper.OrderMapper;
 import com.restaurant.report.dto.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
 
+/**
+ * 报表查询均为只读事务，开启读写分离时走从库，不占用主库连接
+ * 多台管理端同时打开看板时，相同的统计查询合并为一次执行，结果复用 {@link #DASHBOARD_TTL_MS}
+ */
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Workload(WorkloadType.REPORT)
 public class ReportService {
 
+    private static final long DASHBOARD_TTL_MS = 2000;
+
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
 
+    @SingleFlight(ttlMs = DASHBOARD_TTL_MS)
     public TodayStatsDTO getTodayStats() {
         TodayStatsDTO stats = new TodayStatsDTO();
         
@@ -36,11 +49,13 @@ public class ReportService {
         return stats;
     }
 
+    @SingleFlight(ttlMs = DASHBOARD_TTL_MS)
     public List<TopDishDTO> getTopDishes(Integer limit) {
         if (limit == null) limit = 10;
         return orderItemMapper.selectTopDishes(limit);
     }
 
+    @SingleFlight(ttlMs = DASHBOARD_TTL_MS)
     public List<TableStatsDTO> getTableStats() {
         return orderMapper.selectTableStats();
     }
@@ -2,8 +2,10 @@ package com.restaurant.table.controller;
 
 import com.restaurant.common.Result;
 import com.restaurant.table.dto.CreateTableRequest;
+import com.restaurant.table.dto.FloorSnapshotDTO;
 import com.restaurant.table.dto.UpdateTableRequest;
 import com.restaurant.table.entity.RestaurantTable;
+import com.restaurant.table.service.FloorStatusService;
 import com.restaurant.table.service.TableService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,7 @@ import java.util.List;
 public class TableController {
 
     private final TableService tableService;
+    private final FloorStatusService floorStatusService;
 
     @GetMapping
     public Result<List<RestaurantTable>> list(@RequestParam(required = false) Integer type) {
@@ -26,6 +29,16 @@ public class TableController {
         return Result.success(tableService.listAll());
     }
 
+    /**
+     * 桌台状态同步（服务员平板）
+     * 首次不传参数返回完整快照；之后带上 epoch 和 version，只返回缺失的增量
+     */
+    @GetMapping("/floor")
+    public Result<FloorSnapshotDTO> floor(@RequestParam(required = false) String epoch,
+                                          @RequestParam(required = false) Long since) {
+        return Result.success(floorStatusService.sync(epoch, since));
+    }
+
     @GetMapping("/{id}")
     public Result<RestaurantTable> getById(@PathVariable Long id) {
         return Result.success(tableService.getById(id));
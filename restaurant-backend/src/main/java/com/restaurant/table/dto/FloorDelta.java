@@ -0,0 +1,20 @@
+package com.restaurant.table.dto;
+
+import com.restaurant.table.entity.RestaurantTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 桌台状态增量
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FloorDelta {
+
+    private long version;
+    private Long tableId;
+    private RestaurantTable table;   // 变更后的桌台，删除时为空
+    private boolean deleted;
+}
@@ -0,0 +1,20 @@
+package com.restaurant.table.dto;
+
+import com.restaurant.table.entity.RestaurantTable;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 桌台状态同步结果
+ * full 为 true 时 tables 为全部桌台；否则只返回客户端版本之后的 changes
+ */
+@Data
+public class FloorSnapshotDTO {
+
+    private String epoch;
+    private long version;
+    private boolean full;
+    private List<RestaurantTable> tables;
+    private List<FloorDelta> changes;
+}
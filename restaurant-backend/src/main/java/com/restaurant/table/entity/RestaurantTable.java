@@ -1,6 +1,9 @@
 package com.restaurant.table.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import com.restaurant.common.BaseEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -17,4 +20,7 @@ public class RestaurantTable extends BaseEntity {
     private String qrcode;       // 点餐二维码
     private Integer status;      // 状态: 0空闲 1使用中 2待清台
     private Integer sortOrder;   // 排序
+    @Version
+    @TableField(fill = FieldFill.INSERT)
+    private Integer version;     // 版本号(乐观锁)
 }
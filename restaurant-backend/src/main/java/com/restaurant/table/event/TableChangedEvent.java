@@ -0,0 +1,30 @@
+package com.restaurant.table.event;
+
+import com.restaurant.table.entity.RestaurantTable;
+import lombok.Getter;
+
+/**
+ * 桌台变更事件（新建、修改、删除、开台、待清台、清台）
+ * 由桌台和订单服务发布，监听方在事务提交后处理
+ */
+@Getter
+public class TableChangedEvent {
+
+    private final Long tableId;
+    private final RestaurantTable table;  // 变更后的桌台，删除时为空
+    private final boolean deleted;
+
+    private TableChangedEvent(Long tableId, RestaurantTable table, boolean deleted) {
+        this.tableId = tableId;
+        this.table = table;
+        this.deleted = deleted;
+    }
+
+    public static TableChangedEvent changed(RestaurantTable table) {
+        return new TableChangedEvent(table.getId(), table, false);
+    }
+
+    public static TableChangedEvent deleted(Long tableId) {
+        return new TableChangedEvent(tableId, null, true);
+    }
+}
@@ -0,0 +1,186 @@
+package com.restaurant.table.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.table.dto.FloorDelta;
+import com.restaurant.table.dto.FloorSnapshotDTO;
+import com.restaurant.table.entity.RestaurantTable;
+import com.restaurant.table.event.TableChangedEvent;
+import com.restaurant.table.mapper.TableMapper;
+import com.restaurant.websocket.WebSocketDispatcher;
+import com.restaurant.websocket.WebSocketMessageService;
+import com.restaurant.websocket.WebSocketSessionRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 桌台状态（楼面）实时同步
+ * 在内存中维护全部桌台和递增版本号，桌台变更后以增量推送到 floor 频道。
+ * 服务员平板首次拉取快照后只合并增量；重连时带上版本号，只补发缺失的增量，
+ * 版本号过旧或节点重启（epoch 变化）时才返回完整快照。
+ */
+@Slf4j
+@Service
+public class FloorStatusService {
+
+    public static final String MESSAGE_TYPE = "FLOOR_DELTA";
+
+    private static final Comparator<RestaurantTable> TABLE_ORDER = Comparator
+            .comparing(RestaurantTable::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(RestaurantTable::getId);
+
+    private final TableMapper tableMapper;
+    private final WebSocketDispatcher dispatcher;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+    private final int historySize;
+
+    // 版本号所属的进程标识，节点重启后客户端需要重新拉取快照
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // 以下状态都在 this 锁内访问
+    private final Map<Long, RestaurantTable> tables = new HashMap<>();
+    private final Deque<FloorDelta> history = new ArrayDeque<>();
+    private long version;
+    private boolean loaded;
+
+    public FloorStatusService(TableMapper tableMapper,
+                              WebSocketDispatcher dispatcher,
+                              WebSocketSessionRegistry sessionRegistry,
+                              ObjectMapper objectMapper,
+                              @Value("${app.floor.history-size:200}") int historySize) {
+        this.tableMapper = tableMapper;
+        this.dispatcher = dispatcher;
+        this.sessionRegistry = sessionRegistry;
+        this.objectMapper = objectMapper;
+        this.historySize = historySize;
+    }
+
+    @PostConstruct
+    public void registerTopic() {
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_FLOOR, this::apply);
+    }
+
+    /**
+     * 同步桌台状态
+     *
+     * @param clientEpoch   客户端持有的 epoch，首次为空
+     * @param sinceVersion  客户端持有的版本号，首次为空
+     */
+    public synchronized FloorSnapshotDTO sync(String clientEpoch, Long sinceVersion) {
+        ensureLoaded();
+        FloorSnapshotDTO result = new FloorSnapshotDTO();
+        result.setEpoch(epoch);
+        result.setVersion(version);
+
+        List<FloorDelta> changes = epoch.equals(clientEpoch) && sinceVersion != null
+                ? changesSince(sinceVersion) : null;
+        if (changes != null) {
+            result.setChanges(changes);
+        } else {
+            List<RestaurantTable> list = new ArrayList<>(tables.values());
+            list.sort(TABLE_ORDER);
+            result.setFull(true);
+            result.setTables(list);
+        }
+        return result;
+    }
+
+    /**
+     * 桌台是否存在（内存视图，首次调用时加载）
+     */
+    public synchronized boolean exists(Long tableId) {
+        ensureLoaded();
+        return tables.containsKey(tableId);
+    }
+
+    /**
+     * 桌台变更在事务提交后分发到 floor 频道（含其他节点）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTableChanged(TableChangedEvent event) {
+        try {
+            FloorDelta delta = new FloorDelta(0, event.getTableId(), event.getTable(), event.isDeleted());
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_FLOOR, objectMapper.writeValueAsString(delta));
+        } catch (Exception e) {
+            log.error("分发桌台变更失败: {}", event.getTableId(), e);
+        }
+    }
+
+    /**
+     * 应用增量并推送给本节点的平板，版本号由各节点自行分配
+     */
+    private void apply(String payload) {
+        try {
+            FloorDelta delta = objectMapper.readValue(payload, FloorDelta.class);
+            String message;
+            synchronized (this) {
+                delta.setVersion(++version);
+                if (loaded) {
+                    if (delta.isDeleted()) {
+                        tables.remove(delta.getTableId());
+                    } else {
+                        tables.put(delta.getTableId(), delta.getTable());
+                    }
+                }
+                history.addLast(delta);
+                while (history.size() > historySize) {
+                    history.removeFirst();
+                }
+
+                WebSocketMessageService.WebSocketMessage wsMessage = new WebSocketMessageService.WebSocketMessage();
+                wsMessage.setType(MESSAGE_TYPE);
+                wsMessage.setData(Map.of("epoch", epoch, "delta", delta));
+                message = objectMapper.writeValueAsString(wsMessage);
+            }
+            sessionRegistry.broadcast(WebSocketDispatcher.TOPIC_FLOOR, message);
+        } catch (Exception e) {
+            log.error("处理桌台变更失败", e);
+        }
+    }
+
+    /**
+     * 客户端版本之后的增量，已超出保留范围时返回 null
+     */
+    private List<FloorDelta> changesSince(long sinceVersion) {
+        if (sinceVersion > version) {
+            return null;
+        }
+        long oldest = history.isEmpty() ? version + 1 : history.peekFirst().getVersion();
+        if (sinceVersion + 1 < oldest) {
+            return null;
+        }
+        List<FloorDelta> changes = new ArrayList<>();
+        for (FloorDelta delta : history) {
+            if (delta.getVersion() > sinceVersion) {
+                changes.add(delta);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 首次同步时从数据库加载全部桌台，之后只靠增量维护
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        for (RestaurantTable table : tableMapper.selectList(new LambdaQueryWrapper<>())) {
+            tables.put(table.getId(), table);
+        }
+        loaded = true;
+        log.info("桌台状态已加载: {} 张", tables.size());
+    }
+}
@@ -2,15 +2,20 @@ package com.restaurant.table.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.mailbox.TableSerial;
+import com.restaurant.common.optimistic.RetryOnConflict;
 import com.restaurant.table.dto.CreateTableRequest;
 import com.restaurant.table.dto.UpdateTableRequest;
 import com.restaurant.order.entity.Order;
 import com.restaurant.order.mapper.OrderMapper;
 import com.restaurant.order.service.OrderService;
 import com.restaurant.table.entity.RestaurantTable;
+import com.restaurant.table.event.TableChangedEvent;
 import com.restaurant.table.mapper.TableMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -21,6 +26,7 @@ public class TableService {
     private final TableMapper tableMapper;
     private final OrderMapper orderMapper;
     private final OrderService orderService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<RestaurantTable> listAll() {
         LambdaQueryWrapper<RestaurantTable> wrapper = new LambdaQueryWrapper<>();
@@ -61,8 +67,10 @@ public class TableService {
         }
 
         tableMapper.insert(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
     }
 
+    @RetryOnConflict
     public void update(Long id, UpdateTableRequest request) {
         RestaurantTable table = tableMapper.selectById(id);
         if (table == null) {
@@ -74,6 +82,7 @@ public class TableService {
         table.setSortOrder(request.getSortOrder());
         
         tableMapper.updateById(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
     }
 
     public void delete(Long id) {
@@ -85,8 +94,11 @@ public class TableService {
             throw new BusinessException("桌台正在使用中，无法删除");
         }
         tableMapper.deleteById(id);
+        eventPublisher.publishEvent(TableChangedEvent.deleted(id));
     }
 
+    @TableSerial
+    @RetryOnConflict
     public void openTable(Long id, Integer customerCount) {
         RestaurantTable table = tableMapper.selectById(id);
         if (table == null) {
@@ -98,8 +110,16 @@ public class TableService {
         
         table.setStatus(1); // 使用中
         tableMapper.updateById(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
     }
 
+    /**
+     * 清台：完成桌台下未完成的订单并置为空闲
+     * 在同一个事务中完成，乐观锁冲突重试时整体回滚重做，不会留下订单已完成、桌台仍待清台的中间状态
+     */
+    @Transactional
+    @TableSerial
+    @RetryOnConflict
     public void clearTable(Long id) {
         RestaurantTable table = tableMapper.selectById(id);
         if (table == null) {
@@ -109,25 +129,31 @@ public class TableService {
             throw new BusinessException("桌台不是待清台状态");
         }
         
-        // 查找该桌台下的所有活跃订单（状态小于4的订单）
+        // 查找该桌台下未完成的订单：待上菜(0)、上菜中(1)、待结账(2)
         LambdaQueryWrapper<Order> orderWrapper = new LambdaQueryWrapper<>();
         orderWrapper.eq(Order::getTableId, id)
-                   .lt(Order::getStatus, 4); // 活跃订单：待支付(0)、已支付(1)、制作中(2)、待上菜(3)
+                   .lt(Order::getStatus, 3);
         
         List<Order> activeOrders = orderMapper.selectList(orderWrapper);
         
-        // 将所有活跃订单标记为已完成
+        // 将未完成的订单标记为已完成，已完成(3)、已取消(4)的订单保持不变
         for (Order order : activeOrders) {
-            if (order.getStatus() < 4) { // 只处理未完成的订单
-                orderService.completeOrder(order.getId());
-            }
+            orderService.completeOrder(order.getId());
         }
         
+        // 完成订单时桌台已被更新，重新读取最新版本
+        table = tableMapper.selectById(id);
+        if (table == null) {
+            throw new BusinessException("桌台不存在");
+        }
         // 设置桌台为空闲状态
         table.setStatus(0); // 空闲
         tableMapper.updateById(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
     }
 
+    @TableSerial
+    @RetryOnConflict
     public void setPendingClear(Long id) {
         RestaurantTable table = tableMapper.selectById(id);
         if (table == null) {
@@ -136,5 +162,6 @@ public class TableService {
         
         table.setStatus(2); // 待清台
         tableMapper.updateById(table);
+        eventPublisher.publishEvent(TableChangedEvent.changed(table));
     }
 }
@@ -1,12 +1,16 @@
 package com.restaurant.user.controller;
 
+import com.restaurant.auth.service.LoginThrottle;
+import com.restaurant.auth.service.PasswordVerifier;
 import com.restaurant.common.Result;
 import com.restaurant.user.entity.User;
 import com.restaurant.user.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -14,6 +18,8 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final PasswordVerifier passwordVerifier;
+    private final LoginThrottle loginThrottle;
 
     @GetMapping
     public Result<List<User>> list() {
@@ -37,4 +43,15 @@ public class UserController {
         userService.delete(id);
         return Result.success();
     }
+
+    /**
+     * 登录统计：密码校验线程池和登录限流
+     */
+    @GetMapping("/login-stats")
+    public Result<Map<String, Object>> loginStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("passwordVerifier", passwordVerifier.getStats());
+        stats.put("throttle", loginThrottle.getStats());
+        return Result.success(stats);
+    }
 }
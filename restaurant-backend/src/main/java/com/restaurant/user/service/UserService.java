@@ -1,10 +1,13 @@
 package com.restaurant.user.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.restaurant.auth.event.UserCreatedEvent;
 import com.restaurant.common.exception.BusinessException;
 import com.restaurant.user.entity.User;
 import com.restaurant.user.mapper.UserMapper;
+import com.restaurant.utils.JwtUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +19,8 @@ public class UserService {
 
     private final UserMapper userMapper;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final JwtUtil jwtUtil;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<User> list() {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
@@ -41,6 +46,8 @@ public class UserService {
 
         user.setStatus(1);
         userMapper.insert(user);
+        // 各节点清除该用户名的"不存在"缓存
+        eventPublisher.publishEvent(UserCreatedEvent.local(user.getUsername()));
     }
 
     public void update(Long id, User user) {
@@ -55,9 +62,15 @@ public class UserService {
         existing.setStatus(user.getStatus());
 
         userMapper.updateById(existing);
+
+        // 禁用后已签发的token立即失效
+        if (existing.getStatus() != null && existing.getStatus() == 0) {
+            jwtUtil.revokeUser(id);
+        }
     }
 
     public void delete(Long id) {
         userMapper.deleteById(id);
+        jwtUtil.revokeUser(id);
     }
 }
@@ -0,0 +1,135 @@
+package com.restaurant.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端IP解析
+ * 默认只使用 TCP 连接的对端地址；只有对端是 app.trusted-proxies 中配置的反向代理时才读取
+ * X-Forwarded-For / X-Real-IP，否则客户端伪造这两个请求头即可冒充任意IP，绕过按IP的限流和连接数限制。
+ */
+@Component
+public class IpUtil {
+
+    private final List<Cidr> trustedProxies = new ArrayList<>();
+
+    /**
+     * @param trustedProxies 受信任的反向代理地址，支持单个IP或 CIDR 网段（如 10.0.0.0/8）
+     */
+    public IpUtil(@Value("${app.trusted-proxies:}") List<String> trustedProxies) {
+        for (String proxy : trustedProxies) {
+            if (proxy != null && !proxy.isBlank()) {
+                this.trustedProxies.add(Cidr.parse(proxy.trim()));
+            }
+        }
+    }
+
+    /**
+     * 获取客户端IP
+     */
+    public String getClientIp(HttpServletRequest request) {
+        return getClientIp(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"),
+                request.getHeader("X-Real-IP"));
+    }
+
+    /**
+     * 对端是受信任的代理时，从 X-Forwarded-For 末尾向前跳过受信任的代理，取第一个不受信任的地址；
+     * 没有 X-Forwarded-For 时取 X-Real-IP
+     */
+    public String getClientIp(String remoteAddr, String forwardedFor, String realIp) {
+        if (remoteAddr == null || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !isTrustedProxy(hop)) {
+                    return hop;
+                }
+            }
+            return hops[0].trim();
+        }
+        if (realIp != null && !realIp.isBlank()) {
+            return realIp.trim();
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        byte[] bytes = Cidr.toBytes(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (Cidr cidr : trustedProxies) {
+            if (cidr.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Cidr(byte[] network, int prefix) {
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            String host = slash >= 0 ? value.substring(0, slash) : value;
+            byte[] network = toBytes(host);
+            if (network == null) {
+                throw new IllegalArgumentException("无效的受信任代理地址: " + value);
+            }
+            int prefix = slash >= 0 ? Integer.parseInt(value.substring(slash + 1)) : network.length * 8;
+            return new Cidr(network, prefix);
+        }
+
+        /**
+         * 只解析字面量IP（IPv4 点分十进制或含冒号的 IPv6），其他内容返回 null，不做DNS查询
+         */
+        static byte[] toBytes(String address) {
+            boolean ipv6 = address.indexOf(':') >= 0;
+            if (!ipv6 && address.indexOf('.') < 0) {
+                return null;
+            }
+            for (int i = 0; i < address.length(); i++) {
+                char c = address.charAt(i);
+                boolean valid = ipv6 ? Character.digit(c, 16) >= 0 || c == ':' || c == '.'
+                        : Character.isDigit(c) || c == '.';
+                if (!valid) {
+                    return null;
+                }
+            }
+            try {
+                return InetAddress.getByName(address).getAddress();
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefix / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefix % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
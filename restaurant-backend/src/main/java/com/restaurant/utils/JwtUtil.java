@@ -5,11 +5,31 @@ import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.restaurant.auth.event.TokenRevokedEvent;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * JWT 签发与校验
+ * 校验通过的token按签发先后缓存，超过上限时淘汰最早缓存的（有效期相同，即最早过期的），不再重新验签。
+ * 缓存以token的 SHA-256 摘要为键，常驻内存的缓存中不保存可直接使用的token原文。
+ * 撤销时发布 {@link TokenRevokedEvent}：开启集群模式时由集群中继经 Redis 转发到所有节点。
+ * 撤销记录只在内存中，节点重启或 Redis 不可用时丢失，之前签发的token在过期前（jwt.expiration）仍然有效。
+ */
 @Component
 public class JwtUtil {
 
@@ -19,6 +39,34 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.cache-size:10000}")
+    private int cacheSize;
+
+    // 签名算法和校验器线程安全，启动时创建一次
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 已校验通过的token摘要 -> 用户信息，过期后移除
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    // 按缓存先后排列的token摘要，数量不超过 cacheSize
+    private final Queue<String> cacheOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger cacheOrderSize = new AtomicInteger();
+
+    // 被禁用/删除的用户 -> 撤销时间（秒），在此之前签发的token一律失效
+    private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    public JwtUtil(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void init() {
+        algorithm = Algorithm.HMAC256(secret);
+        verifier = JWT.require(algorithm).build();
+    }
+
     public String generateToken(Long userId, String username) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
@@ -28,12 +76,11 @@ public class JwtUtil {
                 .withClaim("username", username)
                 .withIssuedAt(now)
                 .withExpiresAt(expiryDate)
-                .sign(Algorithm.HMAC256(secret));
+                .sign(algorithm);
     }
 
     public DecodedJWT verifyToken(String token) {
         try {
-            JWTVerifier verifier = JWT.require(Algorithm.HMAC256(secret)).build();
             return verifier.verify(token);
         } catch (JWTVerificationException e) {
             return null;
@@ -41,18 +88,97 @@ public class JwtUtil {
     }
 
     public Long getUserIdFromToken(String token) {
-        DecodedJWT jwt = verifyToken(token);
-        if (jwt != null) {
-            return Long.valueOf(jwt.getSubject());
-        }
-        return null;
+        VerifiedToken verified = resolve(token);
+        return verified != null ? verified.userId() : null;
     }
 
     public String getUsernameFromToken(String token) {
-        DecodedJWT jwt = verifyToken(token);
-        if (jwt != null) {
-            return jwt.getClaim("username").asString();
+        VerifiedToken verified = resolve(token);
+        return verified != null ? verified.username() : null;
+    }
+
+    /**
+     * 撤销用户已签发的所有token（禁用或删除用户时调用），本节点和集群中的其他节点都会收到撤销事件
+     * token的签发时间只精确到秒，与撤销同一秒内签发的token也会失效
+     */
+    public void revokeUser(Long userId) {
+        eventPublisher.publishEvent(TokenRevokedEvent.local(userId, System.currentTimeMillis() / 1000));
+    }
+
+    @EventListener
+    public void onRevoked(TokenRevokedEvent event) {
+        Long userId = event.getUserId();
+        revokedUsers.merge(userId, event.getRevokedAt(), Math::max);
+        verifiedTokens.values().removeIf(v -> v.userId().equals(userId));
+        // 撤销记录超过token有效期后不再需要
+        long expireBefore = System.currentTimeMillis() / 1000 - expiration / 1000;
+        revokedUsers.values().removeIf(at -> at < expireBefore);
+    }
+
+    /**
+     * 校验token，命中缓存时不再重新验签
+     */
+    private VerifiedToken resolve(String token) {
+        long now = System.currentTimeMillis();
+        String key = fingerprint(token);
+        VerifiedToken verified = verifiedTokens.get(key);
+        if (verified == null) {
+            DecodedJWT jwt = verifyToken(token);
+            if (jwt == null) {
+                return null;
+            }
+            verified = new VerifiedToken(
+                    Long.valueOf(jwt.getSubject()),
+                    jwt.getClaim("username").asString(),
+                    jwt.getIssuedAt() != null ? jwt.getIssuedAt().getTime() / 1000 : 0L,
+                    jwt.getExpiresAt() != null ? jwt.getExpiresAt().getTime() : now + expiration);
+            cache(key, verified);
+        } else if (verified.expiresAt() <= now) {
+            verifiedTokens.remove(key);
+            return null;
+        }
+
+        Long revokedAt = revokedUsers.get(verified.userId());
+        if (revokedAt != null && verified.issuedAt() <= revokedAt) {
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * 超过上限时淘汰最早缓存的一个，O(1)
+     */
+    private void cache(String key, VerifiedToken verified) {
+        if (verifiedTokens.putIfAbsent(key, verified) != null) {
+            return;
         }
-        return null;
+        cacheOrder.add(key);
+        if (cacheOrderSize.incrementAndGet() > cacheSize) {
+            String eldest = cacheOrder.poll();
+            if (eldest != null) {
+                cacheOrderSize.decrementAndGet();
+                verifiedTokens.remove(eldest);
+            }
+        }
+    }
+
+    /**
+     * token的 SHA-256 摘要，作为缓存键
+     */
+    private static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JRE 都必须提供 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param issuedAt 签发时间（秒）
+     * @param expiresAt 过期时间（毫秒）
+     */
+    private record VerifiedToken(Long userId, String username, long issuedAt, long expiresAt) {
     }
 }
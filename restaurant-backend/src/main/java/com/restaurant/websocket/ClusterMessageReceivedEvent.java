@@ -0,0 +1,20 @@
+package com.restaurant.websocket;
+
+import lombok.Getter;
+
+/**
+ * 收到其他节点经集群中继转发的消息（已投递给本节点的连接）
+ * 本节点在内存中维护视图的服务据此得知其他节点改动了数据；
+ * gap 表示该来源在此之前有消息未收到（序号不连续），依赖增量的视图应整体重建
+ */
+@Getter
+public class ClusterMessageReceivedEvent {
+
+    private final String topic;
+    private final boolean gap;
+
+    public ClusterMessageReceivedEvent(String topic, boolean gap) {
+        this.topic = topic;
+        this.gap = gap;
+    }
+}
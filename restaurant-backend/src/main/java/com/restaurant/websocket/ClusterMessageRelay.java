@@ -0,0 +1,203 @@
+package com.restaurant.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.auth.event.TokenRevokedEvent;
+import com.restaurant.auth.event.UserCreatedEvent;
+import com.restaurant.order.event.OrderChangedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket集群消息中继
+ * 多节点部署时，每条消息由产生它的节点发布一次到 Redis 频道，
+ * 各节点收到后只投递给自己的本地连接。
+ * - 去重：按 (来源节点, 主题) 记录已投递的最大序号，重复或过期的消息直接丢弃
+ * - 顺序：同一主题的消息带递增序号，监听容器单线程派发，保证按发布顺序投递
+ * 投递后发布 {@link ClusterMessageReceivedEvent}，序号不连续时标记 gap，依赖增量的内存视图（如后厨队列）据此重建。
+ * 本节点发布的 {@link TokenRevokedEvent}、{@link UserCreatedEvent} 和提交后的 {@link OrderChangedEvent}
+ * 也经此转发，其他节点收到后重新发布为 remote 事件。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "true")
+public class ClusterMessageRelay implements MessageListener {
+
+    // 记录的来源数量上限（节点重启会产生新的来源标识）
+    private static final int MAX_TRACKED_SOURCES = 1024;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final WebSocketDispatcher dispatcher;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String channel;
+    private final String nodeId;
+
+    // 本节点每个主题的发布序号
+    private final Map<String, AtomicLong> publishSeq = new ConcurrentHashMap<>();
+
+    // (来源节点|主题) -> 已投递的最大序号，仅在监听线程中访问
+    private final Map<String, Long> deliveredSeq = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_TRACKED_SOURCES;
+        }
+    };
+
+    public ClusterMessageRelay(StringRedisTemplate redisTemplate,
+                               ObjectMapper objectMapper,
+                               WebSocketDispatcher dispatcher,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${app.websocket.cluster.channel:restaurant:ws}") String channel,
+                               @Value("${app.websocket.cluster.node-id:}") String nodeId) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.dispatcher = dispatcher;
+        this.eventPublisher = eventPublisher;
+        this.channel = channel;
+        // 节点标识附带启动时间，节点重启后序号从头开始也不会被误判为重复
+        String base = nodeId.isEmpty() ? UUID.randomUUID().toString().substring(0, 8) : nodeId;
+        this.nodeId = base + "@" + System.currentTimeMillis();
+        log.info("WebSocket集群中继已启用, 节点: {}, 频道: {}", this.nodeId, channel);
+    }
+
+    @PostConstruct
+    public void registerTopics() {
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_TOKEN_REVOKE, this::onTokenRevoked);
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_USER_CREATED,
+                username -> eventPublisher.publishEvent(UserCreatedEvent.remote(username)));
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_ORDER_CHANGED, this::onOrderChanged);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * 本节点撤销了用户的token，转发给其他节点
+     */
+    @EventListener
+    public void forwardRevocation(TokenRevokedEvent event) {
+        if (!event.isRemote()) {
+            publish(WebSocketDispatcher.TOPIC_TOKEN_REVOKE, event.getUserId() + ":" + event.getRevokedAt());
+        }
+    }
+
+    /**
+     * 本节点新建了用户，通知其他节点清除该用户名的登录缓存
+     */
+    @EventListener
+    public void forwardUserCreated(UserCreatedEvent event) {
+        if (!event.isRemote()) {
+            publish(WebSocketDispatcher.TOPIC_USER_CREATED, event.getUsername());
+        }
+    }
+
+    /**
+     * 本节点提交了订单变更，转发给其他节点增量更新内存视图
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void forwardOrderChange(OrderChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        try {
+            publish(WebSocketDispatcher.TOPIC_ORDER_CHANGED, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.error("转发订单变更失败: {}", event.getOrderId(), e);
+        }
+    }
+
+    private void onOrderChanged(String payload) {
+        try {
+            eventPublisher.publishEvent(objectMapper.readValue(payload, OrderChangedEvent.class).asRemote());
+        } catch (Exception e) {
+            log.warn("无法解析集群转发的订单变更: {}", e.getMessage());
+        }
+    }
+
+    private void onTokenRevoked(String payload) {
+        int separator = payload.indexOf(':');
+        Long userId = Long.valueOf(payload.substring(0, separator));
+        long revokedAt = Long.parseLong(payload.substring(separator + 1));
+        eventPublisher.publishEvent(TokenRevokedEvent.remote(userId, revokedAt));
+    }
+
+    /**
+     * 发布消息到集群
+     */
+    public void publish(String topic, String payload) {
+        AtomicLong counter = publishSeq.computeIfAbsent(topic, t -> new AtomicLong());
+        // 同一主题取号与发送放在一起，避免序号大的消息先发出
+        synchronized (counter) {
+            long seq = counter.incrementAndGet();
+            try {
+                String json = objectMapper.writeValueAsString(new ClusterEnvelope(nodeId, topic, seq, payload));
+                redisTemplate.convertAndSend(channel, json);
+            } catch (Exception e) {
+                // Redis 不可用时本地连接已经收到消息，只记录错误
+                log.error("发布WebSocket集群消息失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        ClusterEnvelope envelope;
+        try {
+            envelope = objectMapper.readValue(
+                    new String(message.getBody(), StandardCharsets.UTF_8), ClusterEnvelope.class);
+        } catch (Exception e) {
+            log.warn("无法解析WebSocket集群消息: {}", e.getMessage());
+            return;
+        }
+
+        // 本节点发布的消息已在本地投递过
+        if (nodeId.equals(envelope.getNodeId())) {
+            return;
+        }
+
+        String key = envelope.getNodeId() + "|" + envelope.getTopic();
+        Long last = deliveredSeq.get(key);
+        if (last != null && envelope.getSeq() <= last) {
+            log.debug("丢弃重复的集群消息: {} seq={}", key, envelope.getSeq());
+            return;
+        }
+        boolean gap = last != null && envelope.getSeq() > last + 1;
+        if (gap) {
+            log.warn("集群消息序号不连续: {} 期望 {} 实际 {}", key, last + 1, envelope.getSeq());
+        }
+        deliveredSeq.put(key, envelope.getSeq());
+
+        dispatcher.deliverLocal(envelope.getTopic(), envelope.getPayload());
+        eventPublisher.publishEvent(new ClusterMessageReceivedEvent(envelope.getTopic(), gap));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClusterEnvelope {
+        private String nodeId;
+        private String topic;
+        private long seq;
+        private String payload;
+    }
+}
@@ -0,0 +1,51 @@
+package com.restaurant.websocket;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+/**
+ * 服务员平板的桌台状态推送（/ws/floor）
+ * 只下发 FLOOR_DELTA，客户端除心跳外不发送消息
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FloorWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String HEARTBEAT_PING = "{\"type\":\"PING\"}";
+    private static final String HEARTBEAT_PONG = "{\"type\":\"PONG\"}";
+
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (sessionRegistry.register(session, WebSocketDispatcher.TOPIC_FLOOR)) {
+            log.info("楼面WebSocket连接建立: {}, 当前连接数: {}", session.getId(),
+                    sessionRegistry.getConnectionCount(WebSocketDispatcher.TOPIC_FLOOR));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        sessionRegistry.unregister(session.getId());
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        sessionRegistry.touch(session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        sessionRegistry.touch(session.getId());
+        if (HEARTBEAT_PING.equals(message.getPayload())) {
+            sessionRegistry.sendTo(session.getId(), HEARTBEAT_PONG);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.restaurant.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 菜品状态合并发送
+ * 高峰期后厨每秒会变更几十个菜品状态，逐条推送会让每块屏幕频繁刷新。
+ * 这里把一个时间窗口内的变更缓存起来，同一菜品只保留最后一次状态，
+ * 窗口结束后合并成一帧 ITEM_STATUS_BATCH 发送。
+ */
+@Slf4j
+@Component
+public class ItemStatusCoalescer {
+
+    public static final String MESSAGE_TYPE = "ITEM_STATUS_BATCH";
+
+    private final WebSocketDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+    private final long windowMs;
+
+    // 菜品ID -> 窗口内最后一次状态
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-coalescer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 统计：收到的状态变更数 / 实际发送的帧数
+    private final LongAdder receivedUpdates = new LongAdder();
+    private final LongAdder sentFrames = new LongAdder();
+
+    public ItemStatusCoalescer(WebSocketDispatcher dispatcher,
+                               ObjectMapper objectMapper,
+                               @Value("${app.websocket.coalesce-window-ms:80}") long windowMs) {
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * 提交一次菜品状态变更
+     * 窗口内第一条变更负责安排刷新，后续变更只覆盖缓存
+     */
+    public void submit(Long itemId, Integer status) {
+        receivedUpdates.increment();
+        pending.put(itemId, status);
+        if (windowMs <= 0) {
+            flush();
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 发送窗口内合并后的状态
+     * 刷新互斥执行：关闭时或不合并（windowMs <= 0）时的刷新可能与定时刷新并发，
+     * 先取出的旧状态必须先发出，否则客户端会被晚到的旧状态覆盖
+     */
+    synchronized void flush() {
+        // 先放开标记，刷新期间到达的变更会安排下一次刷新
+        flushScheduled.set(false);
+
+        List<WebSocketMessageService.ItemStatusUpdate> batch = new ArrayList<>(pending.size());
+        for (Long itemId : pending.keySet()) {
+            Integer status = pending.remove(itemId);
+            if (status != null) {
+                batch.add(new WebSocketMessageService.ItemStatusUpdate(itemId, status));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            WebSocketMessageService.WebSocketMessage message = new WebSocketMessageService.WebSocketMessage();
+            message.setType(MESSAGE_TYPE);
+            message.setData(batch);
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, objectMapper.writeValueAsString(message));
+            sentFrames.increment();
+            log.debug("合并发送菜品状态: {} 条", batch.size());
+        } catch (Exception e) {
+            log.error("发送WebSocket消息失败", e);
+        }
+    }
+
+    /**
+     * 合并统计：收到的变更数、发送的帧数、平均每帧合并条数
+     */
+    public Map<String, Object> getStats() {
+        long received = receivedUpdates.sum();
+        long frames = sentFrames.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMs", windowMs);
+        stats.put("receivedUpdates", received);
+        stats.put("sentFrames", frames);
+        stats.put("updatesPerFrame", frames == 0 ? 0 : (double) received / frames);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+}
@@ -0,0 +1,17 @@
+package com.restaurant.websocket;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 后厨通过WebSocket发送的操作指令
+ */
+@Data
+public class KitchenCommand {
+
+    private String id;            // 关联ID，回执中原样返回
+    private String type;          // 指令类型: START_COOKING / BUMP_ITEM / RECALL / BATCH_START / BATCH_BUMP
+    private Long itemId;          // 单个菜品指令使用
+    private List<Long> itemIds;   // BATCH_START / BATCH_BUMP 使用
+}
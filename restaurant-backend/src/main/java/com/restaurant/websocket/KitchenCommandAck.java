@@ -0,0 +1,24 @@
+package com.restaurant.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 指令执行回执
+ */
+@Data
+@AllArgsConstructor
+public class KitchenCommandAck {
+
+    private String id;         // 对应指令的关联ID
+    private boolean success;
+    private String message;
+
+    public static KitchenCommandAck ok(String id) {
+        return new KitchenCommandAck(id, true, "success");
+    }
+
+    public static KitchenCommandAck fail(String id, String message) {
+        return new KitchenCommandAck(id, false, message);
+    }
+}
@@ -0,0 +1,122 @@
+package com.restaurant.websocket;
+
+import com.restaurant.common.datasource.DataSourceRoute;
+import com.restaurant.common.datasource.WorkloadType;
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.order.service.OrderStatusService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 后厨指令执行
+ * 指令在有界线程池中执行，队列满时立即回执失败，不阻塞WebSocket读取线程
+ */
+@Slf4j
+@Service
+public class KitchenCommandService {
+
+    private final OrderStatusService orderStatusService;
+    private final WebSocketMessageService webSocketMessageService;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejectedCommands = new LongAdder();
+
+    public KitchenCommandService(OrderStatusService orderStatusService,
+                                 WebSocketMessageService webSocketMessageService,
+                                 @Value("${app.websocket.command.threads:4}") int threads,
+                                 @Value("${app.websocket.command.queue-capacity:200}") int queueCapacity) {
+        this.orderStatusService = orderStatusService;
+        this.webSocketMessageService = webSocketMessageService;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "kitchen-cmd-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 提交指令，执行结果通过 reply 回执
+     *
+     * @param userId 握手时认证的用户ID，为空表示未登录
+     */
+    public void submit(KitchenCommand command, Long userId, Consumer<KitchenCommandAck> reply) {
+        if (userId == null) {
+            reply.accept(KitchenCommandAck.fail(command.getId(), "未登录，无法操作"));
+            return;
+        }
+        try {
+            executor.execute(() -> reply.accept(DataSourceRoute.call(WorkloadType.KITCHEN, () -> execute(command, userId))));
+        } catch (RejectedExecutionException e) {
+            rejectedCommands.increment();
+            reply.accept(KitchenCommandAck.fail(command.getId(), "系统繁忙，请稍后重试"));
+        }
+    }
+
+    private KitchenCommandAck execute(KitchenCommand command, Long userId) {
+        try {
+            String type = command.getType() == null ? "" : command.getType();
+            switch (type) {
+                case "START_COOKING" -> updateItem(command.getItemId(), 1);
+                case "BUMP_ITEM" -> updateItem(command.getItemId(), 2);
+                case "RECALL" -> updateItem(command.getItemId(), 1);    // 已完成的菜品退回制作中
+                case "BATCH_START" -> updateItems(command.getItemIds(), 1);
+                case "BATCH_BUMP" -> updateItems(command.getItemIds(), 2);
+                default -> {
+                    return KitchenCommandAck.fail(command.getId(), "未知指令: " + type);
+                }
+            }
+            log.debug("后厨指令执行成功: {} {} by {}", type, command.getId(), userId);
+            return KitchenCommandAck.ok(command.getId());
+        } catch (BusinessException e) {
+            return KitchenCommandAck.fail(command.getId(), e.getMessage());
+        } catch (Exception e) {
+            log.error("后厨指令执行失败: {}", command, e);
+            return KitchenCommandAck.fail(command.getId(), "系统繁忙，请稍后重试");
+        }
+    }
+
+    private void updateItem(Long itemId, Integer status) {
+        if (itemId == null) {
+            throw new BusinessException("菜品ID不能为空");
+        }
+        orderStatusService.updateItemStatus(itemId, status);
+        webSocketMessageService.notifyItemStatus(itemId, status);
+    }
+
+    private void updateItems(List<Long> itemIds, Integer status) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            throw new BusinessException("菜品列表不能为空");
+        }
+        orderStatusService.updateItemsStatus(itemIds, status);
+        itemIds.forEach(itemId -> webSocketMessageService.notifyItemStatus(itemId, status));
+    }
+
+    /**
+     * 指令线程池统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejectedCommands.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,61 +1,104 @@
 package com.restaurant.websocket;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.config.JwtHandshakeInterceptor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
-
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class KitchenWebSocketHandler extends TextWebSocketHandler {
 
-    // 存储所有连接的客户端
-    private static final ConcurrentHashMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    // 客户端应用层心跳，原样比较，不做JSON解析也不打日志
+    private static final String HEARTBEAT_PING = "{\"type\":\"PING\"}";
+    private static final String HEARTBEAT_PONG = "{\"type\":\"PONG\"}";
+
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final WebSocketDispatcher dispatcher;
+    private final KitchenCommandService kitchenCommandService;
+    private final ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void registerTopic() {
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_KITCHEN, this::broadcast);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
-        sessions.put(sessionId, session);
-        log.info("WebSocket连接建立: {}, 当前连接数: {}", sessionId, sessions.size());
+        if (sessionRegistry.register(session, WebSocketDispatcher.TOPIC_KITCHEN)) {
+            log.info("WebSocket连接建立: {}, 当前连接数: {}", sessionId, getConnectionCount());
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String sessionId = session.getId();
-        sessions.remove(sessionId);
-        log.info("WebSocket连接关闭: {}, 当前连接数: {}", sessionId, sessions.size());
+        sessionRegistry.unregister(sessionId);
+        log.info("WebSocket连接关闭: {}, 当前连接数: {}", sessionId, getConnectionCount());
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        sessionRegistry.touch(session.getId());
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        log.info("收到WebSocket消息: {}", message.getPayload());
-        // 可以处理心跳消息等
+        sessionRegistry.touch(session.getId());
+
+        String payload = message.getPayload();
+        if (HEARTBEAT_PING.equals(payload)) {
+            sessionRegistry.sendTo(session.getId(), HEARTBEAT_PONG);
+            return;
+        }
+        log.debug("收到WebSocket消息: {}", payload);
+
+        KitchenCommand command;
+        try {
+            command = objectMapper.readValue(payload, KitchenCommand.class);
+        } catch (Exception e) {
+            log.warn("无法解析WebSocket指令: {}", e.getMessage());
+            return;
+        }
+
+        // 用户身份在握手时已认证，这里不再校验token
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        String sessionId = session.getId();
+        kitchenCommandService.submit(command, userId, ack -> sendAck(sessionId, ack));
+    }
+
+    private void sendAck(String sessionId, KitchenCommandAck ack) {
+        try {
+            WebSocketMessageService.WebSocketMessage reply = new WebSocketMessageService.WebSocketMessage();
+            reply.setType("ACK");
+            reply.setData(ack);
+            sessionRegistry.sendTo(sessionId, objectMapper.writeValueAsString(reply));
+        } catch (Exception e) {
+            log.error("发送指令回执失败: {}", e.getMessage());
+        }
     }
 
     /**
-     * 向所有连接的客户端广播消息
+     * 向本节点所有连接的客户端广播消息
+     * 跨节点投递由 {@link WebSocketDispatcher} 负责
      */
     public void broadcast(String message) {
-        sessions.forEach((id, session) -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            } catch (IOException e) {
-                log.error("WebSocket发送消息失败: {}", e.getMessage());
-            }
-        });
+        sessionRegistry.broadcast(WebSocketDispatcher.TOPIC_KITCHEN, message);
     }
 
     /**
      * 获取当前连接数
      */
     public int getConnectionCount() {
-        return sessions.size();
+        return sessionRegistry.getConnectionCount(WebSocketDispatcher.TOPIC_KITCHEN);
     }
 }
@@ -0,0 +1,69 @@
+package com.restaurant.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket消息分发器
+ * 按主题(topic)将消息投递给本节点的连接（WebSocket 或 SSE）；开启集群模式时同时发布到 Redis，
+ * 由其他节点的 {@link ClusterMessageRelay} 收到后投递给各自的本地连接
+ */
+@Slf4j
+@Component
+public class WebSocketDispatcher {
+
+    public static final String TOPIC_KITCHEN = "kitchen";
+    public static final String TOPIC_TABLE = "table";
+    public static final String TOPIC_FLOOR = "floor";
+    public static final String TOPIC_MENU = "menu";
+    // 只在节点间转发的token撤销，消息内容为 "用户ID:撤销时间（秒）"
+    public static final String TOPIC_TOKEN_REVOKE = "token-revoke";
+    // 只在节点间转发的新建用户，消息内容为用户名
+    public static final String TOPIC_USER_CREATED = "user-created";
+    // 只在节点间转发的订单变更，消息内容为 OrderChangedEvent 的 JSON
+    public static final String TOPIC_ORDER_CHANGED = "order-changed";
+
+    private final ObjectProvider<ClusterMessageRelay> clusterRelay;
+
+    // 主题 -> 本地投递方式
+    private final Map<String, Consumer<String>> localTopics = new ConcurrentHashMap<>();
+
+    public WebSocketDispatcher(ObjectProvider<ClusterMessageRelay> clusterRelay) {
+        this.clusterRelay = clusterRelay;
+    }
+
+    /**
+     * 注册主题的本地投递方式（由各WebSocket处理器，以及需要在节点间同步状态的组件在初始化时注册）
+     */
+    public void registerTopic(String topic, Consumer<String> localDelivery) {
+        localTopics.put(topic, localDelivery);
+    }
+
+    /**
+     * 分发消息：先投递本地连接，再发布到集群
+     */
+    public void dispatch(String topic, String payload) {
+        deliverLocal(topic, payload);
+        ClusterMessageRelay relay = clusterRelay.getIfAvailable();
+        if (relay != null) {
+            relay.publish(topic, payload);
+        }
+    }
+
+    /**
+     * 只投递给本节点的连接（集群消息到达时调用）
+     */
+    public void deliverLocal(String topic, String payload) {
+        Consumer<String> delivery = localTopics.get(topic);
+        if (delivery == null) {
+            log.warn("未知的WebSocket主题: {}", topic);
+            return;
+        }
+        delivery.accept(payload);
+    }
+}
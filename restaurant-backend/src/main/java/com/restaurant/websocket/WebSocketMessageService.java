@@ -6,13 +6,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WebSocketMessageService {
 
-    private final KitchenWebSocketHandler webSocketHandler;
+    private final WebSocketDispatcher dispatcher;
     private final ObjectMapper objectMapper;
+    private final ItemStatusCoalescer itemStatusCoalescer;
 
     /**
      * 通知后厨新订单
@@ -24,7 +27,7 @@ public class WebSocketMessageService {
             message.setData(orderDetail);
             
             String json = objectMapper.writeValueAsString(message);
-            webSocketHandler.broadcast(json);
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, json);
             log.info("发送新订单通知到后厨");
         } catch (Exception e) {
             log.error("发送WebSocket消息失败", e);
@@ -41,7 +44,7 @@ public class WebSocketMessageService {
             message.setData(new StatusUpdate(orderId, status));
             
             String json = objectMapper.writeValueAsString(message);
-            webSocketHandler.broadcast(json);
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, json);
         } catch (Exception e) {
             log.error("发送WebSocket消息失败", e);
         }
@@ -49,15 +52,23 @@ public class WebSocketMessageService {
 
     /**
      * 通知菜品状态更新
+     * 短时间内的多次变更会合并成一帧 ITEM_STATUS_BATCH 发送
      */
     public void notifyItemStatus(Long itemId, Integer status) {
+        itemStatusCoalescer.submit(itemId, status);
+    }
+
+    /**
+     * 推送合并制作视图中发生变化的分组
+     */
+    public void notifyBatchUpdate(List<?> changedGroups) {
         try {
             WebSocketMessage message = new WebSocketMessage();
-            message.setType("ITEM_STATUS");
-            message.setData(new ItemStatusUpdate(itemId, status));
-            
+            message.setType("BATCH_UPDATE");
+            message.setData(changedGroups);
+
             String json = objectMapper.writeValueAsString(message);
-            webSocketHandler.broadcast(json);
+            dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, json);
         } catch (Exception e) {
             log.error("发送WebSocket消息失败", e);
         }
@@ -0,0 +1,282 @@
+package com.restaurant.websocket;
+
+import com.restaurant.auth.event.TokenRevokedEvent;
+import com.restaurant.config.JwtHandshakeInterceptor;
+import com.restaurant.utils.IpUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本节点的WebSocket连接管理
+ * - 连接数限制：全局上限和单个IP上限，超出时拒绝新连接
+ * - 心跳：定时向每个连接发送 ping，收到 pong 或任何消息都视为活跃
+ * - 清理：超过空闲时间没有任何响应的连接（如平板休眠后的半开连接）直接关闭移除；
+ *   发送超时或积压超过缓冲上限的慢连接同样关闭移除，不影响其他连接收到广播
+ * - 撤销：连接只在握手时认证，用户的token被撤销时关闭该用户在本节点的所有连接
+ */
+@Slf4j
+@Component
+public class WebSocketSessionRegistry {
+
+    // 单条消息发送超时与缓冲上限，防止慢客户端拖住广播线程
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 512 * 1024;
+
+    private final long heartbeatIntervalMs;
+    private final long idleTimeoutMs;
+    private final int maxConnections;
+    private final int maxConnectionsPerIp;
+    private final IpUtil ipUtil;
+
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> connectionsPerIp = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final LongAdder reapedSessions = new LongAdder();
+    private final LongAdder rejectedSessions = new LongAdder();
+    private final LongAdder revokedSessions = new LongAdder();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public WebSocketSessionRegistry(@Value("${app.websocket.heartbeat-interval-ms:25000}") long heartbeatIntervalMs,
+                                    @Value("${app.websocket.idle-timeout-ms:70000}") long idleTimeoutMs,
+                                    @Value("${app.websocket.max-connections:500}") int maxConnections,
+                                    @Value("${app.websocket.max-connections-per-ip:20}") int maxConnectionsPerIp,
+                                    IpUtil ipUtil) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.ipUtil = ipUtil;
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记新连接
+     *
+     * @return 超出连接数限制时返回 false，连接已被关闭
+     */
+    public boolean register(WebSocketSession session, String topic) {
+        String ip = clientIp(session);
+        // 先占用名额再登记，并发握手时也不会超出上限
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return reject(session, ip);
+        }
+        if (connectionsPerIp.merge(ip, 1, Integer::sum) > maxConnectionsPerIp) {
+            release(ip);
+            return reject(session, ip);
+        }
+
+        // 广播可能来自请求线程、集群监听线程和心跳线程，包装后支持并发发送
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(
+                session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        SessionEntry previous = sessions.put(session.getId(), new SessionEntry(concurrent, topic, ip));
+        if (previous != null) {
+            release(previous.ip);
+        }
+        return true;
+    }
+
+    private boolean reject(WebSocketSession session, String ip) {
+        rejectedSessions.increment();
+        log.warn("WebSocket连接数超限，拒绝连接: {} ({})", session.getId(), ip);
+        closeQuietly(session, CloseStatus.SERVICE_OVERLOAD);
+        return false;
+    }
+
+    /**
+     * 移除连接
+     */
+    public void unregister(String sessionId) {
+        SessionEntry entry = sessions.remove(sessionId);
+        if (entry != null) {
+            release(entry.ip);
+        }
+    }
+
+    /**
+     * 收到客户端任何消息（含 pong）时刷新活跃时间
+     */
+    public void touch(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 向订阅了指定主题的所有连接广播
+     */
+    public void broadcast(String topic, String message) {
+        TextMessage textMessage = new TextMessage(message);
+        sessions.values().forEach(entry -> {
+            if (topic.equals(entry.topic)) {
+                send(entry, textMessage);
+            }
+        });
+    }
+
+    /**
+     * 向指定连接发送消息
+     */
+    public void sendTo(String sessionId, String message) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null) {
+            send(entry, new TextMessage(message));
+        }
+    }
+
+    public int getConnectionCount(String topic) {
+        return (int) sessions.values().stream().filter(e -> topic.equals(e.topic)).count();
+    }
+
+    private void send(SessionEntry entry, TextMessage message) {
+        try {
+            if (entry.session.isOpen()) {
+                entry.session.sendMessage(message);
+            }
+        } catch (SessionLimitExceededException e) {
+            log.warn("WebSocket连接发送超限: {} ({}) {}", entry.session.getId(), entry.ip, e.getMessage());
+            reap(entry, e.getStatus());
+        } catch (IOException | RuntimeException e) {
+            log.error("WebSocket发送消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 心跳：关闭空闲超时的连接，向其余连接发送 ping
+     */
+    private void heartbeat() {
+        // 定时任务抛出异常后不会再执行，之后不再清理连接、释放名额，因此任何异常都在这里吞掉
+        try {
+            long now = System.currentTimeMillis();
+            PingMessage ping = new PingMessage(ByteBuffer.allocate(0));
+            sessions.values().forEach(entry -> {
+                if (!entry.session.isOpen() || now - entry.lastSeen > idleTimeoutMs) {
+                    reap(entry, CloseStatus.SESSION_NOT_RELIABLE);
+                    return;
+                }
+                try {
+                    entry.session.sendMessage(ping);
+                } catch (SessionLimitExceededException e) {
+                    reap(entry, e.getStatus());
+                } catch (IOException | RuntimeException e) {
+                    reap(entry, CloseStatus.SESSION_NOT_RELIABLE);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("WebSocket心跳执行失败", e);
+        }
+    }
+
+    /**
+     * 用户被禁用或删除（本节点或经集群转发），关闭其连接，之后的指令无法再提交
+     */
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        sessions.values().forEach(entry -> {
+            Object userId = entry.session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+            if (event.getUserId().equals(userId) && sessions.remove(entry.session.getId(), entry)) {
+                release(entry.ip);
+                revokedSessions.increment();
+                log.info("用户 {} 的token已撤销，关闭WebSocket连接: {}", userId, entry.session.getId());
+                closeQuietly(entry.session, CloseStatus.POLICY_VIOLATION);
+            }
+        });
+    }
+
+    private void reap(SessionEntry entry, CloseStatus status) {
+        if (sessions.remove(entry.session.getId(), entry)) {
+            release(entry.ip);
+            reapedSessions.increment();
+            log.info("清理WebSocket连接: {} ({})", entry.session.getId(), entry.ip);
+            closeQuietly(entry.session, status);
+        }
+    }
+
+    private void release(String ip) {
+        connections.decrementAndGet();
+        connectionsPerIp.computeIfPresent(ip, (k, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException | RuntimeException e) {
+            log.debug("关闭WebSocket连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 只有对端是受信任的代理时才读取转发头，见 {@link IpUtil}
+     */
+    private String clientIp(WebSocketSession session) {
+        InetSocketAddress address = session.getRemoteAddress();
+        String remoteAddr = address != null && address.getAddress() != null
+                ? address.getAddress().getHostAddress() : "unknown";
+        return ipUtil.getClientIp(remoteAddr, session.getHandshakeHeaders().getFirst("X-Forwarded-For"),
+                session.getHandshakeHeaders().getFirst("X-Real-IP"));
+    }
+
+    /**
+     * 连接统计：活跃、疑似失联（错过一次心跳）、累计清理、拒绝和因撤销关闭的连接数
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long stale = sessions.values().stream()
+                .filter(e -> now - e.lastSeen > heartbeatIntervalMs * 2)
+                .count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("live", sessions.size() - stale);
+        stats.put("stale", stale);
+        stats.put("reaped", reapedSessions.sum());
+        stats.put("rejected", rejectedSessions.sum());
+        stats.put("revoked", revokedSessions.sum());
+        stats.put("distinctIps", connectionsPerIp.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class SessionEntry {
+        final WebSocketSession session;
+        final String topic;
+        final String ip;
+        volatile long lastSeen = System.currentTimeMillis();
+
+        SessionEntry(WebSocketSession session, String topic, String ip) {
+            this.session = session;
+            this.topic = topic;
+            this.ip = ip;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.restaurant.websocket;
+
+import com.restaurant.common.Result;
+import com.restaurant.dish.service.MenuSnapshotService;
+import com.restaurant.order.service.OrderTrackingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ws")
+@RequiredArgsConstructor
+public class WebSocketStatsController {
+
+    private final KitchenWebSocketHandler kitchenWebSocketHandler;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final ItemStatusCoalescer itemStatusCoalescer;
+    private final KitchenCommandService kitchenCommandService;
+    private final OrderTrackingService orderTrackingService;
+    private final MenuSnapshotService menuSnapshotService;
+
+    /**
+     * 实时推送运行统计（WebSocket 与顾客端 SSE）
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", kitchenWebSocketHandler.getConnectionCount());
+        stats.put("sessions", sessionRegistry.getStats());
+        stats.put("itemStatusCoalescing", itemStatusCoalescer.getStats());
+        stats.put("commands", kitchenCommandService.getStats());
+        stats.put("orderTracking", orderTrackingService.getStats());
+        stats.put("menu", menuSnapshotService.getStats());
+        return Result.success(stats);
+    }
+}
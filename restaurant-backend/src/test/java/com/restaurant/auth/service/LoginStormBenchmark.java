@@ -0,0 +1,127 @@
+package com.restaurant.auth.service;
+
+import com.restaurant.auth.dto.LoginRequest;
+import com.restaurant.user.entity.User;
+import com.restaurant.user.mapper.UserMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 登录风暴下点餐接口的延迟：TOMCAT_THREADS 个请求线程同时处理登录和点餐请求，
+ * 6 个客户端不停地用错误密码登录，2 个客户端下单，统计下单请求的排队 + 处理时间分布。
+ * - bounded：现在的写法，AuthService 把 BCrypt 交给 {@link PasswordVerifier} 的有界线程池，请求线程立即释放
+ * - inline：改造前的写法，BCrypt 直接在请求线程上执行，登录请求占满请求线程后点餐请求只能排队
+ * quietOrder 为没有登录请求时的下单延迟，作为对照。
+ * 限流上限调得足够大，风暴不会被 {@link LoginThrottle} 提前挡住，只比较 BCrypt 的隔离效果。
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LoginStormBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginStormBenchmark {
+
+    private static final int TOMCAT_THREADS = 4;
+    // 一次下单在请求线程上的处理量（不含数据库往返）
+    private static final long ORDER_WORK_TOKENS = 20_000;
+
+    @Param({"bounded", "inline"})
+    String mode;
+
+    ExecutorService tomcat;
+    BCryptPasswordEncoder encoder;
+    PasswordVerifier passwordVerifier;
+    AuthService authService;
+    String encodedPassword;
+    final AtomicInteger clients = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        tomcat = Executors.newFixedThreadPool(TOMCAT_THREADS);
+        encoder = new BCryptPasswordEncoder();
+        encodedPassword = encoder.encode("correct-password");
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("waiter");
+        user.setPassword(encodedPassword);
+        user.setStatus(1);
+        UserMapper userMapper = mock(UserMapper.class, withSettings().stubOnly());
+        when(userMapper.selectByUsername("waiter")).thenReturn(user);
+
+        passwordVerifier = new PasswordVerifier(encoder, 2, 50);
+        LoginThrottle throttle = new LoginThrottle(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                1000, 30, 600, 300, 10_000);
+        authService = new AuthService(userMapper, null, passwordVerifier, throttle);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tomcat.shutdownNow();
+        passwordVerifier.shutdown();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public void order() throws Exception {
+        tomcat.submit(() -> Blackhole.consumeCPU(ORDER_WORK_TOKENS)).get();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(6)
+    public void login() throws Exception {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("waiter");
+        request.setPassword("wrong-password");
+        String ip = "10.0.0." + clients.incrementAndGet() % 200;
+        CompletableFuture<?> pending = tomcat.submit(() -> {
+            if ("inline".equals(mode)) {
+                return CompletableFuture.completedFuture(encoder.matches(request.getPassword(), encodedPassword));
+            }
+            try {
+                return authService.login(request, ip);
+            } catch (RuntimeException e) {
+                // 密码校验队列已满，立即拒绝
+                return CompletableFuture.completedFuture(null);
+            }
+        }).get();
+        try {
+            pending.join();
+        } catch (RuntimeException e) {
+            // 密码错误
+        }
+    }
+
+    @Benchmark
+    public void quietOrder() throws Exception {
+        tomcat.submit(() -> Blackhole.consumeCPU(ORDER_WORK_TOKENS)).get();
+    }
+}
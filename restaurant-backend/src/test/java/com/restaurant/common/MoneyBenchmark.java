@@ -0,0 +1,88 @@
+package com.restaurant.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一张订单的计价和结账，按 OrderService.createOrder 和 OrderStatusService.checkout 的写法：
+ * 逐项计算小计写回明细、累计合计，结账时汇总未付明细、减去促销、核对实付并计算抹零。
+ * bigDecimal 为改用 {@link Money} 之前的写法；两者都从实体的 BigDecimal 读入、写回 BigDecimal。
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MoneyBenchmark（默认附带 -prof gc 统计每次调用的分配量）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"8", "40"})
+    int lines;
+
+    BigDecimal[] prices;
+    int[] quantities;
+    BigDecimal[] subtotals;
+    BigDecimal promotion;
+    BigDecimal paid;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[lines];
+        quantities = new int[lines];
+        subtotals = new BigDecimal[lines];
+        for (int i = 0; i < lines; i++) {
+            prices[i] = BigDecimal.valueOf(800 + random.nextInt(12000), 2);
+            quantities[i] = 1 + random.nextInt(4);
+        }
+        promotion = new BigDecimal("12.50");
+        BigDecimal total = Arrays.stream(prices).reduce(BigDecimal.ZERO, BigDecimal::add);
+        paid = total.subtract(promotion);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            BigDecimal subtotal = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            subtotals[i] = subtotal;
+            total = total.add(subtotal);
+        }
+        BigDecimal gross = Arrays.stream(subtotals).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal shouldPay = gross.subtract(promotion);
+        BigDecimal discount = shouldPay.subtract(paid);
+        return total.subtract(promotion).add(discount);
+    }
+
+    @Benchmark
+    public BigDecimal money() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < lines; i++) {
+            Money subtotal = Money.of(prices[i]).times(quantities[i]);
+            subtotals[i] = subtotal.toBigDecimal();
+            total = total.plus(subtotal);
+        }
+        long cents = 0;
+        for (BigDecimal subtotal : subtotals) {
+            cents = Math.addExact(cents, Money.of(subtotal).cents());
+        }
+        Money shouldPay = Money.ofCents(cents).minus(Money.of(promotion));
+        Money discount = shouldPay.minus(Money.of(paid));
+        return total.minus(Money.of(promotion)).plus(discount).toBigDecimal();
+    }
+}
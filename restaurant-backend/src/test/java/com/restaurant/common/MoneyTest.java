@@ -0,0 +1,66 @@
+package com.restaurant.common;
+
+import com.restaurant.common.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void convertsExactlyAndRejectsSubCentAmounts() {
+        assertThat(Money.of(new BigDecimal("164.5")).cents()).isEqualTo(16450);
+        assertThat(Money.of(null)).isEqualTo(Money.ZERO);
+        assertThat(Money.ofCents(16450).toBigDecimal()).isEqualByComparingTo("164.50");
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.005"))).isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void convertsDatabaseAmountsExactly() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // DECIMAL(10,2) 的全部范围，以及一位、零位小数的写法
+            long cents = random.nextLong(-9_999_999_999L, 10_000_000_000L);
+            assertThat(Money.of(BigDecimal.valueOf(cents, 2)).cents()).isEqualTo(cents);
+            assertThat(Money.of(BigDecimal.valueOf(cents / 10, 1)).cents()).isEqualTo(cents / 10 * 10);
+            assertThat(Money.of(BigDecimal.valueOf(cents / 100)).cents()).isEqualTo(cents / 100 * 100);
+        }
+        assertThat(Money.of(new BigDecimal("1.500")).cents()).isEqualTo(150);
+        assertThat(Money.of(new BigDecimal("1E+3")).cents()).isEqualTo(100_000);
+    }
+
+    @Test
+    void overflowIsNotSilent() {
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE / 2).times(3)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void floorsToWipeUnits() {
+        Money amount = Money.ofCents(16458);
+        assertThat(amount.floorTo(Money.JIAO)).isEqualTo(Money.ofCents(16450));
+        assertThat(amount.floorTo(Money.YUAN)).isEqualTo(Money.ofCents(16400));
+        assertThat(amount.floorTo(Money.TEN_YUAN)).isEqualTo(Money.ofCents(16000));
+        assertThat(Money.ofCents(-16458).floorTo(Money.YUAN)).isEqualTo(Money.ofCents(-16400));
+    }
+
+    @Test
+    void discountCoversWipesAndManualDiscounts() {
+        Money shouldPay = Money.ofCents(16458);
+
+        assertThat(shouldPay.discountTo(shouldPay)).isEqualTo(Money.ZERO);
+        assertThat(shouldPay.discountTo(shouldPay.floorTo(Money.JIAO))).isEqualTo(Money.ofCents(8));
+        assertThat(shouldPay.discountTo(shouldPay.floorTo(Money.TEN_YUAN))).isEqualTo(Money.ofCents(458));
+        // 收银员手工让利
+        assertThat(shouldPay.discountTo(Money.ofCents(15000))).isEqualTo(Money.ofCents(1458));
+        assertThat(shouldPay.discountTo(Money.ZERO)).isEqualTo(shouldPay);
+        assertThatThrownBy(() -> shouldPay.discountTo(Money.ofCents(16459)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("164.58");
+        assertThatThrownBy(() -> shouldPay.discountTo(Money.ofCents(-1))).isInstanceOf(BusinessException.class);
+    }
+}
@@ -0,0 +1,189 @@
+package com.restaurant.common.datasource;
+
+import com.restaurant.utils.IpUtil;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 主库和从库各用一个 H2 内存库，库中 node 表记录自己的名字，查询结果即可看出路由到了哪个库
+ */
+class WorkloadRoutingDataSourceTest {
+
+    private HikariDataSource replica;
+    private Map<WorkloadType, HikariDataSource> pools;
+    private ReadYourWritesTracker tracker;
+    private ReplicaLagMonitor lagMonitor;
+    private WorkloadRoutingDataSource routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        pools = new EnumMap<>(WorkloadType.class);
+        for (WorkloadType workload : WorkloadType.values()) {
+            HikariDataSource pool = pool("primary" + suffix);
+            pool.setPoolName(workload.getPoolName());
+            pools.put(workload, pool);
+        }
+        replica = pool("replica" + suffix);
+        init(pools.get(WorkloadType.OLTP), "primary");
+        init(replica, "replica");
+
+        tracker = new ReadYourWritesTracker(60_000, new IpUtil(List.of()));
+        // 检查间隔足够长，延迟由测试调用 check() 主动刷新
+        lagMonitor = new ReplicaLagMonitor(replica, "SELECT lag FROM replica_lag", "lag", 3, 3_600_000);
+        routing = new WorkloadRoutingDataSource(pools, replica, tracker, lagMonitor);
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        login(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        routing.close();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        assertThat(readWriteNode()).isEqualTo("primary");
+    }
+
+    @Test
+    void replicaReadOutsideTransactionGoesToReplica() {
+        Boolean previous = DataSourceRoute.preferReplica();
+        try {
+            assertThat(node()).isEqualTo("replica");
+        } finally {
+            DataSourceRoute.restore(previous);
+        }
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    @Test
+    void readAfterWriteSticksToPrimary() throws Throwable {
+        WriteTrackingInterceptor writeTracking = new WriteTrackingInterceptor(tracker);
+        Invocation insert = mock(Invocation.class);
+        when(insert.proceed()).thenAnswer(invocation -> jdbc.update("INSERT INTO orders (id) VALUES (1)"));
+        readWrite.executeWithoutResult(status -> {
+            try {
+                writeTracking.intercept(insert);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // 写过数据的会话读主库，能读到刚写入的订单；其他会话仍读从库
+        assertThat(readOnlyNode()).isEqualTo("primary");
+        Integer orders = readOnly.execute(status -> jdbc.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+        assertThat(orders).isEqualTo(1);
+        login(2L);
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        assertThat(routing.getRoutingStats()).containsEntry("stickyFallbacks", 2L);
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        setLag(10);
+        assertThat(lagMonitor.isHealthy()).isFalse();
+        assertThat(readOnlyNode()).isEqualTo("primary");
+
+        setLag(0);
+        assertThat(lagMonitor.isHealthy()).isTrue();
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        assertThat(routing.getRoutingStats()).containsEntry("lagFallbacks", 1L);
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        replica.close();
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isHealthy()).isFalse();
+        assertThat(readOnlyNode()).isEqualTo("primary");
+    }
+
+    @Test
+    void workloadSelectsItsOwnPrimaryPool() {
+        // LazyConnectionDataSourceProxy 初始化时会从默认池取一次连接，只比较前后差值
+        Object oltpAcquired = poolStats("oltp").get("acquired");
+
+        DataSourceRoute.call(WorkloadType.REPORT, this::readWriteNode);
+
+        assertThat(poolStats("report")).containsEntry("acquired", 1L);
+        assertThat(poolStats("oltp")).containsEntry("acquired", oltpAcquired);
+    }
+
+    private String readOnlyNode() {
+        return readOnly.execute(status -> node());
+    }
+
+    private String readWriteNode() {
+        return readWrite.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private void setLag(long seconds) {
+        try (HikariDataSource direct = pool(replica.getJdbcUrl())) {
+            new JdbcTemplate(direct).update("UPDATE replica_lag SET lag = ?", seconds);
+        }
+        lagMonitor.check();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> poolStats(String name) {
+        return (Map<String, Object>) routing.getPoolStats().get(name);
+    }
+
+    private static HikariDataSource pool(String database) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(database.startsWith("jdbc:") ? database : "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+
+    private static void init(DataSource dataSource, String name) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE node (name VARCHAR(20))");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        template.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY)");
+        template.execute("CREATE TABLE replica_lag (lag BIGINT)");
+        template.update("INSERT INTO replica_lag (lag) VALUES (0)");
+    }
+
+    private static void login(Long userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+    }
+}
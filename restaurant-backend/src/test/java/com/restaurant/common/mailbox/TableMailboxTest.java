@@ -0,0 +1,223 @@
+package com.restaurant.common.mailbox;
+
+import com.restaurant.config.TableMailboxConfig;
+import com.restaurant.support.CountingTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 按生产配置织入桌台信箱和事务拦截器：同一桌台的操作互不交错，不同桌台并行；
+ * 绕过串行的调用（在其他分片上、在调用方事务中）被拒绝；排队超时按分片过载处理
+ */
+class TableMailboxTest {
+
+    /** 4 个分片：桌台 1 和 5 同属分片 1，桌台 2 属于分片 2 */
+    private static final int SHARDS = 4;
+    private static final long WAIT_TIMEOUT_MS = 1000;
+
+    private final AtomicInteger transactions = new AtomicInteger();
+    private AnnotationConfigApplicationContext context;
+    private TableOperations operations;
+    /** 代理对象上的字段不是目标对象的，断言读取目标对象 */
+    private TableOperations recorded;
+    private TableMailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TableKeyResolver.class, () -> new TableKeyResolver() {
+            @Override
+            public Long tableOfOrder(Long orderId) {
+                return orderId / 100;
+            }
+
+            @Override
+            public Long tableOfOrderItem(Long itemId) {
+                return itemId / 10;
+            }
+        });
+        context.registerBean(TableMailbox.class, () -> new TableMailbox(context.getBean(TableKeyResolver.class), SHARDS, 100, WAIT_TIMEOUT_MS));
+        context.registerBean(PlatformTransactionManager.class, () -> new CountingTransactionManager(transactions));
+        context.register(TransactionConfig.class, TableMailboxConfig.class, TableOperations.class);
+        context.refresh();
+        operations = context.getBean(TableOperations.class);
+        recorded = AopTestUtils.getUltimateTargetObject(operations);
+        recorded.setProxy(operations);
+        mailbox = context.getBean(TableMailbox.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void sameTableNeverOverlapsWhileTablesRunInParallel() throws Exception {
+        int callers = 16;
+        int callsPerCaller = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                int caller = i;
+                futures.add(pool.submit(() -> {
+                    for (int call = 0; call < callsPerCaller; call++) {
+                        operations.touch((long) (1 + (caller + call) % SHARDS));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(recorded.maxPerTable).hasValue(1);
+        assertThat(recorded.maxConcurrent.get()).isGreaterThan(1);
+        // 每次调用在分片线程上开启自己的事务
+        assertThat(transactions).hasValue(callers * callsPerCaller);
+        assertThat(recorded.transactionalCalls).hasValue(callers * callsPerCaller);
+        assertThat(mailbox.getStats()).containsEntry("dispatched", (long) callers * callsPerCaller);
+    }
+
+    @Test
+    void nestedCallForTableOnTheSameShardRunsInline() {
+        operations.touchThen(1L, 5L);
+
+        assertThat(recorded.touched).containsOnlyKeys(1L, 5L);
+        assertThat(mailbox.getStats()).containsEntry("dispatched", 1L).containsEntry("inline", 1L);
+    }
+
+    @Test
+    void nestedCallForTableOnAnotherShardIsRejected() {
+        assertThatThrownBy(() -> operations.touchThen(1L, 2L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("桌台 2");
+
+        assertThat(recorded.touched).containsOnlyKeys(1L);
+        assertThat(mailbox.getStats()).containsEntry("misrouted", 1L);
+    }
+
+    @Test
+    void callInsideCallerTransactionIsRejected() {
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> operations.touch(1L)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("事务");
+
+        assertThat(recorded.touched).isEmpty();
+        assertThat(mailbox.getStats()).containsEntry("misrouted", 1L);
+    }
+
+    @Test
+    void onlyQueuedCallsTimeOutWhileRunningCallsAreAwaited() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = pool.submit(() -> {
+                operations.hold(1L);
+                return null;
+            });
+            assertThat(recorded.holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 桌台 5 与桌台 1 同属分片 1，排在被占住的操作之后，超时后撤销
+            assertThatThrownBy(() -> operations.touch(5L))
+                    .isInstanceOf(TableMailboxFullException.class)
+                    .hasMessageContaining("排队超时");
+            // 占住分片的操作已开始执行，调用方等待超过超时时间后仍拿到结果
+            assertThat(holder.isDone()).isFalse();
+            recorded.release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 之后的操作在同一分片上串行执行；撤销的操作如果还会执行，会排在它前面
+        operations.touch(1L);
+        assertThat(recorded.touched).containsOnlyKeys(1L).containsEntry(1L, 2);
+        assertThat(mailbox.getStats()).containsEntry("timedOut", 1L);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+    }
+
+    static class TableOperations {
+
+        final Map<Long, AtomicInteger> active = new ConcurrentHashMap<>();
+        final Map<Long, Integer> touched = new ConcurrentHashMap<>();
+        final AtomicInteger maxPerTable = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger transactionalCalls = new AtomicInteger();
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private TableOperations proxy;
+
+        void setProxy(TableOperations proxy) {
+            this.proxy = proxy;
+        }
+
+        @Transactional
+        @TableSerial
+        public void touch(Long tableId) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                transactionalCalls.incrementAndGet();
+            }
+            AtomicInteger tableActive = active.computeIfAbsent(tableId, id -> new AtomicInteger());
+            maxPerTable.accumulateAndGet(tableActive.incrementAndGet(), Math::max);
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            touched.merge(tableId, 1, Integer::sum);
+            concurrent.decrementAndGet();
+            tableActive.decrementAndGet();
+        }
+
+        /**
+         * 占住桌台所在分片，直到 release
+         */
+        @Transactional
+        @TableSerial
+        public void hold(Long tableId) throws InterruptedException {
+            holding.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            touched.merge(tableId, 1, Integer::sum);
+        }
+
+        @Transactional
+        @TableSerial
+        public void touchThen(Long tableId, Long nestedTableId) {
+            touched.merge(tableId, 1, Integer::sum);
+            proxy.touch(nestedTableId);
+        }
+    }
+}
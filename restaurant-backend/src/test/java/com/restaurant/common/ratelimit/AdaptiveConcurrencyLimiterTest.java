@@ -0,0 +1,122 @@
+package com.restaurant.common.ratelimit;
+
+import com.restaurant.common.ratelimit.ConcurrencyLimitProperties.Priority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用合成的响应时间驱动自适应并发限制：注入延迟后上限下降，过载时低优先级先于关键请求被拒绝
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private ConcurrencyLimitProperties properties;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties();
+        // 窗口只按样本数结束，结果不依赖测试运行的快慢
+        properties.setWindowMs(0);
+        properties.setMinWindowSamples(10);
+        limiter = new AdaptiveConcurrencyLimiter(properties);
+    }
+
+    @Test
+    void limitDropsWhenLatencyIsInjectedAndRecoversAfterwards() {
+        for (int i = 0; i < 5; i++) {
+            saturate(FAST);
+        }
+        int healthy = limiter.getLimit();
+        assertThat(healthy).isGreaterThanOrEqualTo(properties.getInitialLimit());
+
+        // 持续的变慢最终会成为新基线，这里只注入一段短时间的延迟
+        for (int i = 0; i < 3; i++) {
+            saturate(SLOW);
+        }
+        int degraded = limiter.getLimit();
+        assertThat(degraded).isLessThan(healthy).isGreaterThanOrEqualTo(properties.getMinLimit());
+        assertThat((double) limiter.getStats().get("recentRttMs")).isEqualTo(50.0);
+
+        for (int i = 0; i < 5; i++) {
+            saturate(FAST);
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(degraded);
+    }
+
+    @Test
+    void limitIsNotAdjustedWhileTheApplicationIsIdle() {
+        for (int i = 0; i < 50; i++) {
+            assertThat(limiter.tryAcquire(Priority.NORMAL)).isTrue();
+            limiter.release(SLOW);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(properties.getInitialLimit());
+        assertThat(limiter.getStats().get("adjustments")).isEqualTo(0L);
+    }
+
+    @Test
+    void lowPriorityIsRejectedBeforeCritical() {
+        for (int i = 0; i < 3; i++) {
+            saturate(SLOW);
+        }
+        int limit = limiter.getLimit();
+        int lowMax = Math.max(1, (int) (limit * properties.getShares().get(Priority.LOW)));
+        assertThat(lowMax).isLessThan(limit);
+
+        long criticalRejected = (long) counts(priorities(), "critical").get("rejected");
+        int admitted = 0;
+        while (limiter.tryAcquire(Priority.LOW)) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(lowMax);
+        assertThat(limiter.tryAcquire(Priority.NORMAL)).isTrue();
+        admitted++;
+        while (admitted < limit) {
+            assertThat(limiter.tryAcquire(Priority.CRITICAL)).isTrue();
+            admitted++;
+        }
+        assertThat(limiter.tryAcquire(Priority.LOW)).isFalse();
+        assertThat(limiter.tryAcquire(Priority.CRITICAL)).isFalse();
+
+        Map<String, Object> priorities = priorities();
+        assertThat(counts(priorities, "low").get("rejected")).isEqualTo(2L);
+        assertThat(counts(priorities, "critical").get("rejected")).isEqualTo(criticalRejected + 1);
+
+        // 释放一个名额后关键请求可以进入，低优先级仍超出其份额
+        limiter.release();
+        assertThat(limiter.tryAcquire(Priority.LOW)).isFalse();
+        assertThat(limiter.tryAcquire(Priority.CRITICAL)).isTrue();
+    }
+
+    /**
+     * 占满当前上限后逐个释放，每个请求的响应时间都是 rttNanos
+     */
+    private void saturate(long rttNanos) {
+        int permits = limiter.getLimit();
+        for (int i = 0; i < permits; i++) {
+            assertThat(limiter.tryAcquire(Priority.CRITICAL)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Priority.CRITICAL)).isFalse();
+        for (int i = 0; i < permits; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> priorities() {
+        return (Map<String, Object>) limiter.getStats().get("priorities");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> counts(Map<String, Object> priorities, String priority) {
+        return (Map<String, Object>) priorities.get(priority);
+    }
+}
@@ -0,0 +1,163 @@
+package com.restaurant.common.singleflight;
+
+import com.restaurant.config.SingleFlightConfig;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.report.dto.TodayStatsDTO;
+import com.restaurant.report.service.ReportService;
+import com.restaurant.support.CountingTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 按生产配置织入调用合并和事务拦截器，ReportService 背后是计数的桩 mapper：
+ * 并发的相同查询只应访问一次数据库
+ */
+class SingleFlightInterceptorTest {
+
+    private static final int CALLERS = 32;
+
+    private final AtomicInteger revenueQueries = new AtomicInteger();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile RuntimeException failure;
+
+    private AnnotationConfigApplicationContext context;
+    private ReportService reportService;
+    private SingleFlightInterceptor interceptor;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        when(orderMapper.selectTodayRevenue()).thenAnswer(invocation -> {
+            revenueQueries.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            if (failure != null) {
+                throw failure;
+            }
+            return new BigDecimal("300.00");
+        });
+        when(orderMapper.selectTodayOrderCount()).thenReturn(3L);
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(OrderMapper.class, () -> orderMapper);
+        context.registerBean(OrderItemMapper.class, () -> mock(OrderItemMapper.class));
+        context.registerBean(PlatformTransactionManager.class, () -> new CountingTransactionManager(transactions));
+        context.register(TransactionConfig.class, SingleFlightConfig.class, ReportService.class);
+        context.refresh();
+        reportService = context.getBean(ReportService.class);
+        interceptor = context.getBean(SingleFlightInterceptor.class);
+        pool = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdownNow();
+        context.close();
+    }
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        List<Future<TodayStatsDTO>> results = callConcurrently();
+
+        // 所有调用方都已到达：一个在执行，其余在等待它的结果
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        TodayStatsDTO first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<TodayStatsDTO> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(first.getTotalRevenue()).isEqualByComparingTo("300.00");
+        assertThat(first.getAvgAmount()).isEqualByComparingTo("100.00");
+        assertThat(revenueQueries).hasValue(1);
+        // 等待方不开启事务
+        assertThat(transactions).hasValue(1);
+        assertThat(interceptor.getStats()).containsEntry("executions", 1L);
+    }
+
+    @Test
+    void resultIsReusedWithinTtl() {
+        release.countDown();
+
+        TodayStatsDTO first = reportService.getTodayStats();
+        TodayStatsDTO second = reportService.getTodayStats();
+
+        assertThat(second).isSameAs(first);
+        assertThat(revenueQueries).hasValue(1);
+        assertThat(interceptor.getStats()).containsEntry("reused", 1L);
+    }
+
+    @Test
+    void failureIsSharedButNotCached() throws Exception {
+        failure = new IllegalStateException("数据库不可用");
+        List<Future<TodayStatsDTO>> results = callConcurrently();
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<TodayStatsDTO> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasRootCauseMessage("数据库不可用");
+        }
+        assertThat(revenueQueries).hasValue(1);
+
+        failure = null;
+        assertThat(reportService.getTodayStats().getOrderCount()).isEqualTo(3L);
+        assertThat(revenueQueries).hasValue(2);
+    }
+
+    @Test
+    void callInsideTransactionIsNotCoalesced() {
+        release.countDown();
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transaction.executeWithoutResult(status -> reportService.getTodayStats());
+        transaction.executeWithoutResult(status -> reportService.getTodayStats());
+
+        assertThat(revenueQueries).hasValue(2);
+        assertThat(interceptor.getStats()).containsEntry("bypassed", 2L);
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((long) interceptor.getStats().get("coalesced") < expected) {
+            assertThat(System.nanoTime()).as("等待调用方合并超时").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private List<Future<TodayStatsDTO>> callConcurrently() {
+        List<Future<TodayStatsDTO>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(reportService::getTodayStats));
+        }
+        return results;
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+    }
+}
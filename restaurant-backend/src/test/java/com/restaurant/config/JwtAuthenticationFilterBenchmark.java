@@ -0,0 +1,79 @@
+package com.restaurant.config;
+
+import com.restaurant.utils.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个带 token 的请求经过 {@link JwtAuthenticationFilter} 的开销：
+ * - anonymous：不带 token，过滤器本身的固定开销
+ * - cached：命中已校验缓存，只计算一次 token 的 SHA-256 摘要
+ * - verifyEveryRequest：改造前的写法，每个请求都重新验签并解析 token
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain CHAIN = (request, response) -> { };
+
+    JwtUtil jwtUtil;
+    JwtAuthenticationFilter filter;
+    String token;
+    MockHttpServletRequest anonymousRequest;
+    MockHttpServletRequest bearerRequest;
+    MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(event -> { });
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-benchmark-secret-benchmark");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheSize", 10_000);
+        jwtUtil.init();
+        filter = new JwtAuthenticationFilter(jwtUtil);
+
+        token = jwtUtil.generateToken(42L, "waiter");
+        anonymousRequest = new MockHttpServletRequest("GET", "/api/orders");
+        bearerRequest = new MockHttpServletRequest("GET", "/api/orders");
+        bearerRequest.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object anonymous() throws Exception {
+        filter.doFilter(anonymousRequest, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(bearerRequest, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Long verifyEveryRequest() {
+        return Long.valueOf(jwtUtil.verifyToken(token).getSubject());
+    }
+}
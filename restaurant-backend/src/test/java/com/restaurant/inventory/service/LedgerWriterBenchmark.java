@@ -0,0 +1,80 @@
+package com.restaurant.inventory.service;
+
+import com.restaurant.inventory.entity.InventoryTransaction;
+import com.restaurant.inventory.mapper.InventoryTransactionMapper;
+import com.restaurant.support.TestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个下单/出餐事务写入若干条流水：改造前事务内每条流水一条 INSERT，{@link LedgerWriter} 在提交前合并成一条多行 INSERT。
+ * 内存库没有网络往返，差距主要来自语句数；连接真实 MySQL 时每条语句还多一次往返，差距更大。
+ * 单核机器上 GC 与测量线程争用，误差较大，宜在多核机器上运行。
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LedgerWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LedgerWriterBenchmark {
+
+    @Param({"4", "12"})
+    int rowsPerTransaction;
+
+    TestDatabase database;
+    InventoryTransactionMapper mapper;
+    LedgerWriter writer;
+    TransactionTemplate transactions;
+    long orderId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new TestDatabase(LedgerWriterTest.SCHEMA);
+        mapper = database.mapper(InventoryTransactionMapper.class);
+        writer = new LedgerWriter(mapper, 200);
+        transactions = database.transactionTemplate();
+    }
+
+    /**
+     * 每轮从空表开始，表和主键索引不随测量时间增长，两种写法在同样规模的表上比较
+     */
+    @Setup(Level.Iteration)
+    public void truncate() {
+        database.jdbc().execute("TRUNCATE TABLE inventory_transaction");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public void perRow() {
+        List<InventoryTransaction> rows = LedgerWriterTest.rows(++orderId, InventoryTransaction.TYPE_CONSUME, rowsPerTransaction);
+        transactions.executeWithoutResult(status -> rows.forEach(row -> mapper.batchInsert(List.of(row))));
+    }
+
+    @Benchmark
+    public void grouped() {
+        List<InventoryTransaction> rows = LedgerWriterTest.rows(++orderId, InventoryTransaction.TYPE_CONSUME, rowsPerTransaction);
+        // 业务代码按订单项逐次追加，提交前合并写入
+        transactions.executeWithoutResult(status -> rows.forEach(row -> writer.append(List.of(row))));
+    }
+}
@@ -0,0 +1,151 @@
+package com.restaurant.inventory.service;
+
+import com.restaurant.inventory.entity.InventoryTransaction;
+import com.restaurant.inventory.mapper.InventoryTransactionMapper;
+import com.restaurant.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 库存流水随业务事务提交：同一事务内的追加合并成一条语句，回滚或写库失败时与库存变化一起撤销
+ */
+class LedgerWriterTest {
+
+    static final String[] SCHEMA = {
+            "CREATE TABLE inventory_transaction (id BIGINT PRIMARY KEY, inventory_item_id BIGINT NOT NULL, "
+                    + "transaction_type TINYINT NOT NULL, quantity DECIMAL(10,2) NOT NULL, "
+                    + "before_stock DECIMAL(10,2) NOT NULL, after_stock DECIMAL(10,2) NOT NULL, "
+                    + "order_id BIGINT, order_item_id BIGINT, remark VARCHAR(500), operator_id BIGINT, "
+                    + "is_deleted TINYINT DEFAULT 0, created_at DATETIME, updated_at DATETIME)",
+            "CREATE TABLE inventory_item (id BIGINT PRIMARY KEY, reserved_stock DECIMAL(10,2) NOT NULL)",
+            "INSERT INTO inventory_item VALUES (1, 10)"
+    };
+
+    private static final AtomicLong IDS = new AtomicLong(1000);
+
+    private TestDatabase database;
+    private InventoryTransactionMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        database = new TestDatabase(SCHEMA);
+        mapper = database.mapper(InventoryTransactionMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void rowsCommitTogetherWithTheBusinessTransaction() {
+        LedgerWriter writer = newWriter();
+        database.transactionTemplate().executeWithoutResult(status -> {
+            database.jdbc().update("UPDATE inventory_item SET reserved_stock = reserved_stock - 3 WHERE id = 1");
+            writer.append(rows(7L, InventoryTransaction.TYPE_RELEASE, 2));
+            writer.append(rows(7L, InventoryTransaction.TYPE_RELEASE, 1));
+            // 提交前只在当前事务中可见，结算时与数据库记录合并
+            assertThat(writer.pending(7L)).hasSize(3);
+            assertThat(count()).isZero();
+        });
+
+        // 提交返回时流水已经在库里，之后崩溃不会丢失
+        assertThat(count()).isEqualTo(3);
+        assertThat(writer.pending(7L)).isEmpty();
+        assertThat(writer.getStats())
+                .containsEntry("committedWithTransaction", 3L)
+                .containsEntry("batches", 1L);
+    }
+
+    @Test
+    void rolledBackTransactionLeavesNoRows() {
+        LedgerWriter writer = newWriter();
+        database.transactionTemplate().executeWithoutResult(status -> {
+            writer.append(rows(8L, InventoryTransaction.TYPE_CONSUME, 2));
+            status.setRollbackOnly();
+        });
+
+        assertThat(count()).isZero();
+        assertThat(writer.pending(8L)).isEmpty();
+    }
+
+    @Test
+    void failedLedgerInsertRollsBackTheStockChange() {
+        LedgerWriter writer = newWriter();
+        InventoryTransaction invalid = rows(9L, InventoryTransaction.TYPE_RELEASE, 1).get(0);
+        invalid.setInventoryItemId(null);
+
+        assertThatThrownBy(() -> database.transactionTemplate().executeWithoutResult(status -> {
+            database.jdbc().update("UPDATE inventory_item SET reserved_stock = reserved_stock - 3 WHERE id = 1");
+            writer.append(List.of(invalid));
+        })).isInstanceOf(RuntimeException.class);
+
+        // 流水写不进去时库存变化一起回滚，预占量和流水不会对不上
+        assertThat(database.jdbc().queryForObject("SELECT reserved_stock FROM inventory_item WHERE id = 1", BigDecimal.class))
+                .isEqualByComparingTo("10");
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    void everyTransactionWritesEachRowOnceInOneStatement() {
+        LedgerWriter writer = newWriter();
+        int transactions = 50;
+        int rowsPerTransaction = 12;
+        for (int i = 0; i < transactions; i++) {
+            List<InventoryTransaction> rows = rows((long) i + 100, InventoryTransaction.TYPE_CONSUME, rowsPerTransaction);
+            // 业务代码按订单项逐次追加，提交前合并写入
+            database.transactionTemplate().executeWithoutResult(status -> rows.forEach(row -> writer.append(List.of(row))));
+        }
+
+        assertThat(count()).isEqualTo(transactions * rowsPerTransaction);
+        assertThat(writer.getStats())
+                .containsEntry("committedWithTransaction", (long) transactions * rowsPerTransaction)
+                .containsEntry("batches", (long) transactions);
+    }
+
+    @Test
+    void appendOutsideTransactionWritesImmediately() {
+        LedgerWriter writer = newWriter();
+        writer.append(rows(12L, InventoryTransaction.TYPE_STOCK_IN, 3));
+
+        assertThat(count()).isEqualTo(3);
+        assertThat(writer.pending(12L)).isEmpty();
+        assertThat(writer.getStats()).containsEntry("direct", 3L);
+    }
+
+    private LedgerWriter newWriter() {
+        return new LedgerWriter(mapper, 200);
+    }
+
+    static List<InventoryTransaction> rows(Long orderId, int type, int count) {
+        List<InventoryTransaction> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            InventoryTransaction transaction = new InventoryTransaction();
+            transaction.setId(IDS.incrementAndGet());
+            transaction.setInventoryItemId(1L);
+            transaction.setTransactionType(type);
+            transaction.setQuantity(BigDecimal.ONE);
+            transaction.setBeforeStock(BigDecimal.TEN);
+            transaction.setAfterStock(BigDecimal.valueOf(11));
+            transaction.setOrderId(orderId);
+            transaction.setOrderItemId(orderId * 100 + i);
+            transaction.setCreatedAt(LocalDateTime.now());
+            rows.add(transaction);
+        }
+        return rows;
+    }
+
+    private int count() {
+        return database.jdbc().queryForObject("SELECT COUNT(*) FROM inventory_transaction", Integer.class);
+    }
+}
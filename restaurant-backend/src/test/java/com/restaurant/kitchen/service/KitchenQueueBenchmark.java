@@ -0,0 +1,151 @@
+package com.restaurant.kitchen.service;
+
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.entity.DishCategory;
+import com.restaurant.dish.mapper.CategoryMapper;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.websocket.WebSocketMessageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 出餐高峰的后厨队列：items 道菜同时在队列中，分布在 STATIONS 个档口、每单 ITEMS_PER_ORDER 道菜。
+ * - statusChange：随机一道菜在待制作和制作中之间切换，即一次出队 + 入队
+ * - serveAndRefill：最早入队的菜出餐离开队列，同时来一张新订单补上，队列规模保持不变
+ * 两者都经由订单变更事件走完整的增量路径（档口队列、合并制作视图、推送变更分组）。
+ * 档口队列的出队入队为 O(log n)；推送的合并制作分组包含该菜品的全部份数，随 n/DISHES 线性增长。
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=KitchenQueueBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KitchenQueueBenchmark {
+
+    private static final int STATIONS = 6;
+    private static final int DISHES = 60;
+    private static final int ITEMS_PER_ORDER = 4;
+
+    @Param({"200", "400", "800", "1600"})
+    int items;
+
+    KitchenQueueService queue;
+    Random random;
+    List<OrderItem> queued;
+    int oldest;
+    long nextOrderId;
+    long nextItemId;
+    long pushedGroups;
+
+    @Setup
+    public void setUp() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        when(orderMapper.selectActiveOrders()).thenReturn(List.of());
+        CategoryMapper categoryMapper = mock(CategoryMapper.class);
+        List<DishCategory> categories = new ArrayList<>();
+        for (long id = 1; id <= STATIONS; id++) {
+            DishCategory category = new DishCategory();
+            category.setId(id);
+            category.setName("档口" + id);
+            categories.add(category);
+        }
+        when(categoryMapper.selectList(any())).thenReturn(categories);
+        DishMapper dishMapper = mock(DishMapper.class);
+        when(dishMapper.selectById(any())).thenAnswer(invocation -> {
+            Long dishId = invocation.getArgument(0);
+            Dish dish = new Dish();
+            dish.setId(dishId);
+            dish.setCategoryId(dishId % STATIONS + 1);
+            return dish;
+        });
+        // 不用 mock：Mockito 每次调用都要遍历调用栈，耗时会超过队列本身
+        WebSocketMessageService messages = new WebSocketMessageService(null, null, null) {
+            @Override
+            public void notifyBatchUpdate(List<?> changedGroups) {
+                pushedGroups += changedGroups.size();
+            }
+        };
+
+        queue = new KitchenQueueService(orderMapper, mock(OrderItemMapper.class), dishMapper, categoryMapper,
+                messages, 120, 300);
+        queue.reload();
+
+        random = new Random(42);
+        queued = new ArrayList<>(items);
+        oldest = 0;
+        while (queued.size() < items) {
+            addOrder();
+        }
+    }
+
+    @Benchmark
+    public void statusChange() {
+        OrderItem item = queued.get(oldest + random.nextInt(items));
+        item.setStatus(item.getStatus() == 0 ? 1 : 0);
+        queue.onOrderChanged(OrderChangedEvent.itemStatus(item));
+    }
+
+    @Benchmark
+    public void serveAndRefill() {
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            OrderItem item = queued.get(oldest++);
+            item.setStatus(2);
+            queue.onOrderChanged(OrderChangedEvent.itemStatus(item));
+        }
+        addOrder();
+        if (oldest >= items) {
+            // 已出餐的部分不再需要，截掉以免列表无限增长
+            queued.subList(0, oldest).clear();
+            oldest = 0;
+        }
+    }
+
+    private void addOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        Order order = new Order();
+        order.setId(++nextOrderId);
+        order.setTableNo("A" + (nextOrderId % 40));
+        order.setCreatedAt(now);
+        List<OrderItem> orderItems = new ArrayList<>(ITEMS_PER_ORDER);
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(++nextItemId);
+            item.setOrderId(order.getId());
+            item.setDishId((long) random.nextInt(DISHES) + 1);
+            item.setDishName("菜品" + item.getDishId());
+            item.setQuantity(1 + random.nextInt(3));
+            item.setStatus(0);
+            item.setIsPaid(random.nextInt(3) == 0 ? 1 : 0);
+            item.setCreatedAt(now);
+            orderItems.add(item);
+        }
+        queued.addAll(orderItems);
+        queue.onOrderChanged(OrderChangedEvent.itemsAdded(order, orderItems, false));
+    }
+}
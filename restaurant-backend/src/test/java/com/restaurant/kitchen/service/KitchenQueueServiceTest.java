@@ -0,0 +1,138 @@
+package com.restaurant.kitchen.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.entity.DishCategory;
+import com.restaurant.dish.mapper.CategoryMapper;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.kitchen.dto.KitchenTicketDTO;
+import com.restaurant.kitchen.dto.StationQueueDTO;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.websocket.ClusterMessageReceivedEvent;
+import com.restaurant.websocket.WebSocketDispatcher;
+import com.restaurant.websocket.WebSocketMessageService;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 其他节点转发来的订单变更直接增量更新队列，不从数据库重建；
+ * 只有转发消息丢失时才重建一次
+ */
+class KitchenQueueServiceTest {
+
+    private static final LocalDateTime ORDERED_AT = LocalDateTime.of(2026, 10, 19, 18, 30);
+
+    private OrderMapper orderMapper;
+    private OrderItemMapper orderItemMapper;
+    private WebSocketMessageService messages;
+    private KitchenQueueService queue;
+
+    @BeforeEach
+    void setUp() {
+        // 重建用 LambdaQueryWrapper 查订单菜品，没有 Spring 时需手动登记实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), OrderItem.class);
+        orderMapper = mock(OrderMapper.class);
+        when(orderMapper.selectActiveOrders()).thenReturn(List.of());
+        orderItemMapper = mock(OrderItemMapper.class);
+        CategoryMapper categoryMapper = mock(CategoryMapper.class);
+        DishCategory category = new DishCategory();
+        category.setId(1L);
+        category.setName("热菜");
+        when(categoryMapper.selectList(any())).thenReturn(List.of(category));
+        DishMapper dishMapper = mock(DishMapper.class);
+        when(dishMapper.selectById(any())).thenAnswer(invocation -> {
+            Dish dish = new Dish();
+            dish.setId(invocation.getArgument(0));
+            dish.setCategoryId(1L);
+            return dish;
+        });
+        messages = mock(WebSocketMessageService.class);
+
+        queue = new KitchenQueueService(orderMapper, orderItemMapper, dishMapper, categoryMapper, messages, 120, 300);
+        queue.reload();
+    }
+
+    @Test
+    void remoteChangesAreAppliedWithoutReload() {
+        Order order = order(1L);
+        OrderItem first = item(11L, order, 0);
+        OrderItem second = item(12L, order, 0);
+
+        queue.onOrderChanged(OrderChangedEvent.itemsAdded(order, List.of(first, second), false).asRemote());
+        queue.onClusterMessage(new ClusterMessageReceivedEvent(WebSocketDispatcher.TOPIC_ORDER_CHANGED, false));
+        second.setStatus(1);
+        queue.onOrderChanged(OrderChangedEvent.itemStatus(second).asRemote());
+        queue.onClusterMessage(new ClusterMessageReceivedEvent(WebSocketDispatcher.TOPIC_ORDER_CHANGED, false));
+
+        StationQueueDTO station = single(queue.getQueue(null));
+        assertThat(station.getPending()).extracting(KitchenTicketDTO::getItemId).containsExactly(11L);
+        assertThat(station.getCooking()).extracting(KitchenTicketDTO::getItemId).containsExactly(12L);
+        // 只有启动时加载过一次
+        verify(orderMapper, times(1)).selectActiveOrders();
+        verify(messages, times(2)).notifyBatchUpdate(any());
+
+        queue.onOrderChanged(OrderChangedEvent.completed(order).asRemote());
+        assertThat(queue.getQueue(null)).isEmpty();
+        verify(orderMapper, times(1)).selectActiveOrders();
+    }
+
+    @Test
+    void lostRemoteChangeTriggersOneRebuild() {
+        Order order = order(2L);
+        OrderItem item = item(21L, order, 0);
+        // 转发 ITEMS_ADDED 的消息丢失，数据库中已有这道菜
+        when(orderMapper.selectActiveOrders()).thenReturn(List.of(order));
+        when(orderItemMapper.selectList(any())).thenReturn(List.of(item));
+        queue.onClusterMessage(new ClusterMessageReceivedEvent(WebSocketDispatcher.TOPIC_KITCHEN, true));
+        assertThat(queue.getQueue(null)).isEmpty();
+
+        queue.onClusterMessage(new ClusterMessageReceivedEvent(WebSocketDispatcher.TOPIC_ORDER_CHANGED, true));
+
+        assertThat(single(queue.getQueue(null)).getPending()).extracting(KitchenTicketDTO::getItemId)
+                .containsExactly(21L);
+        assertThat(queue.getQueue(null)).hasSize(1);
+        verify(orderMapper, times(2)).selectActiveOrders();
+    }
+
+    private static StationQueueDTO single(List<StationQueueDTO> stations) {
+        assertThat(stations).hasSize(1);
+        return stations.get(0);
+    }
+
+    private static Order order(Long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setTableNo("A" + id);
+        order.setCreatedAt(ORDERED_AT);
+        return order;
+    }
+
+    private static OrderItem item(Long id, Order order, int status) {
+        OrderItem item = new OrderItem();
+        item.setId(id);
+        item.setOrderId(order.getId());
+        item.setDishId(id * 10);
+        item.setDishName("菜品" + id);
+        item.setQuantity(1);
+        item.setStatus(status);
+        item.setIsPaid(0);
+        item.setCreatedAt(ORDERED_AT);
+        return item;
+    }
+}
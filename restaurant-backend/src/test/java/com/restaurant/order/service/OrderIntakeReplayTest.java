@@ -0,0 +1,155 @@
+package com.restaurant.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.dish.service.MenuSnapshotService;
+import com.restaurant.order.dto.CartItemDTO;
+import com.restaurant.order.dto.CreateOrderRequest;
+import com.restaurant.order.dto.IntakeTicketDTO;
+import com.restaurant.order.entity.Order;
+import com.restaurant.table.service.FloorStatusService;
+import com.restaurant.websocket.WebSocketMessageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 进程在受理后、写库前崩溃：受理日志中留下未结案的受理单，新进程用同一目录启动时重放。
+ * 订单表按订单编号唯一，用内存中的 Map 模拟；每个受理单应恰好下单一次，
+ * 崩溃前已写库但未来得及记结案的受理单按编号查到后直接结案，不重复下单。
+ */
+class OrderIntakeReplayTest {
+
+    private static final int TICKETS = 20;
+    // 分段很小，受理记录分布在多个分段中
+    private static final long SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<String, Order> ordersByNo = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> createCalls = new ConcurrentHashMap<>();
+    private final AtomicLong orderIds = new AtomicLong();
+    private OrderService orderService;
+    private final List<OrderIntakeService> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderService = mock(OrderService.class);
+        when(orderService.getByOrderNo(anyString())).thenAnswer(invocation -> ordersByNo.get(invocation.<String>getArgument(0)));
+        when(orderService.createOrder(any(), anyString())).thenAnswer(invocation -> {
+            String orderNo = invocation.getArgument(1);
+            createCalls.computeIfAbsent(orderNo, k -> new AtomicInteger()).incrementAndGet();
+            Order order = order(orderNo);
+            if (ordersByNo.putIfAbsent(orderNo, order) != null) {
+                throw new DuplicateKeyException("order_no " + orderNo);
+            }
+            return order;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(OrderIntakeService::shutdown);
+    }
+
+    @Test
+    void unsettledTicketsAreDrainedExactlyOnceAfterRestart() throws Exception {
+        List<String> ticketIds = new ArrayList<>();
+        OrderIntakeLog log = new OrderIntakeLog(dir, objectMapper, SEGMENT_BYTES, false);
+        log.open();
+        for (int i = 1; i <= TICKETS; i++) {
+            String ticketId = "ORD20261019" + String.format("%04d", i);
+            ticketIds.add(ticketId);
+            log.append(new OrderIntakeLog.Entry(OrderIntakeLog.ACCEPTED, ticketId, request((long) i % 5 + 1), null,
+                    null, LocalDateTime.now()));
+        }
+        // 第 1 单崩溃前已写库并结案；第 2 单已写库，结案记录没来得及写
+        String settled = ticketIds.get(0);
+        String committed = ticketIds.get(1);
+        ordersByNo.put(settled, order(settled));
+        log.append(new OrderIntakeLog.Entry(OrderIntakeLog.CREATED, settled, null, ordersByNo.get(settled).getId(),
+                null, LocalDateTime.now()));
+        ordersByNo.put(committed, order(committed));
+        // 模拟崩溃：不再处理，直接关闭
+        log.close();
+
+        OrderIntakeService restarted = start();
+        awaitSettled(restarted, ticketIds.subList(1, TICKETS));
+
+        assertThat(restarted.getStats()).containsEntry("replayed", (long) TICKETS - 1)
+                .containsEntry("created", (long) TICKETS - 1)
+                .containsEntry("failed", 0L)
+                .containsEntry("pending", 0);
+        assertThat(ordersByNo).containsOnlyKeys(ticketIds);
+        assertThat(createCalls).doesNotContainKeys(settled, committed);
+        assertThat(createCalls).hasSize(TICKETS - 2)
+                .allSatisfy((orderNo, calls) -> assertThat(calls).hasValue(1));
+        for (String ticketId : ticketIds.subList(1, TICKETS)) {
+            assertThat(restarted.getTicket(ticketId).getOrderId()).isEqualTo(ordersByNo.get(ticketId).getId());
+        }
+
+        // 结案记录已落盘，再次重启不再重放
+        restarted.shutdown();
+        started.remove(restarted);
+        OrderIntakeService again = start();
+        assertThat(again.getStats()).containsEntry("replayed", 0L).containsEntry("pending", 0);
+        assertThat(createCalls.values()).allSatisfy(calls -> assertThat(calls).hasValue(1));
+    }
+
+    private OrderIntakeService start() throws Exception {
+        OrderIntakeService service = new OrderIntakeService(orderService, mock(MenuSnapshotService.class),
+                mock(FloorStatusService.class), mock(WebSocketMessageService.class), objectMapper,
+                true, dir.toString(), 4, 5000, 5, false, SEGMENT_BYTES, 30);
+        started.add(service);
+        service.start();
+        return service;
+    }
+
+    private void awaitSettled(OrderIntakeService service, List<String> ticketIds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (String ticketId : ticketIds) {
+            while (IntakeTicketDTO.QUEUED.equals(service.getTicket(ticketId).getStatus())) {
+                assertThat(System.nanoTime()).as("受理单 %s 未在 10 秒内结案", ticketId).isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            assertThat(service.getTicket(ticketId).getStatus()).isEqualTo(IntakeTicketDTO.CREATED);
+        }
+    }
+
+    private Order order(String orderNo) {
+        Order order = new Order();
+        order.setId(orderIds.incrementAndGet());
+        order.setOrderNo(orderNo);
+        return order;
+    }
+
+    private static CreateOrderRequest request(Long tableId) {
+        CartItemDTO item = new CartItemDTO();
+        item.setDishId(tableId * 10);
+        item.setDishName("菜品" + tableId);
+        item.setQuantity(2);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setTableId(tableId);
+        request.setCartItems(List.of(item));
+        return request;
+    }
+}
@@ -0,0 +1,160 @@
+package com.restaurant.order.service;
+
+import com.restaurant.common.exception.BusinessException;
+import com.restaurant.common.mailbox.TableKeyResolver;
+import com.restaurant.common.mailbox.TableMailbox;
+import com.restaurant.config.TableMailboxConfig;
+import com.restaurant.inventory.service.InventoryService;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import com.restaurant.promotion.service.PromotionService;
+import com.restaurant.support.CountingTransactionManager;
+import com.restaurant.table.mapper.TableMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 合并制作的一批菜品跨多张桌台时，每张桌台的菜品在该桌台的分片上、各自的事务中更新，
+ * 并发的批次在同一桌台上不会交错
+ */
+class OrderStatusServiceBatchTest {
+
+    /** 4 个分片，菜品 ID 的十位即桌台号：桌台 1、2、3 分别在分片 1、2、3 上 */
+    private static final int SHARDS = 4;
+
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final Map<Long, AtomicInteger> active = new ConcurrentHashMap<>();
+    private final AtomicInteger maxPerTable = new AtomicInteger();
+    private final Map<Long, Set<String>> threadsByTable = new ConcurrentHashMap<>();
+
+    private AnnotationConfigApplicationContext context;
+    private OrderStatusService orderStatusService;
+    private OrderItemMapper orderItemMapper;
+
+    @BeforeEach
+    void setUp() {
+        orderItemMapper = mock(OrderItemMapper.class);
+        when(orderItemMapper.selectById(any())).thenAnswer(invocation -> {
+            Long itemId = invocation.getArgument(0);
+            Long tableId = itemId / 10;
+            threadsByTable.computeIfAbsent(tableId, id -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+            AtomicInteger tableActive = active.computeIfAbsent(tableId, id -> new AtomicInteger());
+            maxPerTable.accumulateAndGet(tableActive.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } finally {
+                tableActive.decrementAndGet();
+            }
+            OrderItem item = new OrderItem();
+            item.setId(itemId);
+            item.setOrderId(tableId * 100);
+            item.setStatus(1);
+            return item;
+        });
+        TableKeyResolver resolver = new TableKeyResolver() {
+            @Override
+            public Long tableOfOrder(Long orderId) {
+                return orderId / 100;
+            }
+
+            @Override
+            public Long tableOfOrderItem(Long itemId) {
+                return itemId < 100 ? itemId / 10 : null;
+            }
+        };
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(OrderItemMapper.class, () -> orderItemMapper);
+        context.registerBean(OrderMapper.class, () -> mock(OrderMapper.class));
+        context.registerBean(TableMapper.class, () -> mock(TableMapper.class));
+        context.registerBean(InventoryService.class, () -> mock(InventoryService.class));
+        context.registerBean(PromotionService.class, () -> mock(PromotionService.class));
+        context.registerBean(TableKeyResolver.class, () -> resolver);
+        context.registerBean(TableMailbox.class, () -> new TableMailbox(resolver, SHARDS, 100, 10_000));
+        context.registerBean(PlatformTransactionManager.class, () -> new CountingTransactionManager(transactions));
+        context.register(TransactionConfig.class, TableMailboxConfig.class, OrderStatusService.class);
+        context.refresh();
+        orderStatusService = context.getBean(OrderStatusService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void mixedTableBatchRunsEachTableOnItsOwnShard() {
+        orderStatusService.updateItemsStatus(List.of(11L, 21L, 12L, 35L, 22L), 2);
+
+        assertThat(threadsByTable).containsOnlyKeys(1L, 2L, 3L);
+        threadsByTable.forEach((tableId, threads) ->
+                assertThat(threads).containsExactly("table-mailbox-" + tableId));
+        // 每张桌台一个事务
+        assertThat(transactions).hasValue(3);
+        assertThat(context.getBean(TableMailbox.class).getStats()).containsEntry("dispatched", 3L);
+    }
+
+    @Test
+    void concurrentBatchesNeverOverlapOnATable() throws Exception {
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                // 一半批次从桌台 1 开始，一半从桌台 2 开始；只按第一道菜串行时两张桌台都会交错
+                List<Long> batch = i % 2 == 0 ? List.of(11L, 12L, 21L, 22L) : List.of(22L, 21L, 12L, 11L);
+                futures.add(pool.submit(() -> {
+                    for (int round = 0; round < 10; round++) {
+                        orderStatusService.updateItemsStatus(batch, 2);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(maxPerTable).hasValue(1);
+        assertThat(transactions).hasValue(callers * 10 * 2);
+    }
+
+    @Test
+    void unknownItemFailsBeforeAnyTableIsUpdated() {
+        assertThatThrownBy(() -> orderStatusService.updateItemsStatus(List.of(11L, 999L), 2))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("菜品不存在");
+
+        assertThat(threadsByTable).isEmpty();
+        assertThat(transactions).hasValue(0);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+    }
+}
@@ -0,0 +1,47 @@
+package com.restaurant.order.service;
+
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.mapper.OrderItemMapper;
+import com.restaurant.order.mapper.OrderMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存满了只淘汰最久未访问的订单，进行中的订单一直留在缓存里
+ */
+class OrderTableResolverTest {
+
+    @Test
+    void recentlyUsedOrderSurvivesWhileColdOrdersAreEvicted() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        when(orderMapper.selectById(any())).thenAnswer(invocation -> {
+            Long orderId = invocation.getArgument(0);
+            Order order = new Order();
+            order.setId(orderId);
+            order.setTableId(orderId % 40 + 1);
+            return order;
+        });
+        OrderTableResolver resolver = new OrderTableResolver(orderMapper, mock(OrderItemMapper.class));
+
+        Long active = 0L;
+        assertThat(resolver.tableOfOrder(active)).isEqualTo(1L);
+        // 历史订单不断进入缓存，总数远超上限；进行中的订单期间一直被访问
+        for (long orderId = 1; orderId <= 3L * OrderTableResolver.MAX_ENTRIES; orderId++) {
+            resolver.tableOfOrder(orderId);
+            resolver.tableOfOrder(active);
+        }
+        verify(orderMapper, times(1)).selectById(active);
+
+        // 最早的历史订单已被淘汰，最近的仍在缓存中
+        resolver.tableOfOrder(1L);
+        resolver.tableOfOrder(3L * OrderTableResolver.MAX_ENTRIES);
+        verify(orderMapper, times(2)).selectById(1L);
+        verify(orderMapper, times(1)).selectById(3L * OrderTableResolver.MAX_ENTRIES);
+    }
+}
@@ -0,0 +1,138 @@
+package com.restaurant.promotion.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.restaurant.common.Money;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.promotion.dto.PromotionLine;
+import com.restaurant.promotion.dto.PromotionResult;
+import com.restaurant.promotion.entity.Promotion;
+import com.restaurant.promotion.mapper.PromotionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 结账时计算整单优惠：lines 行的大单（宴席、团餐）对 rules 个启用的活动求值，按 OrderStatusService.checkout 的用法。
+ * 活动约 6 成指定菜品、2 成指定分类、1 成全场（折扣和买N送1各半，部分带欢乐时光时段），其余为满减，部分限定分类。
+ * 规则在 setUp 中加载一次，计时只包含 evaluate 本身：按菜品分组、在索引上查找命中的规则、满减判断和分摊。
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PromotionRuleIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionRuleIndexBenchmark {
+
+    private static final int DISHES = 200;
+    private static final int CATEGORIES = 12;
+    private static final LocalDateTime CHECKOUT = LocalDateTime.of(2026, 10, 19, 18, 30);
+
+    @Param({"50", "300"})
+    int lines;
+
+    @Param({"100", "500"})
+    int rules;
+
+    PromotionRuleIndex index;
+    List<PromotionLine> cart;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Promotion> promotions = new ArrayList<>(rules);
+        for (long id = 1; id <= rules; id++) {
+            promotions.add(promotion(id, random));
+        }
+        List<Dish> dishes = new ArrayList<>(DISHES);
+        for (long id = 1; id <= DISHES; id++) {
+            Dish dish = new Dish();
+            dish.setId(id);
+            dish.setCategoryId(id % CATEGORIES + 1);
+            dishes.add(dish);
+        }
+        // reload 用 LambdaQueryWrapper 只查菜品的 id 和分类，没有 Spring 时需手动登记实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Dish.class);
+        PromotionMapper promotionMapper = mock(PromotionMapper.class);
+        when(promotionMapper.selectActivePromotions()).thenReturn(promotions);
+        DishMapper dishMapper = mock(DishMapper.class);
+        when(dishMapper.selectList(any())).thenReturn(dishes);
+
+        // 刷新间隔足够长，测量期间不会重新加载
+        index = new PromotionRuleIndex(promotionMapper, dishMapper, Long.MAX_VALUE / 2);
+        index.reload();
+
+        cart = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            long dishId = random.nextInt(DISHES) + 1;
+            Money price = Money.ofCents(800 + random.nextInt(12_000));
+            // 加菜分几批下单，点菜时间跨越欢乐时光的开始
+            LocalDateTime orderedAt = CHECKOUT.minusMinutes(random.nextInt(120));
+            cart.add(new PromotionLine(dishId, null, price, 1 + random.nextInt(4), orderedAt));
+        }
+    }
+
+    @Benchmark
+    public PromotionResult evaluate() {
+        return index.evaluate(cart, CHECKOUT);
+    }
+
+    private static Promotion promotion(long id, Random random) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setName("活动" + id);
+        promotion.setStatus(1);
+        int scope = random.nextInt(10);
+        if (scope >= 9) {
+            promotion.setType(Promotion.TYPE_SPEND_REDUCTION);
+            int threshold = 100 + random.nextInt(20) * 50;
+            promotion.setThresholdAmount(BigDecimal.valueOf(threshold));
+            promotion.setReduceAmount(BigDecimal.valueOf(threshold / 10));
+            if (random.nextBoolean()) {
+                promotion.setCategoryId((long) random.nextInt(CATEGORIES) + 1);
+            }
+            return promotion;
+        }
+        if (random.nextBoolean()) {
+            promotion.setType(Promotion.TYPE_PERCENT_OFF);
+            promotion.setPercentOff(5 + random.nextInt(30));
+        } else {
+            promotion.setType(Promotion.TYPE_BUY_N_FREE_ONE);
+            promotion.setBuyQuantity(2 + random.nextInt(3));
+        }
+        if (scope < 6) {
+            promotion.setDishId((long) random.nextInt(DISHES) + 1);
+        } else if (scope < 8) {
+            promotion.setCategoryId((long) random.nextInt(CATEGORIES) + 1);
+        }
+        if (random.nextInt(3) == 0) {
+            promotion.setStartTime(LocalTime.of(17, 0));
+            promotion.setEndTime(LocalTime.of(19, 0));
+        }
+        return promotion;
+    }
+}
@@ -0,0 +1,196 @@
+package com.restaurant.promotion.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.restaurant.common.Money;
+import com.restaurant.dish.entity.Dish;
+import com.restaurant.dish.mapper.DishMapper;
+import com.restaurant.promotion.dto.PromotionLine;
+import com.restaurant.promotion.dto.PromotionResult;
+import com.restaurant.promotion.entity.Promotion;
+import com.restaurant.promotion.mapper.PromotionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 优惠计算规则：单品取最优不叠加、买N送1送最便宜的、满减按适用行判断门槛并按比例分摊、跨零点的时段、无效活动忽略
+ */
+class PromotionRuleIndexTest {
+
+    private static final LocalDateTime CHECKOUT = LocalDateTime.of(2026, 10, 19, 18, 30);
+    private static final long HOT = 1;
+    private static final long COLD = 2;
+
+    private final AtomicLong promotionIds = new AtomicLong();
+
+    @BeforeAll
+    static void registerEntities() {
+        // reload 用 LambdaQueryWrapper 只查菜品的 id 和分类，没有 Spring 时需手动登记实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Dish.class);
+    }
+
+    @Test
+    void bestRuleWinsInsteadOfStacking() {
+        PromotionRuleIndex index = index(
+                percentOff("招牌九折", 10L, null, 10),
+                percentOff("热菜八折", null, HOT, 20));
+
+        PromotionResult result = index.evaluate(List.of(line(10, HOT, 1000, 3, CHECKOUT)), CHECKOUT);
+
+        assertThat(cents(result)).containsExactly(600L);
+        assertThat(result.discount()).isEqualTo(Money.ofCents(600));
+        assertThat(result.applied()).containsExactly("热菜八折");
+    }
+
+    @Test
+    void buyNGivesAwayTheCheapestUnitsFirst() {
+        // 同一菜品两种规格共 6 份，买2送1送 2 份：先送 20 元的 1 份，再送 30 元的 1 份
+        PromotionRuleIndex index = index(buyNFreeOne("买二送一", 10L, 2));
+
+        PromotionResult result = index.evaluate(List.of(
+                line(10, HOT, 3000, 5, CHECKOUT),
+                line(10, HOT, 2000, 1, CHECKOUT)), CHECKOUT);
+
+        assertThat(cents(result)).containsExactly(3000L, 2000L);
+        assertThat(result.applied()).containsExactly("买二送一");
+    }
+
+    @Test
+    void scopedReductionCountsOnlyItsOwnLines() {
+        PromotionRuleIndex index = index(reduction("凉菜满100减20", COLD, "100", "20"));
+
+        // 整单 140 元，但凉菜只有 60 元，不满足门槛
+        PromotionResult below = index.evaluate(List.of(
+                line(20, COLD, 6000, 1, CHECKOUT),
+                line(30, HOT, 8000, 1, CHECKOUT)), CHECKOUT);
+        assertThat(below.discount()).isEqualTo(Money.ZERO);
+        assertThat(below.applied()).isEmpty();
+
+        // 凉菜 110 元，减免只分摊到凉菜行：60/110 和 50/110，舍去的 1 分补到第一个凉菜行
+        PromotionResult reached = index.evaluate(List.of(
+                line(20, COLD, 6000, 1, CHECKOUT),
+                line(30, HOT, 8000, 1, CHECKOUT),
+                line(21, COLD, 5000, 1, CHECKOUT)), CHECKOUT);
+        assertThat(cents(reached)).containsExactly(1091L, 0L, 909L);
+        assertThat(reached.discount()).isEqualTo(Money.ofCents(2000));
+        assertThat(reached.applied()).containsExactly("凉菜满100减20");
+    }
+
+    @Test
+    void reductionWithoutMatchingLinesIsNotApplied() {
+        PromotionRuleIndex index = index(reduction("凉菜立减5元", COLD, "0", "5"));
+
+        PromotionResult result = index.evaluate(List.of(line(30, HOT, 8000, 1, CHECKOUT)), CHECKOUT);
+
+        assertThat(result.discount()).isEqualTo(Money.ZERO);
+        assertThat(result.applied()).isEmpty();
+    }
+
+    @Test
+    void reductionIsSplitProportionallyAndLeftoverCentsGoToTheFirstLines() {
+        PromotionRuleIndex index = index(reduction("满30减10", null, "30", "10"));
+
+        PromotionResult result = index.evaluate(List.of(
+                line(10, HOT, 1000, 1, CHECKOUT),
+                line(20, COLD, 1000, 1, CHECKOUT),
+                line(30, HOT, 1000, 1, CHECKOUT)), CHECKOUT);
+
+        assertThat(cents(result)).containsExactly(334L, 333L, 333L);
+        assertThat(result.discount()).isEqualTo(Money.ofCents(1000));
+    }
+
+    @Test
+    void overnightHappyHourCoversBothSidesOfMidnight() {
+        Promotion lateNight = percentOff("夜宵八折", null, null, 20);
+        lateNight.setStartTime(LocalTime.of(22, 0));
+        lateNight.setEndTime(LocalTime.of(2, 0));
+        PromotionRuleIndex index = index(lateNight);
+
+        LocalDateTime checkout = LocalDateTime.of(2026, 10, 20, 2, 30);
+        PromotionResult result = index.evaluate(List.of(
+                line(10, HOT, 1000, 1, LocalDateTime.of(2026, 10, 19, 21, 59)),
+                line(20, HOT, 1000, 1, LocalDateTime.of(2026, 10, 19, 23, 30)),
+                line(30, HOT, 1000, 1, LocalDateTime.of(2026, 10, 20, 1, 59)),
+                line(40, HOT, 1000, 1, LocalDateTime.of(2026, 10, 20, 2, 0))), checkout);
+
+        assertThat(cents(result)).containsExactly(0L, 200L, 200L, 0L);
+    }
+
+    @Test
+    void invalidRulesAreSkipped() {
+        Promotion unknownType = percentOff("未知类型", null, null, 50);
+        unknownType.setType(9);
+        PromotionRuleIndex index = index(
+                percentOff("零折扣", null, null, 0),
+                percentOff("超过100%", null, null, 150),
+                buyNFreeOne("没有N", null, null),
+                reduction("没有减免", null, "10", null),
+                unknownType,
+                percentOff("九五折", null, null, 5));
+
+        PromotionResult result = index.evaluate(List.of(line(10, HOT, 10000, 1, CHECKOUT)), CHECKOUT);
+
+        assertThat(cents(result)).containsExactly(500L);
+        assertThat(result.applied()).containsExactly("九五折");
+    }
+
+    private static PromotionRuleIndex index(Promotion... promotions) {
+        PromotionMapper promotionMapper = mock(PromotionMapper.class);
+        when(promotionMapper.selectActivePromotions()).thenReturn(List.of(promotions));
+        DishMapper dishMapper = mock(DishMapper.class);
+        when(dishMapper.selectList(any())).thenReturn(List.of());
+        return new PromotionRuleIndex(promotionMapper, dishMapper, Long.MAX_VALUE / 2);
+    }
+
+    private static PromotionLine line(long dishId, long categoryId, long unitCents, int quantity,
+                                      LocalDateTime orderedAt) {
+        return new PromotionLine(dishId, categoryId, Money.ofCents(unitCents), quantity, orderedAt);
+    }
+
+    private static List<Long> cents(PromotionResult result) {
+        return Arrays.stream(result.lineDiscounts()).map(Money::cents).toList();
+    }
+
+    private Promotion percentOff(String name, Long dishId, Long categoryId, Integer percentOff) {
+        Promotion promotion = promotion(name, Promotion.TYPE_PERCENT_OFF, dishId, categoryId);
+        promotion.setPercentOff(percentOff);
+        return promotion;
+    }
+
+    private Promotion buyNFreeOne(String name, Long dishId, Integer buyQuantity) {
+        Promotion promotion = promotion(name, Promotion.TYPE_BUY_N_FREE_ONE, dishId, null);
+        promotion.setBuyQuantity(buyQuantity);
+        return promotion;
+    }
+
+    private Promotion reduction(String name, Long categoryId, String threshold, String reduce) {
+        Promotion promotion = promotion(name, Promotion.TYPE_SPEND_REDUCTION, null, categoryId);
+        promotion.setThresholdAmount(new BigDecimal(threshold));
+        promotion.setReduceAmount(reduce != null ? new BigDecimal(reduce) : null);
+        return promotion;
+    }
+
+    private Promotion promotion(String name, int type, Long dishId, Long categoryId) {
+        Promotion promotion = new Promotion();
+        promotion.setId(promotionIds.incrementAndGet());
+        promotion.setName(name);
+        promotion.setType(type);
+        promotion.setDishId(dishId);
+        promotion.setCategoryId(categoryId);
+        promotion.setStatus(1);
+        return promotion;
+    }
+}
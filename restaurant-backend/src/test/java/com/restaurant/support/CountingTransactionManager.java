@@ -0,0 +1,37 @@
+package com.restaurant.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不连接数据库的事务管理器，只记录开启的事务数；事务同步和 isActualTransactionActive 与真实事务一致
+ */
+public class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final AtomicInteger begun;
+
+    public CountingTransactionManager(AtomicInteger begun) {
+        this.begun = begun;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        begun.incrementAndGet();
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+}
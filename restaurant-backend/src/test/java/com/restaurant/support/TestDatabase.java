@@ -0,0 +1,80 @@
+package com.restaurant.support;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MySQL 兼容模式的 H2 内存库，用生产的 mapper 和 MyBatis-Plus 插件访问，
+ * 事务由 DataSourceTransactionManager 管理，mapper 调用参与当前事务
+ */
+public class TestDatabase {
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    private final DataSource dataSource;
+    private final DataSourceTransactionManager transactionManager;
+    private final SqlSessionTemplate sqlSession;
+    private final JdbcTemplate jdbc;
+
+    public TestDatabase(String... ddl) {
+        String url = "jdbc:h2:mem:test" + SEQ.incrementAndGet() + "-" + System.nanoTime()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        dataSource = new SimpleDriverDataSource(new org.h2.Driver(), url, "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        for (String statement : ddl) {
+            jdbc.execute(statement);
+        }
+        transactionManager = new DataSourceTransactionManager(dataSource);
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
+        configuration.addInterceptor(interceptor);
+        MybatisSqlSessionFactoryBean factory = new MybatisSqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setConfiguration(configuration);
+        try {
+            sqlSession = new SqlSessionTemplate(factory.getObject());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public <T> T mapper(Class<T> type) {
+        if (!sqlSession.getConfiguration().hasMapper(type)) {
+            sqlSession.getConfiguration().addMapper(type);
+        }
+        return sqlSession.getMapper(type);
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public DataSourceTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    public void shutdown() {
+        jdbc.execute("SHUTDOWN");
+    }
+}
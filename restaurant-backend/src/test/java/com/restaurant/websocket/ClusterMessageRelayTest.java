@@ -0,0 +1,255 @@
+package com.restaurant.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.auth.event.TokenRevokedEvent;
+import com.restaurant.auth.event.UserCreatedEvent;
+import com.restaurant.order.entity.Order;
+import com.restaurant.order.entity.OrderItem;
+import com.restaurant.order.event.OrderChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 两个节点各自一个 Spring 上下文，共用一个内存中的 Redis 频道：
+ * 节点 A 分发的消息应当只投递给节点 B 的本地连接一次，且不会回送给 A
+ */
+class ClusterMessageRelayTest {
+
+    private final FakeRedisChannel redis = new FakeRedisChannel();
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+    private List<String> deliveredA;
+    private List<String> deliveredB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+        deliveredA = register(nodeA);
+        deliveredB = register(nodeB);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void messagePublishedOnOneNodeReachesTheOtherExactlyOnce() {
+        nodeA.getBean(WebSocketDispatcher.class).dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "new-order-1");
+
+        assertThat(deliveredA).containsExactly("new-order-1");
+        assertThat(deliveredB).containsExactly("new-order-1");
+        assertThat(nodeB.getBean(EventRecorder.class).topics).containsExactly(WebSocketDispatcher.TOPIC_KITCHEN);
+        assertThat(nodeA.getBean(EventRecorder.class).topics).isEmpty();
+    }
+
+    @Test
+    void redeliveredMessageIsDroppedByTheReceiver() {
+        redis.copies = 2;
+
+        nodeA.getBean(WebSocketDispatcher.class).dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "new-order-1");
+
+        assertThat(deliveredB).containsExactly("new-order-1");
+    }
+
+    @Test
+    void messagesOnOneTopicArriveInPublishOrder() {
+        WebSocketDispatcher dispatcher = nodeA.getBean(WebSocketDispatcher.class);
+        List<String> sent = IntStream.rangeClosed(1, 100).mapToObj(i -> "item-" + i).toList();
+        sent.forEach(payload -> dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, payload));
+
+        assertThat(deliveredB).containsExactlyElementsOf(sent);
+    }
+
+    @Test
+    void bothNodesCanPublish() {
+        nodeA.getBean(WebSocketDispatcher.class).dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "from-a");
+        nodeB.getBean(WebSocketDispatcher.class).dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "from-b");
+
+        assertThat(deliveredA).containsExactly("from-a", "from-b");
+        assertThat(deliveredB).containsExactly("from-a", "from-b");
+    }
+
+    @Test
+    void revocationOnOneNodeIsRepublishedOnTheOther() {
+        nodeA.publishEvent(TokenRevokedEvent.local(7L, 1000L));
+
+        assertThat(nodeB.getBean(EventRecorder.class).revocations)
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getUserId()).isEqualTo(7L);
+                    assertThat(event.getRevokedAt()).isEqualTo(1000L);
+                    assertThat(event.isRemote()).isTrue();
+                });
+        // 转发到达的事件不再转发，不会回到 A
+        assertThat(nodeA.getBean(EventRecorder.class).revocations).singleElement()
+                .satisfies(event -> assertThat(event.isRemote()).isFalse());
+    }
+
+    @Test
+    void userCreatedOnOneNodeIsRepublishedOnTheOther() {
+        nodeA.publishEvent(UserCreatedEvent.local("new-waiter"));
+
+        assertThat(nodeB.getBean(EventRecorder.class).createdUsers).containsExactly("remote:new-waiter");
+        assertThat(nodeA.getBean(EventRecorder.class).createdUsers).containsExactly("local:new-waiter");
+    }
+
+    @Test
+    void orderChangeOnOneNodeIsRepublishedOnTheOther() {
+        Order order = new Order();
+        order.setId(42L);
+        order.setTableId(3L);
+        order.setCreatedAt(LocalDateTime.of(2026, 10, 19, 18, 30));
+        OrderItem item = new OrderItem();
+        item.setId(420L);
+        item.setOrderId(42L);
+        item.setDishId(7L);
+        item.setQuantity(2);
+        item.setStatus(0);
+        item.setCreatedAt(LocalDateTime.of(2026, 10, 19, 18, 45));
+
+        nodeA.publishEvent(OrderChangedEvent.itemsAdded(order, List.of(item), true));
+
+        assertThat(nodeB.getBean(EventRecorder.class).orderChanges)
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.isRemote()).isTrue();
+                    assertThat(event.getType()).isEqualTo(OrderChangedEvent.Type.ITEMS_ADDED);
+                    assertThat(event.isAddOn()).isTrue();
+                    assertThat(event.getOrder().getCreatedAt()).isEqualTo(order.getCreatedAt());
+                    assertThat(event.getItems()).singleElement()
+                            .satisfies(received -> {
+                                assertThat(received.getId()).isEqualTo(420L);
+                                assertThat(received.getCreatedAt()).isEqualTo(item.getCreatedAt());
+                            });
+                });
+        assertThat(nodeA.getBean(EventRecorder.class).orderChanges).singleElement()
+                .satisfies(event -> assertThat(event.isRemote()).isFalse());
+    }
+
+    @Test
+    void lostMessageIsReportedAsGap() {
+        WebSocketDispatcher dispatcher = nodeA.getBean(WebSocketDispatcher.class);
+        dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "item-1");
+        redis.copies = 0;
+        dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "item-2");
+        redis.copies = 1;
+        dispatcher.dispatch(WebSocketDispatcher.TOPIC_KITCHEN, "item-3");
+
+        assertThat(deliveredB).containsExactly("item-1", "item-3");
+        assertThat(nodeB.getBean(EventRecorder.class).gaps).containsExactly(false, true);
+    }
+
+    private AnnotationConfigApplicationContext startNode(String nodeId) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "app.websocket.cluster.enabled", "true",
+                "app.websocket.cluster.node-id", nodeId)));
+        context.registerBean(FakeRedisChannel.class, () -> redis);
+        context.register(NodeConfig.class, WebSocketDispatcher.class, ClusterMessageRelay.class);
+        context.refresh();
+        redis.listeners.add(context.getBean(ClusterMessageRelay.class));
+        return context;
+    }
+
+    private List<String> register(AnnotationConfigApplicationContext node) {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        node.getBean(WebSocketDispatcher.class).registerTopic(WebSocketDispatcher.TOPIC_KITCHEN, delivered::add);
+        return delivered;
+    }
+
+    @Configuration
+    static class NodeConfig {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        StringRedisTemplate stringRedisTemplate(FakeRedisChannel redis) {
+            StringRedisTemplate template = mock(StringRedisTemplate.class);
+            doAnswer(invocation -> redis.publish(invocation.getArgument(0), invocation.getArgument(1)))
+                    .when(template).convertAndSend(anyString(), any());
+            return template;
+        }
+
+        @Bean
+        EventRecorder eventRecorder() {
+            return new EventRecorder();
+        }
+    }
+
+    static class EventRecorder {
+        final List<String> topics = new CopyOnWriteArrayList<>();
+        final List<TokenRevokedEvent> revocations = new CopyOnWriteArrayList<>();
+        final List<String> createdUsers = new CopyOnWriteArrayList<>();
+        final List<OrderChangedEvent> orderChanges = new CopyOnWriteArrayList<>();
+        final List<Boolean> gaps = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void onClusterMessage(ClusterMessageReceivedEvent event) {
+            topics.add(event.getTopic());
+            gaps.add(event.isGap());
+        }
+
+        @EventListener
+        void onOrderChanged(OrderChangedEvent event) {
+            orderChanges.add(event);
+        }
+
+        @EventListener
+        void onTokenRevoked(TokenRevokedEvent event) {
+            revocations.add(event);
+        }
+
+        @EventListener
+        void onUserCreated(UserCreatedEvent event) {
+            createdUsers.add((event.isRemote() ? "remote:" : "local:") + event.getUsername());
+        }
+    }
+
+    /**
+     * 同步投递给所有订阅者（包括发布者自己），copies 模拟重连后的重复投递，为 0 时模拟消息丢失
+     */
+    static class FakeRedisChannel {
+        final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+        int copies = 1;
+
+        Long publish(String channel, Object message) {
+            byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < copies; i++) {
+                for (MessageListener listener : listeners) {
+                    listener.onMessage(new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8), body), null);
+                }
+            }
+            return (long) listeners.size();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.restaurant.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 出餐高峰的状态变更突发：ITEMS 道菜在 ROUNDS 轮中反复变更，每轮之间间隔远小于合并窗口。
+ * 每道菜最终的状态都应送达，发送的帧数应远少于收到的变更数；
+ * 收到的变更数与发送帧数输出到测试日志。
+ */
+@Slf4j
+class ItemStatusCoalescerTest {
+
+    private static final long WINDOW_MS = 80;
+    private static final int ITEMS = 50;
+    private static final int ROUNDS = 40;
+    private static final long ROUND_INTERVAL_MS = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void burstIsCoalescedIntoFewFramesCarryingTheLatestStatus() throws Exception {
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(mock(ObjectProvider.class));
+        List<String> frames = new CopyOnWriteArrayList<>();
+        dispatcher.registerTopic(WebSocketDispatcher.TOPIC_KITCHEN, frames::add);
+        ItemStatusCoalescer coalescer = new ItemStatusCoalescer(dispatcher, objectMapper, WINDOW_MS);
+
+        Map<Long, Integer> latest = new HashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (long itemId = 1; itemId <= ITEMS; itemId++) {
+                // 待制作 → 制作中 → 已出餐 循环
+                int status = (int) ((round + itemId) % 3);
+                coalescer.submit(itemId, status);
+                latest.put(itemId, status);
+            }
+            Thread.sleep(ROUND_INTERVAL_MS);
+        }
+        coalescer.shutdown();
+
+        // 按帧顺序回放，得到客户端最终看到的状态
+        Map<Long, Integer> seen = new HashMap<>();
+        for (String frame : frames) {
+            JsonNode message = objectMapper.readTree(frame);
+            assertThat(message.get("type").asText()).isEqualTo(ItemStatusCoalescer.MESSAGE_TYPE);
+            for (JsonNode update : message.get("data")) {
+                seen.put(update.get("itemId").asLong(), update.get("status").asInt());
+            }
+        }
+        assertThat(seen).isEqualTo(latest);
+
+        Map<String, Object> stats = coalescer.getStats();
+        long received = (long) stats.get("receivedUpdates");
+        long sent = (long) stats.get("sentFrames");
+        assertThat(received).isEqualTo((long) ITEMS * ROUNDS);
+        assertThat(sent).isEqualTo(frames.size());
+        // 约 ROUNDS * ROUND_INTERVAL_MS / WINDOW_MS 帧，留足调度抖动的余量
+        assertThat(sent).isLessThanOrEqualTo(ROUNDS / 2);
+        log.info("合并窗口 {}ms: 收到 {} 条变更, 发送 {} 帧, 平均每帧 {} 条",
+                WINDOW_MS, received, sent, String.format("%.1f", (double) stats.get("updatesPerFrame")));
+    }
+}
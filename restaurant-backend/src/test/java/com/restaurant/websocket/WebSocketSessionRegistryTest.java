@@ -0,0 +1,93 @@
+package com.restaurant.websocket;
+
+import com.restaurant.utils.IpUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 慢连接发送超限时只关闭该连接并释放名额，其余连接照常收到广播，心跳任务也不会因此停止
+ */
+class WebSocketSessionRegistryTest {
+
+    private static final String TOPIC = "kitchen";
+
+    private WebSocketSessionRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void slowSessionIsClosedWithoutStoppingTheBroadcast() throws Exception {
+        registry = new WebSocketSessionRegistry(60_000, 120_000, 3, 3, new IpUtil(List.of()));
+        WebSocketSession first = session("a");
+        WebSocketSession slow = slowSession("slow");
+        WebSocketSession last = session("z");
+        for (WebSocketSession session : List.of(first, slow, last)) {
+            assertThat(registry.register(session, TOPIC)).isTrue();
+        }
+
+        registry.broadcast(TOPIC, "update");
+
+        verify(first).sendMessage(new TextMessage("update"));
+        verify(last).sendMessage(new TextMessage("update"));
+        verify(slow).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(registry.getConnectionCount(TOPIC)).isEqualTo(2);
+        assertThat(registry.getStats()).containsEntry("reaped", 1L);
+        // 名额已释放，新连接可以进来
+        assertThat(registry.register(session("b"), TOPIC)).isTrue();
+    }
+
+    @Test
+    void heartbeatKeepsRunningAfterASessionExceedsItsLimit() throws Exception {
+        registry = new WebSocketSessionRegistry(20, 120_000, 10, 10, new IpUtil(List.of()));
+        WebSocketSession healthy = session("a");
+        WebSocketSession slow = slowSession("slow");
+        registry.register(healthy, TOPIC);
+        registry.register(slow, TOPIC);
+
+        verify(slow, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        // 清理之后仍按周期发送 ping
+        verify(healthy, timeout(5000).atLeast(3)).sendMessage(any(PingMessage.class));
+        assertThat(registry.getConnectionCount(TOPIC)).isEqualTo(1);
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getHandshakeHeaders()).thenReturn(new HttpHeaders());
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        return session;
+    }
+
+    /**
+     * 发送时报告超出发送时间或缓冲上限，与 ConcurrentWebSocketSessionDecorator 的 TERMINATE 策略一致
+     */
+    private static WebSocketSession slowSession(String id) throws Exception {
+        WebSocketSession session = session(id);
+        doThrow(new SessionLimitExceededException("Send time 5001 (ms) exceeded", CloseStatus.SESSION_NOT_RELIABLE))
+                .when(session).sendMessage(any(WebSocketMessage.class));
+        return session;
+    }
+}
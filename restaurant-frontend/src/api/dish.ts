@@ -31,9 +31,11 @@ export function getDishes(categoryId?: number, status?: number): Promise<Dish[]>
   return request.get('/dishes', { params: { categoryId, status } })
 }
 
-// 按分类获取菜品(含规格)
-export function getDishesByCategory(): Promise<{ id: number; name: string; dishes: Dish[] }[]> {
-  return request.get('/dishes/by-category')
+// 按分类获取菜品(含规格)，imageSize 指定返回的图片规格，不传时返回原图
+export function getDishesByCategory(
+  imageSize?: 'thumb' | 'list' | 'detail'
+): Promise<{ id: number; name: string; dishes: Dish[] }[]> {
+  return request.get('/dishes/by-category', { params: { imageSize } })
 }
 
 // 获取菜品详情(含规格)
@@ -6,6 +6,8 @@ import type {
   AddDishRequest,
   BatchAddRequest,
   PayRequest,
+  IntakeTicket,
+  UnpaidAmount,
 } from '@/types'
 
 export function getOrders(params?: { status?: number }): Promise<Order[]> {
@@ -24,6 +26,15 @@ export function createOrder(data: OrderCreateRequest): Promise<Order> {
   return request.post('/orders', data)
 }
 
+// 异步下单：返回受理单，后台写库
+export function submitOrderIntake(data: OrderCreateRequest): Promise<IntakeTicket> {
+  return request.post('/orders/intake', data)
+}
+
+export function getIntakeTicket(ticketId: string): Promise<IntakeTicket> {
+  return request.get(`/orders/intake/${ticketId}`)
+}
+
 export function addDishToOrder(orderId: number, data: AddDishRequest): Promise<Order> {
   return request.post(`/orders/${orderId}/add`, data)
 }
@@ -52,6 +63,6 @@ export function getOrderByTable(tableId: number): Promise<Order | null> {
   return request.get(`/orders/by-table/${tableId}`)
 }
 
-export function getUnpaidAmount(orderId: number): Promise<number> {
+export function getUnpaidAmount(orderId: number): Promise<UnpaidAmount> {
   return request.get(`/orders/${orderId}/unpaid-amount`)
 }
@@ -28,3 +28,23 @@ export function clearTable(id: number): Promise<Table> {
 export function setPendingClear(id: number): Promise<Table> {
   return request.post(`/tables/${id}/pending-clear`)
 }
+
+export interface FloorDelta {
+  version: number
+  tableId: number
+  table: Table | null
+  deleted: boolean
+}
+
+export interface FloorSnapshot {
+  epoch: string
+  version: number
+  full: boolean
+  tables?: Table[]
+  changes?: FloorDelta[]
+}
+
+// 桌台状态同步：不带版本号时返回完整快照，否则只返回缺失的增量
+export function getFloor(epoch?: string, since?: number): Promise<FloorSnapshot> {
+  return request.get('/tables/floor', { params: { epoch, since } })
+}
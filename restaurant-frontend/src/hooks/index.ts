@@ -1,2 +1,3 @@
 export * from './useLoading'
 export * from './usePagination'
+export * from './useMenuAvailability'
@@ -0,0 +1,52 @@
+import { onMounted, onUnmounted, type Ref } from 'vue'
+
+interface MenuCategory {
+  id: number
+  dishes: any[]
+}
+
+interface AvailabilityChange {
+  dishId: number | null
+  status: number
+  soldOut: boolean
+}
+
+/**
+ * 订阅菜品可售状态（售罄、补货、上下架）
+ * 每次（重新）连接和菜单结构变化时调用 reload 重新拉取菜单，接口带 ETag，未变化时很轻
+ */
+export function useMenuAvailability(categories: Ref<MenuCategory[]>, reload: () => void) {
+  let eventSource: EventSource | null = null
+
+  const applyChange = (change: AvailabilityChange) => {
+    categories.value.forEach(category => {
+      const index = category.dishes.findIndex(d => d.id === change.dishId)
+      if (index < 0) return
+      if (change.status !== 1) {
+        // 下架：从菜单移除
+        category.dishes.splice(index, 1)
+      } else {
+        category.dishes[index] = { ...category.dishes[index], soldOut: change.soldOut }
+      }
+    })
+    // 重新上架的菜品不在当前菜单中，需要重新拉取
+    if (change.status === 1 && !categories.value.some(c => c.dishes.some(d => d.id === change.dishId))) {
+      reload()
+    }
+  }
+
+  onMounted(() => {
+    if (!('EventSource' in window)) return
+    eventSource = new EventSource('/api/dishes/availability/stream')
+    eventSource.onopen = () => reload()
+    eventSource.addEventListener('availability', e => {
+      applyChange(JSON.parse((e as MessageEvent).data))
+    })
+    eventSource.addEventListener('menu', () => reload())
+  })
+
+  onUnmounted(() => {
+    eventSource?.close()
+    eventSource = null
+  })
+}
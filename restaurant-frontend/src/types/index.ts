@@ -77,6 +77,7 @@ export interface Dish {
   sortOrder: number
   hasSpecs: number
   specs?: SpecItem[]
+  soldOut?: boolean
 }
 
 // 订单项
@@ -120,6 +121,17 @@ export interface OrderCreateRequest {
   }[]
 }
 
+// 异步下单受理单
+export interface IntakeTicket {
+  ticketId: string
+  status: 'QUEUED' | 'CREATED' | 'FAILED'
+  tableId: number
+  orderId?: number
+  message?: string
+  attempts: number
+  createdAt: string
+}
+
 export interface AddDishRequest {
   dishId: number
   specId?: number
@@ -132,6 +144,14 @@ export interface BatchAddRequest {
   items: AddDishRequest[]
 }
 
+// 未结账金额及抹零后的金额
+export interface UnpaidAmount {
+  amount: number
+  roundedToJiao: number // 抹去分
+  roundedToYuan: number // 抹去角分
+  roundedToTenYuan: number // 抹去个位
+}
+
 export interface PayRequest {
   amount: number
   discountAmount?: number